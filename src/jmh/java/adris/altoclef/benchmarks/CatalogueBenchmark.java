@@ -0,0 +1,73 @@
+package adris.altoclef.benchmarks;
+
+import adris.altoclef.TaskCatalogue;
+import adris.altoclef.util.ItemTarget;
+import net.minecraft.item.Item;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalogue lookups, which tasks do constantly (every ItemTarget made from a name, every resource task made from a target),
+ * and merging item targets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CatalogueBenchmark {
+
+    private String[] _names;
+    private ItemTarget[] _targets;
+    private int _next = 0;
+
+    @Setup
+    public void setup() {
+        Fixtures.bootstrapMinecraft();
+        // Every resource we know, so lookups hit all over the map.
+        _names = TaskCatalogue.resourceNames().toArray(String[]::new);
+        // What a "get me a full diamond kit" request boils down to.
+        _targets = new ItemTarget[]{
+                new ItemTarget("diamond_pickaxe", 1),
+                new ItemTarget("diamond_sword", 1),
+                new ItemTarget("log", 32),
+                new ItemTarget("planks", 64),
+                new ItemTarget("cobblestone", 64),
+                new ItemTarget("bed", 1)
+        };
+    }
+
+    private String nextName() {
+        return _names[_next++ % _names.length];
+    }
+
+    @Benchmark
+    public Item[] getItemMatches() {
+        return TaskCatalogue.getItemMatches(nextName());
+    }
+
+    @Benchmark
+    public Object getItemTaskByName() {
+        return TaskCatalogue.getItemTask(nextName(), 4);
+    }
+
+    @Benchmark
+    public Object getItemTaskByTarget() {
+        return TaskCatalogue.getItemTask(_targets[_next++ % _targets.length]);
+    }
+
+    @Benchmark
+    public void targetMatches(Blackhole blackhole) {
+        for (ItemTarget target : _targets) {
+            blackhole.consume(target.getMatches());
+        }
+    }
+
+    @Benchmark
+    public Item[] mergedTargetMatches() {
+        return ItemTarget.getMatches(_targets);
+    }
+}
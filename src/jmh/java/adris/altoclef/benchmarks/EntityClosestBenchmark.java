@@ -0,0 +1,97 @@
+package adris.altoclef.benchmarks;
+
+import adris.altoclef.trackers.entitytracking.EntityGrid;
+import adris.altoclef.trackers.entitytracking.EntityTypeIndex;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.ExperienceOrbEntity;
+import net.minecraft.entity.ItemEntity;
+import net.minecraft.entity.projectile.ArrowEntity;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.util.math.Vec3d;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The entity tracker's closest entity queries: the cell grid search it uses with many candidates,
+ * against the linear scan it uses with few, plus range queries.
+ *
+ * Builds the same grid and type index the tracker keeps, from entities that were never added to a world
+ * (they're only ever asked where they are and what they are here).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("rawtypes")
+public class EntityClosestBenchmark {
+
+    private static final Class[] ITEMS = new Class[]{ItemEntity.class};
+
+    @Param({"10", "200", "2000"})
+    public int entities;
+
+    private final EntityGrid _grid = new EntityGrid();
+    private final EntityTypeIndex _typeIndex = new EntityTypeIndex();
+    private Vec3d[] _origins;
+    private int _nextOrigin = 0;
+
+    @Setup
+    public void setup() {
+        Fixtures.bootstrapMinecraft();
+        Random random = new Random(Fixtures.SEED);
+        // Mostly item drops around a base, some xp and stray arrows.
+        for (int i = 0; i < entities; ++i) {
+            double x = random.nextGaussian() * 48,
+                    y = 64 + random.nextInt(8),
+                    z = random.nextGaussian() * 48;
+            Entity entity = switch (i % 4) {
+                case 0, 1 -> new ItemEntity(null, x, y, z, new ItemStack(i % 3 == 0 ? Items.COBBLESTONE : Items.OAK_LOG));
+                case 2 -> new ExperienceOrbEntity(null, x, y, z, 1);
+                default -> new ArrowEntity(null, x, y, z);
+            };
+            _grid.add(entity);
+            _typeIndex.add(entity);
+        }
+        _origins = Fixtures.randomOrigins(random, 64, 96);
+    }
+
+    private Vec3d nextOrigin() {
+        return _origins[_nextOrigin++ % _origins.length];
+    }
+
+    @Benchmark
+    public Entity gridClosest() {
+        Vec3d origin = nextOrigin();
+        return _grid.getClosest(origin, Double.POSITIVE_INFINITY,
+                entity -> entity.squaredDistanceTo(origin),
+                minRange -> minRange * minRange,
+                entity -> _typeIndex.isOfAnyType(entity, ITEMS) && entity.isAlive());
+    }
+
+    @Benchmark
+    public Entity linearClosest() {
+        Vec3d origin = nextOrigin();
+        Entity closest = null;
+        double minCost = Double.POSITIVE_INFINITY;
+        for (Entity entity : _typeIndex.get(ItemEntity.class)) {
+            if (!entity.isAlive()) continue;
+            double cost = entity.squaredDistanceTo(origin);
+            if (cost < minCost) {
+                minCost = cost;
+                closest = entity;
+            }
+        }
+        return closest;
+    }
+
+    @Benchmark
+    public void withinRange(Blackhole blackhole) {
+        _grid.forEachWithinRange(nextOrigin(), 16, blackhole::consume);
+    }
+}
@@ -0,0 +1,56 @@
+package adris.altoclef.benchmarks;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Random;
+
+/**
+ * Shared setup for benchmarks, so they run headless: no client, no world, no baritone.
+ */
+public class Fixtures {
+
+    // Same seed everywhere so runs are comparable.
+    public static final long SEED = 1337;
+
+    private static boolean _bootstrapped = false;
+
+    /**
+     * Fills in the vanilla registries (blocks, items, entity types) like a dedicated server would.
+     * Needed before touching anything in {@link net.minecraft.block.Blocks}, {@link net.minecraft.item.Items} or the catalogue.
+     */
+    public static synchronized void bootstrapMinecraft() {
+        if (_bootstrapped) return;
+        Bootstrap.initialize();
+        _bootstrapped = true;
+    }
+
+    /**
+     * Random packed block positions, spread `horizontalRange` blocks around the origin and across overworld heights.
+     */
+    public static long[] randomPackedPositions(Random random, int count, int horizontalRange) {
+        long[] result = new long[count];
+        for (int i = 0; i < count; ++i) {
+            int x = random.nextInt(horizontalRange * 2) - horizontalRange,
+                    y = random.nextInt(128) - 64,
+                    z = random.nextInt(horizontalRange * 2) - horizontalRange;
+            result[i] = BlockPos.asLong(x, y, z);
+        }
+        return result;
+    }
+
+    /**
+     * Random points to search from, so a benchmark doesn't keep hitting one lucky spot.
+     */
+    public static Vec3d[] randomOrigins(Random random, int count, int horizontalRange) {
+        Vec3d[] result = new Vec3d[count];
+        for (int i = 0; i < count; ++i) {
+            result[i] = new Vec3d(
+                    random.nextDouble() * horizontalRange * 2 - horizontalRange,
+                    random.nextDouble() * 64,
+                    random.nextDouble() * horizontalRange * 2 - horizontalRange);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package adris.altoclef.benchmarks;
+
+import adris.altoclef.util.baritone.CachedProjectile;
+import adris.altoclef.util.baritone.ProjectileBatch;
+import adris.altoclef.util.helpers.ProjectileHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulating a tick's worth of tracked projectiles: one lone arrow, a skeleton fight, and an arrow storm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectileBatchBenchmark {
+
+    // Flat stone floor at y = 60, with a water pool in the middle.
+    private static final ProjectileBatch.Terrain TERRAIN = new ProjectileBatch.Terrain() {
+        @Override
+        public boolean isSolid(int x, int y, int z) {
+            return y < 60 && !isWater(x, y, z);
+        }
+
+        @Override
+        public boolean isWater(int x, int y, int z) {
+            return y < 62 && y >= 56 && Math.abs(x) < 8 && Math.abs(z) < 8;
+        }
+    };
+
+    @Param({"1", "50", "500"})
+    public int projectiles;
+
+    private double[] _inputs;
+    private ProjectileBatch _batch;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1337);
+        _inputs = new double[projectiles * 6];
+        for (int i = 0; i < projectiles; ++i) {
+            // Fired from around us, aimed roughly at us.
+            double angle = random.nextDouble() * Math.PI * 2;
+            double distance = 5 + random.nextDouble() * 25;
+            double x = Math.cos(angle) * distance, z = Math.sin(angle) * distance;
+            double speed = 1.5 + random.nextDouble() * 1.5;
+            _inputs[i * 6] = x;
+            _inputs[i * 6 + 1] = 61.5 + random.nextDouble() * 4;
+            _inputs[i * 6 + 2] = z;
+            _inputs[i * 6 + 3] = -x / distance * speed;
+            _inputs[i * 6 + 4] = random.nextDouble() * 0.4;
+            _inputs[i * 6 + 5] = -z / distance * speed;
+        }
+        _batch = new ProjectileBatch(projectiles, CachedProjectile.TRAJECTORY_TICKS);
+        fill();
+        _batch.simulate(TERRAIN);
+    }
+
+    private void fill() {
+        _batch.clear();
+        for (int i = 0; i < projectiles; ++i) {
+            int o = i * 6;
+            _batch.add(_inputs[o], _inputs[o + 1], _inputs[o + 2], _inputs[o + 3], _inputs[o + 4], _inputs[o + 5],
+                    ProjectileHelper.ARROW_GRAVITY_ACCEL, ProjectileHelper.AIR_DRAG, ProjectileHelper.ARROW_WATER_DRAG);
+        }
+    }
+
+    @Benchmark
+    public void simulate(Blackhole blackhole) {
+        fill();
+        _batch.simulate(TERRAIN);
+        blackhole.consume(_batch.getImpactTick(projectiles - 1));
+    }
+
+    @Benchmark
+    public double closestApproach() {
+        double total = 0;
+        for (int i = 0; i < projectiles; ++i) {
+            total += _batch.getClosestApproachSq(i, 0.5, 61, 0.5);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,59 @@
+package adris.altoclef.benchmarks;
+
+import adris.altoclef.util.helpers.ProjectileHelper;
+import net.minecraft.util.math.Vec3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The closed form projectile math, per call: dodging (closest approach) and aiming (launch angles).
+ * For simulating tracked projectiles, see {@link ProjectileBatchBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectileHelperBenchmark {
+
+    private static final int SAMPLES = 1024;
+
+    private final Vec3d[] _origins = new Vec3d[SAMPLES];
+    private final Vec3d[] _velocities = new Vec3d[SAMPLES];
+    private final Vec3d[] _targets = new Vec3d[SAMPLES];
+    private int _next = 0;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(Fixtures.SEED);
+        for (int i = 0; i < SAMPLES; ++i) {
+            _origins[i] = new Vec3d(random.nextDouble() * 60 - 30, 64 + random.nextDouble() * 8, random.nextDouble() * 60 - 30);
+            _velocities[i] = new Vec3d(random.nextDouble() * 6 - 3, random.nextDouble() * 0.5, random.nextDouble() * 6 - 3);
+            _targets[i] = new Vec3d(random.nextDouble() * 4 - 2, 64, random.nextDouble() * 4 - 2);
+        }
+    }
+
+    @Benchmark
+    public double flatDistance() {
+        int i = _next++ & (SAMPLES - 1);
+        Vec3d origin = _origins[i], velocity = _velocities[i], target = _targets[i];
+        return ProjectileHelper.getFlatDistanceSqr(origin.x, origin.z, velocity.x, velocity.z, target.x, target.z);
+    }
+
+    @Benchmark
+    public Vec3d arrowClosestApproach() {
+        int i = _next++ & (SAMPLES - 1);
+        return ProjectileHelper.calculateArrowClosestApproach(_origins[i], _velocities[i], ProjectileHelper.ARROW_GRAVITY_ACCEL, _targets[i]);
+    }
+
+    @Benchmark
+    public double[] launchAngles() {
+        int i = _next++ & (SAMPLES - 1);
+        // Full power bow: Always enough velocity for these distances, so we never hit the "not enough velocity" log.
+        double distance = 5 + (i % 30);
+        return ProjectileHelper.calculateAnglesForSimpleProjectileMotion(_origins[i].y - 64, distance, 3, ProjectileHelper.ARROW_GRAVITY_ACCEL);
+    }
+}
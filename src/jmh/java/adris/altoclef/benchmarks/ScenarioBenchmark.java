@@ -0,0 +1,41 @@
+package adris.altoclef.benchmarks;
+
+import adris.altoclef.simulation.Scenario;
+import adris.altoclef.simulation.SimulationHarness;
+import adris.altoclef.tasksystem.TaskRunner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanner/projectile micro-scenarios played out in a simulated world, start to finish (see {@link SimulationHarness}
+ * for what does and doesn't run). Run with `-prof gc` for allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScenarioBenchmark {
+
+    private static final int MAX_TICKS = 20 * 60 * 10;
+
+    @Param({"mine_logs", "dodge_arrows"})
+    public String scenario;
+
+    private Scenario _scenario;
+    private TaskRunner _runner;
+
+    // Building the world takes longer than some scenarios, so it's left out.
+    @Setup(Level.Invocation)
+    public void setup() {
+        _scenario = Scenario.create(scenario);
+        _runner = SimulationHarness.prepare(_scenario);
+    }
+
+    @Benchmark
+    public SimulationHarness.Result run() {
+        return SimulationHarness.run(_scenario, _runner, MAX_TICKS);
+    }
+}
@@ -0,0 +1,48 @@
+package adris.altoclef.benchmarks;
+
+import adris.altoclef.butler.WhisperChecker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a chat message against each of the default whisper formats, like the butler does for every message it receives.
+ * Most chat isn't a whisper, so we measure both.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WhisperCheckerBenchmark {
+
+    private static final String US = "AltoClefBot";
+
+    // The defaults (see ButlerConfig), without reading or writing its config file.
+    private static final String[] FORMATS = new String[]{
+            "{from} whispers to you: {message}",
+            "{from} whispers: {message}",
+            "\\[{from} -> {to}\\] {message}"
+    };
+
+    @Param({"whisper", "chat"})
+    public String kind;
+
+    private String _message;
+
+    @Setup
+    public void setup() {
+        _message = kind.equals("whisper")
+                ? "SomePlayer whispers: get diamond_pickaxe 1"
+                : "<SomePlayer> does anyone have a spare diamond pickaxe I could borrow for a bit";
+    }
+
+    @Benchmark
+    public void tryParseAllFormats(Blackhole blackhole) {
+        for (String format : FORMATS) {
+            blackhole.consume(WhisperChecker.tryParse(US, format, _message));
+        }
+    }
+}
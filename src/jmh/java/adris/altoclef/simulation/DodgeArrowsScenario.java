@@ -0,0 +1,245 @@
+package adris.altoclef.simulation;
+
+import adris.altoclef.AltoClef;
+import adris.altoclef.tasksystem.Task;
+import adris.altoclef.tasksystem.TaskRunner;
+import adris.altoclef.util.baritone.CachedProjectile;
+import adris.altoclef.util.baritone.ProjectileBatch;
+import adris.altoclef.util.baritone.ProjectileDangerMap;
+import adris.altoclef.util.helpers.ProjectileHelper;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Skeletons all around take turns shooting at us, while we'd rather be standing still.
+ *
+ * Exercises the projectile code the entity tracker is built on: trajectories simulated in one {@link ProjectileBatch},
+ * then turned into a {@link ProjectileDangerMap}. The EntityTracker and MobDefenseChain themselves don't run,
+ * a stand in chain with the same keep-away distances takes over whenever we're in the way of an arrow.
+ */
+public class DodgeArrowsScenario extends Scenario {
+
+    public static final String NAME = "dodge_arrows";
+
+    private static final int SKELETONS = 8;
+    private static final double SKELETON_MIN_DISTANCE = 12, SKELETON_MAX_DISTANCE = 20;
+    private static final int TICKS_BETWEEN_SHOTS = 12;
+    private static final double ARROW_SPEED = 1.6;
+    // Same as the mob defense chain
+    private static final double KEEP_DISTANCE_HORIZONTAL = 2, KEEP_DISTANCE_VERTICAL = 10;
+
+    private final int _arrows;
+
+    private final List<Vec3d> _skeletons = new ArrayList<>();
+    private final List<Arrow> _flying = new ArrayList<>();
+    private final ProjectileBatch _batch = new ProjectileBatch(16, CachedProjectile.TRAJECTORY_TICKS);
+    private ProjectileDangerMap _dangerMap = ProjectileDangerMap.EMPTY;
+    private int _fired = 0;
+
+    public DodgeArrowsScenario(int arrows) {
+        _arrows = arrows;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void setup(TaskRunner runner) {
+        _world = SimulatedWorld.flat(3, 63);
+        _player = new SimulatedPlayer(_world, 0.5, 0.5);
+        Random random = new Random(1337);
+        for (int i = 0; i < SKELETONS; ++i) {
+            double angle = Math.PI * 2 * i / SKELETONS,
+                    distance = SKELETON_MIN_DISTANCE + random.nextDouble() * (SKELETON_MAX_DISTANCE - SKELETON_MIN_DISTANCE);
+            double x = Math.cos(angle) * distance, z = Math.sin(angle) * distance;
+            _skeletons.add(new Vec3d(x, _world.getTopY((int) Math.floor(x), (int) Math.floor(z)) + 1 + 1.5, z));
+        }
+        SimulatedTaskChain userChain = new SimulatedTaskChain(runner, "User Tasks", 50);
+        userChain.setTask(new StandStillTask());
+        SimulatedTaskChain defenseChain = new SimulatedTaskChain(runner, "Mob Defense", 100, this::isInDanger);
+        defenseChain.setTask(new DodgeTask(this));
+    }
+
+    @Override
+    public void tick(long tick) {
+        if (_fired < _arrows && tick % TICKS_BETWEEN_SHOTS == 0) {
+            shoot(_skeletons.get(_fired % _skeletons.size()));
+        }
+        // Move the world along
+        for (int i = _flying.size() - 1; i >= 0; --i) {
+            Arrow arrow = _flying.get(i);
+            if (!arrow.tick()) {
+                _flying.remove(i);
+            }
+        }
+
+        // Then catch up, the way the entity tracker's projectile pass does
+        long start = System.nanoTime();
+        List<CachedProjectile> projectiles = new ArrayList<>(_flying.size());
+        _batch.clear();
+        for (Arrow arrow : _flying) {
+            arrow.cached.update(arrow.position, arrow.velocity);
+            projectiles.add(arrow.cached);
+            if (arrow.cached.needsTrajectory()) {
+                arrow.cached.addTo(_batch);
+            }
+        }
+        if (_batch.size() != 0) {
+            _batch.simulate(_world);
+            int index = 0;
+            for (CachedProjectile projectile : projectiles) {
+                if (projectile.needsTrajectory()) {
+                    projectile.setTrajectory(_batch, index++);
+                }
+            }
+        }
+        _dangerMap = projectiles.isEmpty() ? ProjectileDangerMap.EMPTY : new ProjectileDangerMap(projectiles);
+        addScanTime(System.nanoTime() - start);
+    }
+
+    private void shoot(Vec3d from) {
+        Vec3d target = _player.getPos().add(0, 1, 0);
+        double dx = target.x - from.x, dz = target.z - from.z;
+        double distance = Math.sqrt(dx * dx + dz * dz);
+        // Lead the drop, ignoring drag. Skeletons aren't perfect shots either.
+        double ticks = distance / ARROW_SPEED;
+        double vy = (target.y - from.y + 0.5 * ProjectileHelper.ARROW_GRAVITY_ACCEL * ticks * ticks) / ticks;
+        _flying.add(new Arrow(_fired++, from, new Vec3d(dx / distance * ARROW_SPEED, vy, dz / distance * ARROW_SPEED)));
+    }
+
+    private boolean isInDanger() {
+        Vec3d pos = _player.getPos();
+        return _dangerMap.isInDanger(pos.x, pos.y, pos.z, KEEP_DISTANCE_HORIZONTAL, KEEP_DISTANCE_VERTICAL);
+    }
+
+    @Override
+    public boolean isDone() {
+        return _fired >= _arrows && _flying.isEmpty();
+    }
+
+    @Override
+    public String getOutcome() {
+        return "dodged " + (_fired - _player.getHits()) + "/" + _fired + " arrows";
+    }
+
+    private class Arrow {
+        public final CachedProjectile cached;
+        public Vec3d position, velocity;
+
+        public Arrow(int id, Vec3d position, Vec3d velocity) {
+            this.position = position;
+            this.velocity = velocity;
+            cached = new CachedProjectile(id);
+            cached.gravity = ProjectileHelper.ARROW_GRAVITY_ACCEL;
+            cached.drag = ProjectileHelper.AIR_DRAG;
+            cached.waterDrag = ProjectileHelper.ARROW_WATER_DRAG;
+        }
+
+        /**
+         * @return false once it hit something (or fell out of the world)
+         */
+        public boolean tick() {
+            Vec3d next = position.add(velocity);
+            // Check along the way, arrows move fast enough to skip right through us otherwise.
+            for (int step = 1; step <= 4; ++step) {
+                Vec3d check = position.lerp(next, step / 4.0);
+                if (_player.isInside(check.x, check.y, check.z)) {
+                    _player.hit();
+                    return false;
+                }
+                if (_world.isSolid((int) Math.floor(check.x), (int) Math.floor(check.y), (int) Math.floor(check.z))) {
+                    return false;
+                }
+            }
+            position = next;
+            velocity = velocity.multiply(ProjectileHelper.AIR_DRAG).subtract(0, ProjectileHelper.ARROW_GRAVITY_ACCEL, 0);
+            return position.y > 0;
+        }
+    }
+
+    private static class StandStillTask extends Task {
+        @Override
+        protected void onStart(AltoClef mod) {
+        }
+
+        @Override
+        protected Task onTick(AltoClef mod) {
+            setDebugState("Minding our own business");
+            return null;
+        }
+
+        @Override
+        protected void onStop(AltoClef mod, Task interruptTask) {
+        }
+
+        @Override
+        protected boolean isEqual(Task other) {
+            return other instanceof StandStillTask;
+        }
+
+        @Override
+        protected String toDebugString() {
+            return "Standing still";
+        }
+    }
+
+    private static class DodgeTask extends Task {
+        // Where we consider stepping to, around where we are.
+        private static final double STEP = 1.5;
+        private static final int DIRECTIONS = 8;
+
+        private final DodgeArrowsScenario _scenario;
+
+        public DodgeTask(DodgeArrowsScenario scenario) {
+            _scenario = scenario;
+        }
+
+        @Override
+        protected void onStart(AltoClef mod) {
+        }
+
+        @Override
+        protected Task onTick(AltoClef mod) {
+            SimulatedPlayer player = _scenario.getPlayer();
+            Vec3d pos = player.getPos();
+            // Step wherever's least in the way of arrows, same scoring as the dodge goal.
+            Vec3d best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < DIRECTIONS; ++i) {
+                double angle = Math.PI * 2 * i / DIRECTIONS;
+                Vec3d check = pos.add(Math.cos(angle) * STEP, 0, Math.sin(angle) * STEP);
+                if (!_scenario._dangerMap.isInDanger(check.x, check.y, check.z, KEEP_DISTANCE_HORIZONTAL, KEEP_DISTANCE_VERTICAL)) {
+                    best = check;
+                    break;
+                }
+                double score = _scenario._dangerMap.getDangerScore(check.x, check.y, check.z, KEEP_DISTANCE_HORIZONTAL, KEEP_DISTANCE_VERTICAL);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = check;
+                }
+            }
+            setDebugState("Dodging");
+            player.moveTowards(best, SimulatedPlayer.SPRINT_SPEED);
+            return null;
+        }
+
+        @Override
+        protected void onStop(AltoClef mod, Task interruptTask) {
+        }
+
+        @Override
+        protected boolean isEqual(Task other) {
+            return other instanceof DodgeTask;
+        }
+
+        @Override
+        protected String toDebugString() {
+            return "Dodging projectiles";
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package adris.altoclef.simulation;
+
+import adris.altoclef.AltoClef;
+import adris.altoclef.tasksystem.Task;
+import adris.altoclef.tasksystem.TaskRunner;
+import adris.altoclef.trackers.blocktracking.ChunkBucketIndex;
+import adris.altoclef.trackers.blocktracking.ParallelChunkScanner;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.minecraft.item.Item;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.*;
+
+/**
+ * "Get me 64 logs" in a forest: find the nearest log, walk up to it, break it, repeat.
+ *
+ * Exercises the block tracker's scanner and index ({@link ParallelChunkScanner}, {@link ChunkBucketIndex}) directly:
+ * chunks get scanned as we come within range of them. The BlockTracker itself doesn't run.
+ */
+public class MineLogsScenario extends Scenario {
+
+    public static final String NAME = "mine_logs";
+
+    private static final Block[] LOGS = new Block[]{Blocks.OAK_LOG, Blocks.BIRCH_LOG};
+    private static final Set<Block> LOG_SET = Set.of(LOGS);
+    private static final Item[] LOG_ITEMS = Arrays.stream(LOGS).map(Block::asItem).toArray(Item[]::new);
+
+    private static final int WORLD_RADIUS_CHUNKS = 8;
+    private static final int TREES = 120;
+    // Scan chunks once we're this close (in chunks) to them
+    private static final int SCAN_RADIUS_CHUNKS = 4;
+    // Breaking a log by hand
+    private static final int BREAK_TICKS = 60;
+
+    private final int _target;
+
+    private final ParallelChunkScanner _scanner = new ParallelChunkScanner();
+    private final LongOpenHashSet _scannedChunks = new LongOpenHashSet();
+    private final Map<Block, ChunkBucketIndex> _logIndex = new HashMap<>();
+    private int _logsPlaced;
+
+    public MineLogsScenario(int target) {
+        _target = target;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void setup(TaskRunner runner) {
+        _world = SimulatedWorld.flat(WORLD_RADIUS_CHUNKS, 63);
+        _logsPlaced = _world.addTrees(new Random(1337), TREES, WORLD_RADIUS_CHUNKS * 16 - 4, LOGS);
+        _player = new SimulatedPlayer(_world, 0.5, 0.5);
+        for (Block log : LOGS) {
+            _logIndex.put(log, new ChunkBucketIndex());
+        }
+        SimulatedTaskChain userChain = new SimulatedTaskChain(runner, "User Tasks", 50);
+        userChain.setTask(new CollectLogsTask(this, _target));
+    }
+
+    @Override
+    public void tick(long tick) {
+        long start = System.nanoTime();
+        int centerX = (int) Math.floor(_player.getPos().x) >> 4,
+                centerZ = (int) Math.floor(_player.getPos().z) >> 4;
+        List<ChunkPos> newChunks = new ArrayList<>();
+        for (int x = centerX - SCAN_RADIUS_CHUNKS; x <= centerX + SCAN_RADIUS_CHUNKS; ++x) {
+            for (int z = centerZ - SCAN_RADIUS_CHUNKS; z <= centerZ + SCAN_RADIUS_CHUNKS; ++z) {
+                if (_world.isLoaded(x, z) && _scannedChunks.add(ChunkPos.toLong(x, z))) {
+                    newChunks.add(new ChunkPos(x, z));
+                }
+            }
+        }
+        if (!newChunks.isEmpty()) {
+            for (Map.Entry<Block, LongArrayList> found : _scanner.scan(_world, newChunks, LOG_SET, 1).entrySet()) {
+                ChunkBucketIndex index = _logIndex.get(found.getKey());
+                LongArrayList positions = found.getValue();
+                for (int i = 0; i < positions.size(); ++i) {
+                    index.add(positions.getLong(i));
+                }
+            }
+        }
+        addScanTime(System.nanoTime() - start);
+    }
+
+    @Override
+    public boolean isDone() {
+        return _player.getItemCount(LOG_ITEMS) >= _target;
+    }
+
+    @Override
+    public String getOutcome() {
+        return _player.getItemCount(LOG_ITEMS) + "/" + _target + " logs (" + _logsPlaced + " in the world), scanned " + _scannedChunks.size() + " chunks";
+    }
+
+    private Optional<BlockPos> getNearestLog() {
+        Vec3d origin = _player.getPos();
+        return ChunkBucketIndex.getNearest(_logIndex.values(), origin,
+                (x, y, z) -> origin.squaredDistanceTo(x + 0.5, y + 0.5, z + 0.5),
+                range -> range * range,
+                pos -> LOG_SET.contains(_world.getBlock(pos.getX(), pos.getY(), pos.getZ()).getBlock()));
+    }
+
+    private void breakBlock(BlockPos pos) {
+        Block block = _world.getBlock(pos.getX(), pos.getY(), pos.getZ()).getBlock();
+        _world.removeBlock(pos.getX(), pos.getY(), pos.getZ());
+        ChunkBucketIndex index = _logIndex.get(block);
+        if (index != null) {
+            index.remove(pos);
+            _player.addItem(block.asItem(), 1);
+        }
+    }
+
+    private static class CollectLogsTask extends Task {
+        private final MineLogsScenario _scenario;
+        private final int _count;
+
+        public CollectLogsTask(MineLogsScenario scenario, int count) {
+            _scenario = scenario;
+            _count = count;
+        }
+
+        @Override
+        protected void onStart(AltoClef mod) {
+        }
+
+        @Override
+        protected Task onTick(AltoClef mod) {
+            Optional<BlockPos> nearest = _scenario.getNearestLog();
+            if (nearest.isEmpty()) {
+                setDebugState("No logs found");
+                return null;
+            }
+            setDebugState("Collecting logs");
+            return new MineBlockTask(_scenario, nearest.get());
+        }
+
+        @Override
+        protected void onStop(AltoClef mod, Task interruptTask) {
+        }
+
+        @Override
+        public boolean isFinished(AltoClef mod) {
+            return _scenario.isDone();
+        }
+
+        @Override
+        protected boolean isEqual(Task other) {
+            return other instanceof CollectLogsTask task && task._count == _count;
+        }
+
+        @Override
+        protected String toDebugString() {
+            return "Collect " + _count + " logs";
+        }
+    }
+
+    private static class MineBlockTask extends Task {
+        private final MineLogsScenario _scenario;
+        private final BlockPos _pos;
+        private int _progress = 0;
+
+        public MineBlockTask(MineLogsScenario scenario, BlockPos pos) {
+            _scenario = scenario;
+            _pos = pos;
+        }
+
+        @Override
+        protected void onStart(AltoClef mod) {
+            _progress = 0;
+        }
+
+        @Override
+        protected Task onTick(AltoClef mod) {
+            SimulatedPlayer player = _scenario.getPlayer();
+            if (!player.canReach(_pos)) {
+                _progress = 0;
+                player.moveTowards(Vec3d.ofBottomCenter(_pos), SimulatedPlayer.WALK_SPEED);
+                return null;
+            }
+            if (++_progress >= BREAK_TICKS) {
+                _scenario.breakBlock(_pos);
+            }
+            return null;
+        }
+
+        @Override
+        protected void onStop(AltoClef mod, Task interruptTask) {
+        }
+
+        @Override
+        public boolean isFinished(AltoClef mod) {
+            return _scenario.getWorld().getBlock(_pos.getX(), _pos.getY(), _pos.getZ()).isAir();
+        }
+
+        @Override
+        protected boolean isEqual(Task other) {
+            return other instanceof MineBlockTask task && task._pos.equals(_pos);
+        }
+
+        @Override
+        protected String toDebugString() {
+            return "Mine " + _pos.toShortString();
+        }
+    }
+}
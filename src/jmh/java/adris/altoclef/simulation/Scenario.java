@@ -0,0 +1,61 @@
+package adris.altoclef.simulation;
+
+import adris.altoclef.tasksystem.TaskRunner;
+
+/**
+ * Something to play out in a {@link SimulatedWorld}, tick by tick, with the task system driving the player.
+ *
+ * Every tick the harness first calls {@link #tick(long)} (the world moves, then the scenario's own stand in for
+ * the trackers catches up), then ticks the task runner, in the same order the client does.
+ */
+public abstract class Scenario {
+
+    protected SimulatedWorld _world;
+    protected SimulatedPlayer _player;
+
+    // What the scenario's scanning (or projectile simulation) cost us, separate from the tasks.
+    private long _scanNanos = 0;
+
+    public abstract String getName();
+
+    /**
+     * Build the world and add this scenario's chains to the runner.
+     */
+    public abstract void setup(TaskRunner runner);
+
+    /**
+     * Move the world along one tick and update whatever our tasks read from it.
+     */
+    public abstract void tick(long tick);
+
+    public abstract boolean isDone();
+
+    /**
+     * @return How it went, in a few words.
+     */
+    public abstract String getOutcome();
+
+    public SimulatedWorld getWorld() {
+        return _world;
+    }
+
+    public SimulatedPlayer getPlayer() {
+        return _player;
+    }
+
+    protected void addScanTime(long nanos) {
+        _scanNanos += nanos;
+    }
+
+    public long getScanNanos() {
+        return _scanNanos;
+    }
+
+    public static Scenario create(String name) {
+        return switch (name) {
+            case MineLogsScenario.NAME -> new MineLogsScenario(64);
+            case DodgeArrowsScenario.NAME -> new DodgeArrowsScenario(20);
+            default -> throw new IllegalArgumentException("Unknown scenario \"" + name + "\", expected " + MineLogsScenario.NAME + " or " + DodgeArrowsScenario.NAME);
+        };
+    }
+}
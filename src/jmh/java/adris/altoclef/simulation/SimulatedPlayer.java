@@ -0,0 +1,88 @@
+package adris.altoclef.simulation;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.item.Item;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * Our player in a {@link SimulatedWorld}: where it stands, what it holds, and how often it got hit.
+ *
+ * Walks along the surface (no pathing, no collisions), which is plenty to drive tasks around.
+ */
+public class SimulatedPlayer {
+
+    // Blocks per tick
+    public static final double WALK_SPEED = 4.317 / 20;
+    public static final double SPRINT_SPEED = 5.612 / 20;
+    public static final double REACH = 4.5;
+    // Hitbox
+    public static final double WIDTH = 0.6, HEIGHT = 1.8;
+
+    private final SimulatedWorld _world;
+    private Vec3d _pos;
+    private final Object2IntOpenHashMap<Item> _inventory = new Object2IntOpenHashMap<>();
+    private int _hits = 0;
+
+    public SimulatedPlayer(SimulatedWorld world, double x, double z) {
+        _world = world;
+        _pos = onSurface(x, z);
+    }
+
+    private Vec3d onSurface(double x, double z) {
+        return new Vec3d(x, _world.getTopY((int) Math.floor(x), (int) Math.floor(z)) + 1, z);
+    }
+
+    public Vec3d getPos() {
+        return _pos;
+    }
+
+    public Vec3d getEyePos() {
+        return _pos.add(0, 1.62, 0);
+    }
+
+    /**
+     * Walks (horizontally) up to `speed` blocks towards a target, stepping up or down onto whatever it ends up on.
+     *
+     * @return Whether we got there.
+     */
+    public boolean moveTowards(Vec3d target, double speed) {
+        double dx = target.x - _pos.x,
+                dz = target.z - _pos.z;
+        double distance = Math.sqrt(dx * dx + dz * dz);
+        if (distance <= speed) {
+            _pos = onSurface(target.x, target.z);
+            return true;
+        }
+        _pos = onSurface(_pos.x + dx / distance * speed, _pos.z + dz / distance * speed);
+        return false;
+    }
+
+    public boolean canReach(BlockPos pos) {
+        return getEyePos().squaredDistanceTo(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5) <= REACH * REACH;
+    }
+
+    public boolean isInside(double x, double y, double z) {
+        return Math.abs(x - _pos.x) <= WIDTH / 2 && Math.abs(z - _pos.z) <= WIDTH / 2 && y >= _pos.y && y <= _pos.y + HEIGHT;
+    }
+
+    public void addItem(Item item, int count) {
+        _inventory.addTo(item, count);
+    }
+
+    public int getItemCount(Item... items) {
+        int count = 0;
+        for (Item item : items) {
+            count += _inventory.getInt(item);
+        }
+        return count;
+    }
+
+    public void hit() {
+        _hits++;
+    }
+
+    public int getHits() {
+        return _hits;
+    }
+}
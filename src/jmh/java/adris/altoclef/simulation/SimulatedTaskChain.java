@@ -0,0 +1,43 @@
+package adris.altoclef.simulation;
+
+import adris.altoclef.AltoClef;
+import adris.altoclef.chains.SingleTaskChain;
+import adris.altoclef.tasksystem.TaskRunner;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs one task at a fixed priority, like the user task chain (or a defense chain, while `shouldRun` says so).
+ */
+public class SimulatedTaskChain extends SingleTaskChain {
+
+    private final String _name;
+    private final float _priority;
+    private final BooleanSupplier _shouldRun;
+
+    public SimulatedTaskChain(TaskRunner runner, String name, float priority, BooleanSupplier shouldRun) {
+        super(runner);
+        _name = name;
+        _priority = priority;
+        _shouldRun = shouldRun;
+    }
+
+    public SimulatedTaskChain(TaskRunner runner, String name, float priority) {
+        this(runner, name, priority, () -> true);
+    }
+
+    @Override
+    public float getPriority(AltoClef mod) {
+        return _shouldRun.getAsBoolean() ? _priority : Float.NEGATIVE_INFINITY;
+    }
+
+    @Override
+    protected void onTaskFinish(AltoClef mod) {
+        _mainTask = null;
+    }
+
+    @Override
+    public String getName() {
+        return _name;
+    }
+}
@@ -0,0 +1,151 @@
+package adris.altoclef.simulation;
+
+import adris.altoclef.trackers.blocktracking.ChunkSectionSource;
+import adris.altoclef.util.baritone.ProjectileBatch;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An in memory world: just chunk sections, no client, no server, no lighting or ticking.
+ *
+ * Hands its chunks to scanners the same way the client's world does (see {@link ChunkSectionSource})
+ * and its blocks to projectile simulation (see {@link ProjectileBatch.Terrain}).
+ */
+public class SimulatedWorld implements ChunkSectionSource, ProjectileBatch.Terrain {
+
+    // y = 0 to 255, like a 1.17 overworld
+    public static final int SECTIONS = 16;
+    public static final int HEIGHT = SECTIONS * 16;
+
+    private static final BlockState AIR = Blocks.AIR.getDefaultState();
+
+    private final Long2ObjectOpenHashMap<ChunkSection[]> _chunks = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Flat ground: Stone, then dirt, with grass on top at `groundY`. Every chunk within `radiusChunks` of the origin is loaded.
+     */
+    public static SimulatedWorld flat(int radiusChunks, int groundY) {
+        SimulatedWorld world = new SimulatedWorld();
+        BlockState stone = Blocks.STONE.getDefaultState(),
+                dirt = Blocks.DIRT.getDefaultState(),
+                grass = Blocks.GRASS_BLOCK.getDefaultState();
+        int min = -radiusChunks * 16, max = radiusChunks * 16 + 15;
+        for (int x = min; x <= max; ++x) {
+            for (int z = min; z <= max; ++z) {
+                for (int y = 0; y < groundY; ++y) {
+                    world.setBlock(x, y, z, y < groundY - 3 ? stone : dirt);
+                }
+                world.setBlock(x, groundY, z, grass);
+            }
+        }
+        return world;
+    }
+
+    /**
+     * Plants simple trees (a trunk with a blob of leaves on top) on the surface, `spread` blocks around the origin.
+     *
+     * @return How many log blocks were placed.
+     */
+    public int addTrees(Random random, int trees, int spread, Block... logs) {
+        BlockState leaves = Blocks.OAK_LEAVES.getDefaultState();
+        int placed = 0;
+        for (int i = 0; i < trees; ++i) {
+            int x = random.nextInt(spread * 2) - spread,
+                    z = random.nextInt(spread * 2) - spread;
+            int ground = getTopY(x, z);
+            // Don't grow into another tree
+            if (ground < 0 || getBlock(x, ground, z).getBlock() != Blocks.GRASS_BLOCK) continue;
+            BlockState log = logs[random.nextInt(logs.length)].getDefaultState();
+            int height = 4 + random.nextInt(3);
+            int top = ground + height;
+            for (int y = top - 1; y <= top + 1; ++y) {
+                for (int dx = -2; dx <= 2; ++dx) {
+                    for (int dz = -2; dz <= 2; ++dz) {
+                        if (y == top + 1 && Math.abs(dx) + Math.abs(dz) > 1) continue;
+                        if (getBlock(x + dx, y, z + dz).isAir()) {
+                            setBlock(x + dx, y, z + dz, leaves);
+                        }
+                    }
+                }
+            }
+            for (int y = ground + 1; y <= top; ++y) {
+                setBlock(x, y, z, log);
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    public void setBlock(int x, int y, int z, BlockState state) {
+        if (y < 0 || y >= HEIGHT) return;
+        ChunkSection[] sections = _chunks.computeIfAbsent(ChunkPos.toLong(x >> 4, z >> 4), key -> new ChunkSection[SECTIONS]);
+        int index = y >> 4;
+        if (sections[index] == null) {
+            if (state.isAir()) return;
+            sections[index] = new ChunkSection(index << 4);
+        }
+        sections[index].setBlockState(x & 15, y & 15, z & 15, state);
+    }
+
+    public void removeBlock(int x, int y, int z) {
+        setBlock(x, y, z, AIR);
+    }
+
+    public BlockState getBlock(int x, int y, int z) {
+        if (y < 0 || y >= HEIGHT) return AIR;
+        ChunkSection[] sections = _chunks.get(ChunkPos.toLong(x >> 4, z >> 4));
+        if (sections == null) return AIR;
+        ChunkSection section = sections[y >> 4];
+        if (section == null) return AIR;
+        return section.getBlockState(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * @return The highest non air block in a column, or -1 if there is none.
+     */
+    public int getTopY(int x, int z) {
+        for (int y = HEIGHT - 1; y >= 0; --y) {
+            if (!getBlock(x, y, z).isAir()) return y;
+        }
+        return -1;
+    }
+
+    /**
+     * @return Whether the chunk has anything in it, like a loaded client chunk would.
+     */
+    public boolean isLoaded(int chunkX, int chunkZ) {
+        return _chunks.containsKey(ChunkPos.toLong(chunkX, chunkZ));
+    }
+
+    public List<ChunkPos> getLoadedChunks() {
+        List<ChunkPos> result = new ArrayList<>(_chunks.size());
+        for (long key : _chunks.keySet()) {
+            result.add(new ChunkPos(key));
+        }
+        return result;
+    }
+
+    @Override
+    public ChunkSection[] getSections(int chunkX, int chunkZ) {
+        return _chunks.get(ChunkPos.toLong(chunkX, chunkZ));
+    }
+
+    @Override
+    public boolean isSolid(int x, int y, int z) {
+        BlockState state = getBlock(x, y, z);
+        return !state.isAir() && !state.isOf(Blocks.WATER);
+    }
+
+    @Override
+    public boolean isWater(int x, int y, int z) {
+        return getBlock(x, y, z).isOf(Blocks.WATER);
+    }
+}
@@ -0,0 +1,130 @@
+package adris.altoclef.simulation;
+
+import adris.altoclef.benchmarks.Fixtures;
+import adris.altoclef.tasksystem.TaskProfiler;
+import adris.altoclef.tasksystem.TaskRunner;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plays out scanner/projectile micro-scenarios against a {@link SimulatedWorld}, no client needed.
+ *
+ * The real {@link TaskRunner} and task machinery run here, but the chains are {@link SimulatedTaskChain}s and each
+ * scenario does its own tracking with the same scanner, index and projectile code the trackers use.
+ * The real chains and trackers (BlockTracker, EntityTracker, MobDefenseChain...) read the client directly, so they don't run.
+ *
+ * Usage: `gradlew simulate -PsimulateArgs="[--ticks N] [--profile] [scenario...]"`.
+ * Runs every scenario by default, and prints ticks per second, allocations per tick and what the scanning cost.
+ * With `--profile`, also writes per task flame graphs (see {@link TaskProfiler}) under `altoclef/profiles`.
+ */
+public class SimulationHarness {
+
+    private static final int DEFAULT_MAX_TICKS = 20 * 60 * 10;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN =
+            ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported() ? bean : null;
+
+    public static class Result {
+        public String scenario;
+        public String outcome;
+        public boolean finished;
+        public long ticks;
+        public long nanos;
+        public long scanNanos;
+        // -1 if this JVM can't tell us
+        public long allocatedBytes;
+
+        public double getTicksPerSecond() {
+            return ticks / (nanos / 1_000_000_000.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s after %d ticks%s. %.0f ticks/s, scanning %.2fms total (%.1f%%), %s",
+                    scenario, outcome, ticks, finished ? "" : " (ran out of ticks)",
+                    getTicksPerSecond(), scanNanos / 1_000_000.0, 100.0 * scanNanos / nanos,
+                    allocatedBytes >= 0 ? (allocatedBytes / Math.max(ticks, 1)) + "B/tick allocated" : "allocations unknown");
+        }
+    }
+
+    /**
+     * Builds a scenario's world and chains, ready to {@link #run(Scenario, TaskRunner, int)}.
+     */
+    public static TaskRunner prepare(Scenario scenario) {
+        Fixtures.bootstrapMinecraft();
+        TaskRunner runner = new TaskRunner(null);
+        scenario.setup(runner);
+        runner.enable();
+        return runner;
+    }
+
+    public static Result run(Scenario scenario, int maxTicks) {
+        return run(scenario, prepare(scenario), maxTicks);
+    }
+
+    /**
+     * Plays out a prepared scenario until it's done, or `maxTicks` ticks pass. Setting up isn't measured.
+     */
+    public static Result run(Scenario scenario, TaskRunner runner, int maxTicks) {
+        long startBytes = allocatedBytes();
+        long start = System.nanoTime();
+        long tick = 0;
+        while (tick < maxTicks && !scenario.isDone()) {
+            scenario.tick(tick);
+            runner.tick();
+            tick++;
+        }
+        Result result = new Result();
+        result.nanos = System.nanoTime() - start;
+        result.allocatedBytes = THREAD_BEAN != null ? allocatedBytes() - startBytes : -1;
+        result.scenario = scenario.getName();
+        result.outcome = scenario.getOutcome();
+        result.finished = scenario.isDone();
+        result.ticks = tick;
+        result.scanNanos = scenario.getScanNanos();
+        return result;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int maxTicks = DEFAULT_MAX_TICKS;
+        boolean profile = false;
+        List<String> scenarios = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "--ticks" -> maxTicks = Integer.parseInt(args[++i]);
+                case "--profile" -> profile = true;
+                default -> scenarios.add(args[i]);
+            }
+        }
+        if (scenarios.isEmpty()) {
+            scenarios.add(MineLogsScenario.NAME);
+            scenarios.add(DodgeArrowsScenario.NAME);
+        }
+
+        boolean failed = false;
+        for (String name : scenarios) {
+            if (profile) TaskProfiler.start();
+            Result result = run(Scenario.create(name), maxTicks);
+            System.out.println(result);
+            failed |= !result.finished;
+            if (profile) {
+                TaskProfiler.stop();
+                Path timeFile = Paths.get("altoclef/profiles", "simulation-" + name + ".folded");
+                for (String line : TaskProfiler.dump(timeFile, Paths.get("altoclef/profiles", "simulation-" + name + "-alloc.folded"))) {
+                    System.out.println("    " + line);
+                }
+            }
+        }
+        // So CI notices when a scenario stops finishing.
+        if (failed) System.exit(1);
+    }
+}
@@ -0,0 +1,97 @@
+package adris.altoclef.trackers;
+
+import adris.altoclef.benchmarks.Fixtures;
+import adris.altoclef.trackers.blocktracking.ChunkBucketIndex;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The block tracker's cache: filling it up with scan results, finding the nearest of a few block types, and purging it back down to size.
+ *
+ * Lives in the tracker package since {@link BlockTracker.PosCache} isn't public.
+ * Nearest uses plain squared distance as the score. The real thing uses baritone's heuristic, which needs baritone's settings loaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PosCacheBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int blocks;
+
+    private Block[] _types;
+    private long[] _positions;
+    private Vec3d[] _origins;
+    private int _nextOrigin = 0;
+
+    private BlockTracker.PosCache _filled;
+    // What purge gets to chew through, fresh every invocation.
+    private BlockTracker.PosCache _toPurge;
+    private Long2LongOpenHashMap _lastAccess;
+    private Set<Block> _tracking;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Fixtures.bootstrapMinecraft();
+        // Common ores are most of what gets tracked, diamonds are what gets asked for.
+        _types = new Block[]{Blocks.STONE, Blocks.COAL_ORE, Blocks.IRON_ORE, Blocks.DIAMOND_ORE};
+        Random random = new Random(Fixtures.SEED);
+        _positions = Fixtures.randomPackedPositions(random, blocks, 512);
+        _origins = Fixtures.randomOrigins(random, 64, 512);
+        _filled = fill();
+
+        _tracking = Set.of(Blocks.IRON_ORE, Blocks.DIAMOND_ORE);
+        // A tenth of them were handed out recently.
+        _lastAccess = new Long2LongOpenHashMap();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < blocks; i += 10) {
+            _lastAccess.put(_positions[i], now - random.nextInt(120_000));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupPurge() {
+        _toPurge = _filled.copy();
+    }
+
+    private BlockTracker.PosCache fill() {
+        BlockTracker.PosCache cache = new BlockTracker.PosCache();
+        for (int i = 0; i < _positions.length; ++i) {
+            cache.add(_types[i % _types.length], _positions[i]);
+        }
+        return cache;
+    }
+
+    @Benchmark
+    public BlockTracker.PosCache add() {
+        return fill();
+    }
+
+    @Benchmark
+    public Optional<BlockPos> nearest() {
+        Vec3d origin = _origins[_nextOrigin++ % _origins.length];
+        List<ChunkBucketIndex> indices = List.of(_filled.getIndex(Blocks.IRON_ORE), _filled.getIndex(Blocks.DIAMOND_ORE));
+        return ChunkBucketIndex.getNearest(indices, origin,
+                (x, y, z) -> origin.squaredDistanceTo(x + 0.5, y + 0.5, z + 0.5),
+                range -> range * range,
+                pos -> true);
+    }
+
+    @Benchmark
+    public BlockTracker.PosCache.PurgeResult purge() {
+        return _toPurge.smartPurge(Vec3d.ZERO, _tracking, _lastAccess, System.currentTimeMillis());
+    }
+}
@@ -14,6 +14,7 @@ import adris.altoclef.trackers.storage.ItemStorageTracker;
 import adris.altoclef.ui.CommandStatusOverlay;
 import adris.altoclef.ui.MessagePriority;
 import adris.altoclef.ui.MessageSender;
+import adris.altoclef.util.TickScheduler;
 import adris.altoclef.util.csharpisbetter.Action;
 import adris.altoclef.util.csharpisbetter.ActionListener;
 import adris.altoclef.util.helpers.InputHelper;
@@ -80,6 +81,9 @@ public class AltoClef implements ModInitializer {
     private SlotHandler _slotHandler;
     // Butler
     private Butler _butler;
+    // Work that can wait a tick or two if we're running late
+    private final TickScheduler _tickScheduler = new TickScheduler();
+    private TickScheduler.Job _blockTrackerJob, _messageSenderJob, _butlerJob, _overlayJob;
 
     // Are we in game (playing in a server/world)
     public static boolean inGame() {
@@ -134,6 +138,12 @@ public class AltoClef implements ModInitializer {
 
         _butler = new Butler(this);
 
+        // Deferrable work, run after the task runner as time allows.
+        _blockTrackerJob = new TickScheduler.Job("Block tracker upkeep", TickScheduler.Priority.NORMAL, _blockTracker::postTickUpkeep);
+        _messageSenderJob = new TickScheduler.Job("Message sender", TickScheduler.Priority.NORMAL, _messageSender::tick);
+        _butlerJob = new TickScheduler.Job("Butler", TickScheduler.Priority.LOW, _butler::tick);
+        _overlayJob = new TickScheduler.Job("Task overlay", TickScheduler.Priority.LOW, () -> _commandStatusOverlay.update(this));
+
         // Misc wiring
         // When we place a block and might be tracking it, make the change immediate.
         _extraController.onBlockPlaced.addListener(new ActionListener<>(value ->
@@ -163,6 +173,7 @@ public class AltoClef implements ModInitializer {
 
     // Client tick
     public void onClientTick() {
+        _tickScheduler.startTick();
         runEnqueuedPostInits();
 
         _inputControls.onTickPre();
@@ -175,18 +186,24 @@ public class AltoClef implements ModInitializer {
             }
         }
 
+        // Critical: Always runs, in order.
         // TODO: should this go here?
         _storageTracker.setDirty();
         _containerSubTracker.onServerTick();
+        // Cheap, and we may walk out of a portal before a deferred check would see it.
         _miscBlockTracker.tick();
 
         _trackerManager.tick();
-        _blockTracker.preTickTask();
         _taskRunner.tick();
+        // Kicks off scans and runs the scan schedule's clock, so it can't wait.
         _blockTracker.postTickTask();
 
-        _butler.tick();
-        _messageSender.tick();
+        // Everything else waits its turn if we're over budget.
+        _tickScheduler.schedule(_blockTrackerJob);
+        _tickScheduler.schedule(_messageSenderJob);
+        _tickScheduler.schedule(_butlerJob);
+        _tickScheduler.schedule(_overlayJob);
+        _tickScheduler.endTick();
 
         _inputControls.onTickPost();
     }
@@ -197,11 +214,13 @@ public class AltoClef implements ModInitializer {
 
     public void onChunkLoad(WorldChunk chunk) {
         _chunkTracker.onLoad(chunk.getPos());
+        _blockTracker.onChunkLoad(chunk.getPos());
         _onChunkLoad.invoke(chunk);
     }
 
     public void onChunkUnload(ChunkPos chunkPos) {
         _chunkTracker.onUnload(chunkPos);
+        _blockTracker.onChunkUnload(chunkPos);
     }
 
     /// GETTERS AND SETTERS
@@ -263,6 +282,20 @@ public class AltoClef implements ModInitializer {
         return _taskRunner;
     }
 
+    /**
+     * Runs deferrable work within each tick's time budget
+     */
+    public TickScheduler getTickScheduler() {
+        return _tickScheduler;
+    }
+
+    /**
+     * How well we've been keeping to our tick budget, and what each deferred job costs.
+     */
+    public List<String> getTickSchedulerStats() {
+        return _tickScheduler.getStats(_blockTrackerJob, _messageSenderJob, _butlerJob, _overlayJob);
+    }
+
     /**
      * The user task chain (runs your command. Ex. Get Diamonds, Beat the Game)
      */
@@ -29,7 +29,8 @@ public class AltoClefCommands {
                 new GamerCommand(),
                 new PunkCommand(),
                 new SetGammaCommand(),
-                new ListCommand()
+                new ListCommand(),
+                new ProfileCommand()
                 //new TestMoveInventoryCommand(),
                 //    new TestSwapInventoryCommand()
         );
@@ -75,6 +75,10 @@ public class StaticMixinHookups {
         _mod.getControllerExtras().onBlockPlaced(pos, state);
     }
 
+    public static void onBlockChanged(BlockPos pos, BlockState oldState, BlockState newState) {
+        _mod.getBlockTracker().onBlockChanged(pos, oldState, newState);
+    }
+
     public static void onScreenOpenBegin(Screen screen) {
         if (screen == null) {
             _mod.getContainerSubTracker().onScreenClose();
@@ -121,4 +125,12 @@ public class StaticMixinHookups {
     public static void onPlayerCollidedWithEntity(PlayerEntity player, Entity entity) {
         _mod.getEntityTracker().registerPlayerCollision(player, entity);
     }
+
+    public static void onEntityAdded(Entity entity) {
+        _mod.getEntityTracker().onEntityAdded(entity);
+    }
+
+    public static void onEntityRemoved(Entity entity) {
+        _mod.getEntityTracker().onEntityRemoved(entity);
+    }
 }
@@ -3,6 +3,7 @@ package adris.altoclef.chains;
 import adris.altoclef.AltoClef;
 import adris.altoclef.Settings;
 import adris.altoclef.tasks.resources.CollectFoodTask;
+import adris.altoclef.tasksystem.PriorityInput;
 import adris.altoclef.tasksystem.TaskRunner;
 import adris.altoclef.util.helpers.ConfigHelper;
 import adris.altoclef.util.helpers.ItemHelper;
@@ -17,6 +18,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.item.Items;
 import net.minecraft.util.Pair;
 
+import java.util.EnumSet;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -28,6 +30,8 @@ public class FoodChain extends SingleTaskChain {
         ConfigHelper.loadConfig("configs/food_chain_settings.json", FoodChainConfig::new, FoodChainConfig.class, newConfig -> _config = newConfig);
     }
 
+    private static final EnumSet<PriorityInput> PRIORITY_INPUTS = EnumSet.of(PriorityInput.PLAYER, PriorityInput.INVENTORY, PriorityInput.SETTINGS);
+
     private boolean _isTryingToEat = false;
     private boolean _requestFillup = false;
     private boolean _needsFood = false;
@@ -39,6 +43,23 @@ public class FoodChain extends SingleTaskChain {
         super(runner);
     }
 
+    @Override
+    public EnumSet<PriorityInput> getPriorityInputs() {
+        return PRIORITY_INPUTS;
+    }
+
+    @Override
+    protected long getPriorityState(AltoClef mod) {
+        // We hold off eating while either of these are busy.
+        return (mod.getMobDefenseChain().isDoingAcrobatics() ? 1 : 0) | (mod.getMLGBucketChain().isFallingOhNo(mod) ? 2 : 0);
+    }
+
+    @Override
+    public int getMaxPriorityStaleness() {
+        // While eating we keep our food equipped and make sure we're not about to click a container, every tick.
+        return _isTryingToEat ? 0 : 10;
+    }
+
     @Override
     public float getPriority(AltoClef mod) {
 
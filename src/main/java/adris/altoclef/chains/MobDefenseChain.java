@@ -7,6 +7,7 @@ import adris.altoclef.tasks.movement.CustomBaritoneGoalTask;
 import adris.altoclef.tasks.movement.DodgeProjectilesTask;
 import adris.altoclef.tasks.movement.RunAwayFromCreepersTask;
 import adris.altoclef.tasks.movement.RunAwayFromHostilesTask;
+import adris.altoclef.tasksystem.PriorityInput;
 import adris.altoclef.tasksystem.TaskRunner;
 import adris.altoclef.control.KillAura;
 import adris.altoclef.util.helpers.BaritoneHelper;
@@ -46,8 +47,10 @@ public class MobDefenseChain extends SingleTaskChain {
     private static final double DANGER_KEEP_DISTANCE = 15 * 2;
 
     private static final double SAFE_KEEP_DISTANCE = 8;
-    // Kind of a silly solution
-    public static Class[] HOSTILE_ANNOYING_CLASSES = new Class[]{SkeletonEntity.class, ZombieEntity.class, SpiderEntity.class, CaveSpiderEntity.class, WitchEntity.class, PiglinEntity.class, PiglinBruteEntity.class, HoglinEntity.class, ZoglinEntity.class, BlazeEntity.class, WitherSkeletonEntity.class, PillagerEntity.class, DrownedEntity.class};
+
+    private static final EnumSet<PriorityInput> PRIORITY_INPUTS = EnumSet.of(PriorityInput.PLAYER, PriorityInput.INVENTORY, PriorityInput.ENTITIES, PriorityInput.SETTINGS);
+    // Kind of a silly solution. Subclasses count too (zombie gets husks/drowned, spider gets cave spiders...)
+    public static Class[] HOSTILE_ANNOYING_CLASSES = new Class[]{AbstractSkeletonEntity.class, ZombieEntity.class, SpiderEntity.class, WitchEntity.class, AbstractPiglinEntity.class, HoglinEntity.class, ZoglinEntity.class, BlazeEntity.class, PillagerEntity.class};
     private final KillAura _killAura = new KillAura();
     private final HashMap<Entity, TimerGame> _closeAnnoyingEntities = new HashMap<>();
     private Entity _targetEntity;
@@ -62,14 +65,54 @@ public class MobDefenseChain extends SingleTaskChain {
     }
 
     public static double getCreeperSafety(Vec3d pos, CreeperEntity creeper) {
-        double distance = creeper.squaredDistanceTo(pos);
-        float fuse = creeper.getClientFuseTime(1);
+        return getCreeperSafety(creeper.squaredDistanceTo(pos), creeper.getClientFuseTime(1));
+    }
 
+    public static double getCreeperSafety(double distance, float fuse) {
         // Not fusing.
         if (fuse <= 0.001f) return distance;
         return distance * 0.2; // less is WORSE
     }
 
+    @Override
+    protected void tickReflexes(AltoClef mod) {
+        // Pause if we're not loaded into a world.
+        if (!AltoClef.inGame()) return;
+
+        if (!mod.getModSettings().isMobDefense()) return;
+
+        // Put out fire if we're standing on one like an idiot
+        BlockPos fireBlock = isInsideFireAndOnFire(mod);
+        if (fireBlock != null) {
+            putOutFire(mod, fireBlock);
+        } else if (_wasPuttingOutFire) {
+            // Stop putting stuff out if we no longer need to put out a fire.
+            mod.getClientBaritone().getInputOverrideHandler().setInputForceState(Input.CLICK_LEFT, false);
+            _wasPuttingOutFire = false;
+        }
+
+        // Force field
+        if (!prioritizeEating(mod)) {
+            doForceField(mod);
+        }
+    }
+
+    @Override
+    public EnumSet<PriorityInput> getPriorityInputs() {
+        return PRIORITY_INPUTS;
+    }
+
+    @Override
+    protected long getPriorityState(AltoClef mod) {
+        return mod.getFoodChain().isTryingToEat() ? 1 : 0;
+    }
+
+    @Override
+    public int getMaxPriorityStaleness() {
+        // Our entities input doesn't see hostiles getting angry, creepers fusing or small moves, and annoying hostiles go on a timer.
+        return 5;
+    }
+
     @Override
     public float getPriority(AltoClef mod) {
         _cachedLastPriority = getPriorityInner(mod);
@@ -88,27 +131,12 @@ public class MobDefenseChain extends SingleTaskChain {
         // mod.getClientBaritoneSettings().avoidance.value = isVulnurable(mod);
         // Doing you a favor by disabling avoidance
 
-
-        // Pause if we're not loaded into a world.
-        if (!AltoClef.inGame()) return Float.NEGATIVE_INFINITY;
-
-        // Put out fire if we're standing on one like an idiot
-        BlockPos fireBlock = isInsideFireAndOnFire(mod);
-        if (fireBlock != null) {
-            putOutFire(mod, fireBlock);
-        } else if (_wasPuttingOutFire) {
-            // Stop putting stuff out if we no longer need to put out a fire.
-            mod.getClientBaritone().getInputOverrideHandler().setInputForceState(Input.CLICK_LEFT, false);
-            _wasPuttingOutFire = false;
-        }
+        // Fire and force field are handled in `tickReflexes`, every tick.
 
         if (prioritizeEating(mod)) {
             return Float.NEGATIVE_INFINITY;
         }
 
-        // Force field
-        doForceField(mod);
-
 
         // Tell baritone to avoid mobs if we're vulnurable.
         // Costly.
@@ -238,6 +266,7 @@ public class MobDefenseChain extends SingleTaskChain {
                         _runAwayTask = null;
                         setTask(new KillEntitiesTask(
                                 toDealWith::contains,
+                                true,
                                 // Oof
                                 HOSTILE_ANNOYING_CLASSES));
                         return 65;
@@ -408,24 +437,20 @@ public class MobDefenseChain extends SingleTaskChain {
         // Wither skeletons are dangerous because of the wither effect. Oof kinda obvious.
         // If we merely force field them, we will run into them and get the wither effect which will kill us.
         if (mod.getEntityTracker().entityFound(WitherSkeletonEntity.class)) {
-            Optional<Entity> entity = mod.getEntityTracker().getClosestEntity(mod.getPlayer().getPos(), WitherSkeletonEntity.class);
-            if (entity.isPresent()) {
-                double range = SAFE_KEEP_DISTANCE - 2;
-                if (entity.get().squaredDistanceTo(mod.getPlayer()) < range * range && EntityHelper.isAngryAtPlayer(mod, entity.get())) {
-                    return entity;
-                }
+            double range = SAFE_KEEP_DISTANCE - 2;
+            Optional<Entity> entity = mod.getEntityTracker().getClosestEntityWithinRange(mod.getPlayer().getPos(), range, toAvoid -> true, WitherSkeletonEntity.class);
+            if (entity.isPresent() && EntityHelper.isAngryAtPlayer(mod, entity.get())) {
+                return entity;
             }
         }
         // Hoglins are dangerous because we can't push them with the force field.
         // If we merely force field them and stand still our health will slowly be chipped away until we die
         if (mod.getEntityTracker().entityFound(HoglinEntity.class, ZoglinEntity.class)) {
             if (mod.getPlayer().getHealth() < 10) {
-                Optional<Entity> entity = mod.getEntityTracker().getClosestEntity(mod.getPlayer().getPos(), HoglinEntity.class, ZoglinEntity.class);
-                if (entity.isPresent()) {
-                    double range = SAFE_KEEP_DISTANCE - 1;
-                    if (entity.get().squaredDistanceTo(mod.getPlayer()) < range * range && EntityHelper.isAngryAtPlayer(mod, entity.get())) {
-                        return entity;
-                    }
+                double range = SAFE_KEEP_DISTANCE - 1;
+                Optional<Entity> entity = mod.getEntityTracker().getClosestEntityWithinRange(mod.getPlayer().getPos(), range, toAvoid -> true, HoglinEntity.class, ZoglinEntity.class);
+                if (entity.isPresent() && EntityHelper.isAngryAtPlayer(mod, entity.get())) {
+                    return entity;
                 }
             }
         }
@@ -34,6 +34,8 @@ public abstract class SingleTaskChain extends TaskChain {
         if (_mainTask != null) {
             if ((_mainTask.isFinished(mod)) || _mainTask.stopped()) {
                 onTaskFinish(mod);
+                // Whatever we last decided was based on this task still running.
+                invalidatePriority();
             } else {
                 _mainTask.tick(mod, this);
             }
@@ -70,6 +72,7 @@ public abstract class SingleTaskChain extends TaskChain {
         Debug.logInternal("Chain Interrupted: " + this + " by " + other.toString());
         // Stop our task. When we're started up again, let our task know we need to run.
         _interrupted = true;
+        invalidatePriority();
         if (_mainTask != null && _mainTask.isActive()) {
             _mainTask.interrupt(mod, null);
         }
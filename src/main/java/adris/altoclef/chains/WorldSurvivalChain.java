@@ -5,6 +5,7 @@ import adris.altoclef.tasks.DoToClosestBlockTask;
 import adris.altoclef.tasks.InteractWithBlockTask;
 import adris.altoclef.tasks.construction.PutOutFireTask;
 import adris.altoclef.tasks.movement.*;
+import adris.altoclef.tasksystem.PriorityInput;
 import adris.altoclef.tasksystem.TaskRunner;
 import adris.altoclef.util.ItemTarget;
 import adris.altoclef.util.csharpisbetter.TimerGame;
@@ -20,10 +21,13 @@ import net.minecraft.item.Items;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Direction;
 
+import java.util.EnumSet;
 import java.util.Optional;
 
 public class WorldSurvivalChain extends SingleTaskChain {
 
+    private static final EnumSet<PriorityInput> PRIORITY_INPUTS = EnumSet.of(PriorityInput.PLAYER, PriorityInput.INVENTORY, PriorityInput.SETTINGS);
+
     private final TimerGame _wasInLavaTimer = new TimerGame(1);
     private boolean _wasAvoidingDrowning;
     private TimerGame _portalStuckTimer = new TimerGame(5);
@@ -40,11 +44,27 @@ public class WorldSurvivalChain extends SingleTaskChain {
     }
 
     @Override
-    public float getPriority(AltoClef mod) {
-        if (!AltoClef.inGame()) return Float.NEGATIVE_INFINITY;
+    protected void tickReflexes(AltoClef mod) {
+        if (!AltoClef.inGame()) return;
 
         // Drowning
         handleDrowning(mod);
+    }
+
+    @Override
+    public EnumSet<PriorityInput> getPriorityInputs() {
+        return PRIORITY_INPUTS;
+    }
+
+    @Override
+    protected long getPriorityState(AltoClef mod) {
+        // For the nether portal check
+        return System.identityHashCode(mod.getUserTaskChain().getCurrentTask());
+    }
+
+    @Override
+    public float getPriority(AltoClef mod) {
+        if (!AltoClef.inGame()) return Float.NEGATIVE_INFINITY;
 
         // Lava Escape
         if (isInLavaOhShit(mod) && mod.getBehaviour().shouldEscapeLava()) {
@@ -0,0 +1,62 @@
+package adris.altoclef.commands;
+
+import adris.altoclef.AltoClef;
+import adris.altoclef.commandsystem.Arg;
+import adris.altoclef.commandsystem.ArgParser;
+import adris.altoclef.commandsystem.Command;
+import adris.altoclef.commandsystem.CommandException;
+import adris.altoclef.tasksystem.TaskProfiler;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+public class ProfileCommand extends Command {
+
+    private static final String PROFILE_FOLDER = "altoclef/profiles";
+
+    public ProfileCommand() throws CommandException {
+        super("profile", "Profiles task ticks. start/stop/dump, dump writes flame graph (collapsed stack) files. ticks shows tick budget overruns", new Arg(String.class, "action", "dump", 0));
+    }
+
+    @Override
+    protected void call(AltoClef mod, ArgParser parser) throws CommandException {
+        String action = parser.get(String.class);
+        switch (action.toLowerCase()) {
+            case "start" -> {
+                TaskProfiler.start();
+                mod.log("Profiling task ticks (keeping the last " + TaskProfiler.WINDOW_TICKS + " ticks).");
+            }
+            case "stop" -> {
+                TaskProfiler.stop();
+                mod.log("Stopped profiling, " + TaskProfiler.getRecordedTicks() + " ticks still available to dump.");
+            }
+            case "dump" -> {
+                if (TaskProfiler.getRecordedTicks() == 0) {
+                    mod.log("Nothing recorded. Run \"profile start\" first, with a task running.");
+                    break;
+                }
+                String name = "tasks-" + new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+                Path timeFile = Paths.get(PROFILE_FOLDER, name + ".folded");
+                Path allocationFile = Paths.get(PROFILE_FOLDER, name + "-alloc.folded");
+                try {
+                    for (String line : TaskProfiler.dump(timeFile, allocationFile)) {
+                        mod.log(line);
+                    }
+                } catch (IOException e) {
+                    throw new CommandException("Failed to write profile to " + timeFile, e);
+                }
+                mod.log("Wrote " + TaskProfiler.getRecordedTicks() + " ticks to " + timeFile.toAbsolutePath());
+            }
+            case "ticks" -> {
+                for (String line : mod.getTickSchedulerStats()) {
+                    mod.log(line);
+                }
+            }
+            default -> throw new CommandException("Unknown action \"" + action + "\", expected start, stop, dump or ticks.");
+        }
+        finish();
+    }
+}
@@ -0,0 +1,30 @@
+package adris.altoclef.mixins;
+
+import adris.altoclef.StaticMixinHookups;
+import net.minecraft.entity.Entity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+// The client world's entity manager calls into this handler whenever an entity enters or leaves the world,
+// whether it spawned, died, got picked up or had its chunk unloaded.
+@Mixin(targets = "net.minecraft.client.world.ClientWorld$ClientEntityHandler")
+public class ClientWorldEntityMixin {
+
+    @Inject(
+            method = "create",
+            at = @At("HEAD")
+    )
+    private void onEntityAdded(Entity entity, CallbackInfo ci) {
+        StaticMixinHookups.onEntityAdded(entity);
+    }
+
+    @Inject(
+            method = "destroy",
+            at = @At("HEAD")
+    )
+    private void onEntityRemoved(Entity entity, CallbackInfo ci) {
+        StaticMixinHookups.onEntityRemoved(entity);
+    }
+}
@@ -3,6 +3,7 @@ package adris.altoclef.mixins;
 import adris.altoclef.StaticMixinHookups;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import org.spongepowered.asm.mixin.Mixin;
@@ -25,6 +26,11 @@ public class WorldBlockModifiedMixin {
         if (!hasBlock(oldBlock, pos) && hasBlock(newBlock, pos)) {
             StaticMixinHookups.onBlockPlaced(pos, newBlock);
         }
+        // Only care about the world we see, not the integrated server's.
+        //noinspection ConstantConditions
+        if ((Object) this instanceof ClientWorld) {
+            StaticMixinHookups.onBlockChanged(pos, oldBlock, newBlock);
+        }
     }
     //onBlockChanged
 }
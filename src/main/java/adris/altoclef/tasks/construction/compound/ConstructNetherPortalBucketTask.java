@@ -63,6 +63,8 @@ public class ConstructNetherPortalBucketTask extends Task {
     // This can only really be explained visually, sorry!
     private static final Vec3i PORTALABLE_REGION_SIZE = new Vec3i(4, 6, 6);
     private static final Vec3i PORTAL_ORIGIN_RELATIVE_TO_REGION = new Vec3i(1, 0, 2);
+    // Lava lakes turn into obsidian and water while we work, so don't let the lake search go by an old scan.
+    private static final int LAVA_FRESH_WITHIN_TICKS = 5 * 20;
     private final TimerGame _lavaSearchTimer = new TimerGame(5);
     private final MovementProgressChecker _progressChecker = new MovementProgressChecker(5);
     private final TimeoutWanderTask _wanderTask = new TimeoutWanderTask(25);
@@ -80,7 +82,7 @@ public class ConstructNetherPortalBucketTask extends Task {
 
         _currentDestroyTarget = null;
 
-        mod.getBlockTracker().trackBlock(Blocks.LAVA);
+        mod.getBlockTracker().trackBlock(LAVA_FRESH_WITHIN_TICKS, Blocks.LAVA);
         mod.getBehaviour().push();
 
         // Avoid breaking portal frame if we're obsidian.
@@ -170,7 +172,7 @@ public class ConstructNetherPortalBucketTask extends Task {
                 BlockPos lavaPos = findLavaLake(mod, mod.getPlayer().getBlockPos());
                 if (lavaPos != null) {
                     // We have a lava lake, set our portal origin!
-                    BlockPos foundPortalRegion = getPortalableRegion(lavaPos, mod.getPlayer().getBlockPos(), new Vec3i(-1, 0, 0), PORTALABLE_REGION_SIZE, 20);
+                    BlockPos foundPortalRegion = getPortalableRegion(mod, lavaPos, mod.getPlayer().getBlockPos(), new Vec3i(-1, 0, 0), PORTALABLE_REGION_SIZE, 20);
                     if (foundPortalRegion == null) {
                         Debug.logWarning("Failed to find portalable region nearby. Consider increasing the search timeout range");
                     } else {
@@ -234,7 +236,7 @@ public class ConstructNetherPortalBucketTask extends Task {
 
     @Override
     protected void onStop(AltoClef mod, Task interruptTask) {
-        mod.getBlockTracker().stopTracking(Blocks.LAVA);
+        mod.getBlockTracker().stopTracking(LAVA_FRESH_WITHIN_TICKS, Blocks.LAVA);
         mod.getBehaviour().pop();
     }
 
@@ -303,7 +305,7 @@ public class ConstructNetherPortalBucketTask extends Task {
     }
 
     // Get a region that a portal can fit into
-    private BlockPos getPortalableRegion(BlockPos lava, BlockPos playerPos, Vec3i sizeOffset, Vec3i sizeAllocation, int timeoutRange) {
+    private BlockPos getPortalableRegion(AltoClef mod, BlockPos lava, BlockPos playerPos, Vec3i sizeOffset, Vec3i sizeAllocation, int timeoutRange) {
         Vec3i[] directions = new Vec3i[]{new Vec3i(1, 0, 0), new Vec3i(-1, 0, 0), new Vec3i(0, 0, 1), new Vec3i(0, 0, -1)};
 
         double minDistanceToPlayer = Double.POSITIVE_INFINITY;
@@ -316,30 +318,17 @@ public class ConstructNetherPortalBucketTask extends Task {
 
                 Vec3i offset = new Vec3i(direction.getX() * offs, direction.getY() * offs, direction.getZ() * offs);
 
-                boolean found = true;
                 // check for collision with lava in box
-                moveAlongLine:
                 // We have an extra buffer to make sure we never break a block NEXT to lava.
-                for (int dx = -1; dx < sizeAllocation.getX() + 1; ++dx) {
-                    for (int dz = -1; dz < sizeAllocation.getZ() + 1; ++dz) {
-                        for (int dy = -1; dy < sizeAllocation.getY(); ++dy) {
-                            BlockPos toCheck = lava.add(offset).add(sizeOffset).add(dx, dy, dz);
-                            assert MinecraftClient.getInstance().world != null;
-                            BlockState state = MinecraftClient.getInstance().world.getBlockState(toCheck);
-                            if (state.getBlock() == Blocks.LAVA || state.getBlock() == Blocks.WATER || state.getBlock() == Blocks.BEDROCK) {
-                                found = false;
-                                break moveAlongLine;
-                            }
-                        }
-                    }
-                }
+                BlockPos boxCorner = lava.add(offset).add(sizeOffset);
+                boolean found = !mod.getBlockTracker().anyWithinBox(boxCorner.add(-1, -1, -1), boxCorner.add(sizeAllocation.getX(), sizeAllocation.getY() - 1, sizeAllocation.getZ()),
+                        Blocks.LAVA, Blocks.WATER, Blocks.BEDROCK);
 
                 if (found) {
-                    BlockPos foundBoxCorner = lava.add(offset).add(sizeOffset);
-                    double sqDistance = foundBoxCorner.getSquaredDistance(playerPos);
+                    double sqDistance = boxCorner.getSquaredDistance(playerPos);
                     if (sqDistance < minDistanceToPlayer) {
                         minDistanceToPlayer = sqDistance;
-                        bestPos = foundBoxCorner;
+                        bestPos = boxCorner;
                     }
                     break;
                 }
@@ -96,6 +96,8 @@ public class ConstructNetherPortalSpeedrunTask extends adris.altoclef.tasksystem
             new Vec3i(0, 2, 1)
     };
     private static final Vec3i WATER_SOURCE_ORIGIN = new Vec3i(1, 3, 0);
+    // As often as we look for a lake, so one we've already cast obsidian over doesn't keep showing up.
+    private static final int LAVA_FRESH_WITHIN_TICKS = 5 * 20;
     private final TimerGame _lavaSearchTimer = new TimerGame(5);
     private final adris.altoclef.tasksystem.Task _collectLavaTask = TaskCatalogue.getItemTask(Items.LAVA_BUCKET, 1);
     private final TimerGame _placeLavaWeCanBreakAgainTimer = new TimerGame(5);
@@ -112,7 +114,7 @@ public class ConstructNetherPortalSpeedrunTask extends adris.altoclef.tasksystem
     protected void onStart(AltoClef mod) {
         _isPlacingLiquid = false;
         _portalFrameBuilt = false;
-        mod.getBlockTracker().trackBlock(Blocks.LAVA);
+        mod.getBlockTracker().trackBlock(LAVA_FRESH_WITHIN_TICKS, Blocks.LAVA);
         mod.getBehaviour().push();
         //mod.getConfigState().setAllowWalkThroughFlowingWater(true);
         // Avoid breaking frame.
@@ -171,7 +173,7 @@ public class ConstructNetherPortalSpeedrunTask extends adris.altoclef.tasksystem
                 BlockPos lavaPos = findLavaLake(mod, mod.getPlayer().getBlockPos());
                 if (lavaPos != null) {
                     // We have a lava lake, set our portal origin!
-                    BlockPos foundPortalRegion = getPortalableRegion(lavaPos, mod.getPlayer().getBlockPos(), new Vec3i(-1, 0, 0), PORTALABLE_REGION_SIZE, 20);
+                    BlockPos foundPortalRegion = getPortalableRegion(mod, lavaPos, mod.getPlayer().getBlockPos(), new Vec3i(-1, 0, 0), PORTALABLE_REGION_SIZE, 20);
                     if (foundPortalRegion == null) {
                         Debug.logWarning("Failed to find portalable region nearby. Consider increasing the search timeout range");
                     } else {
@@ -319,7 +321,7 @@ public class ConstructNetherPortalSpeedrunTask extends adris.altoclef.tasksystem
 
     @Override
     protected void onStop(AltoClef mod, adris.altoclef.tasksystem.Task interruptTask) {
-        mod.getBlockTracker().stopTracking(Blocks.LAVA);
+        mod.getBlockTracker().stopTracking(LAVA_FRESH_WITHIN_TICKS, Blocks.LAVA);
         mod.getBehaviour().pop();
     }
 
@@ -387,7 +389,7 @@ public class ConstructNetherPortalSpeedrunTask extends adris.altoclef.tasksystem
     }
 
     // Get a region that a portal can fit into
-    private BlockPos getPortalableRegion(BlockPos lava, BlockPos playerPos, Vec3i sizeOffset, Vec3i sizeAllocation, int timeoutRange) {
+    private BlockPos getPortalableRegion(AltoClef mod, BlockPos lava, BlockPos playerPos, Vec3i sizeOffset, Vec3i sizeAllocation, int timeoutRange) {
         Vec3i[] directions = new Vec3i[]{new Vec3i(1, 0, 0), new Vec3i(-1, 0, 0), new Vec3i(0, 0, 1), new Vec3i(0, 0, -1)};
 
         double minDistanceToPlayer = Double.POSITIVE_INFINITY;
@@ -400,29 +402,17 @@ public class ConstructNetherPortalSpeedrunTask extends adris.altoclef.tasksystem
 
                 Vec3i offset = new Vec3i(direction.getX() * offs, direction.getY() * offs, direction.getZ() * offs);
 
-                boolean found = true;
                 // check for collision with lava in box
-                moveAlongLine:
                 // We have an extra buffer to make sure we never break a block NEXT to lava.
-                for (int dx = -1; dx < sizeAllocation.getX() + 1; ++dx) {
-                    for (int dz = -1; dz < sizeAllocation.getZ() + 1; ++dz) {
-                        for (int dy = -1; dy < sizeAllocation.getY(); ++dy) {
-                            BlockPos toCheck = lava.add(offset).add(sizeOffset).add(dx, dy, dz);
-                            BlockState state = MinecraftClient.getInstance().world.getBlockState(toCheck);
-                            if (state.getBlock() == Blocks.LAVA || state.getBlock() == Blocks.BEDROCK) {
-                                found = false;
-                                break moveAlongLine;
-                            }
-                        }
-                    }
-                }
+                BlockPos boxCorner = lava.add(offset).add(sizeOffset);
+                boolean found = !mod.getBlockTracker().anyWithinBox(boxCorner.add(-1, -1, -1), boxCorner.add(sizeAllocation.getX(), sizeAllocation.getY() - 1, sizeAllocation.getZ()),
+                        Blocks.LAVA, Blocks.BEDROCK);
 
                 if (found) {
-                    BlockPos foundBoxCorner = lava.add(offset).add(sizeOffset);
-                    double sqDistance = foundBoxCorner.getSquaredDistance(playerPos);
+                    double sqDistance = boxCorner.getSquaredDistance(playerPos);
                     if (sqDistance < minDistanceToPlayer) {
                         minDistanceToPlayer = sqDistance;
-                        bestPos = foundBoxCorner;
+                        bestPos = boxCorner;
                     }
                     break;
                 }
@@ -26,13 +26,21 @@ public class DoToClosestEntityTask extends AbstractDoToClosestObjectTask<Entity>
 
     private final Predicate<Entity> _shouldInteractWith;
 
-    public DoToClosestEntityTask(Supplier<Vec3d> getOriginSupplier, Function<Entity, Task> getTargetTask, Predicate<Entity> shouldInteractWith, Class... entities) {
+    // Whether subclasses of our target entities count too (ex. ZombieEntity gets husks and drowned as well)
+    private final boolean _matchSubtypes;
+
+    public DoToClosestEntityTask(Supplier<Vec3d> getOriginSupplier, Function<Entity, Task> getTargetTask, Predicate<Entity> shouldInteractWith, boolean matchSubtypes, Class... entities) {
         _getOriginPos = getOriginSupplier;
         _getTargetTask = getTargetTask;
         _shouldInteractWith = shouldInteractWith;
+        _matchSubtypes = matchSubtypes;
         _targetEntities = entities;
     }
 
+    public DoToClosestEntityTask(Supplier<Vec3d> getOriginSupplier, Function<Entity, Task> getTargetTask, Predicate<Entity> shouldInteractWith, Class... entities) {
+        this(getOriginSupplier, getTargetTask, shouldInteractWith, false, entities);
+    }
+
     public DoToClosestEntityTask(Supplier<Vec3d> getOriginSupplier, Function<Entity, Task> getTargetTask, Class... entities) {
         this(getOriginSupplier, getTargetTask, entity -> true, entities);
     }
@@ -41,6 +49,10 @@ public class DoToClosestEntityTask extends AbstractDoToClosestObjectTask<Entity>
         this(null, getTargetTask, shouldInteractWith, entities);
     }
 
+    public DoToClosestEntityTask(Function<Entity, Task> getTargetTask, Predicate<Entity> shouldInteractWith, boolean matchSubtypes, Class... entities) {
+        this(null, getTargetTask, shouldInteractWith, matchSubtypes, entities);
+    }
+
     public DoToClosestEntityTask(Function<Entity, Task> getTargetTask, Class... entities) {
         this(null, getTargetTask, entity -> true, entities);
     }
@@ -52,6 +64,10 @@ public class DoToClosestEntityTask extends AbstractDoToClosestObjectTask<Entity>
 
     @Override
     protected Optional<Entity> getClosestTo(AltoClef mod, Vec3d pos) {
+        if (_matchSubtypes) {
+            if (!mod.getEntityTracker().entityOfTypeFound(_targetEntities)) return Optional.empty();
+            return mod.getEntityTracker().getClosestOfAnyType(pos, _shouldInteractWith, _targetEntities);
+        }
         if (!mod.getEntityTracker().entityFound(_targetEntities)) return Optional.empty();
         return mod.getEntityTracker().getClosestEntity(pos, _shouldInteractWith, _targetEntities);
     }
@@ -85,7 +101,7 @@ public class DoToClosestEntityTask extends AbstractDoToClosestObjectTask<Entity>
     @Override
     protected boolean isEqual(Task other) {
         if (other instanceof DoToClosestEntityTask task) {
-            return Arrays.equals(task._targetEntities, _targetEntities);
+            return task._matchSubtypes == _matchSubtypes && Arrays.equals(task._targetEntities, _targetEntities);
         }
         return false;
     }
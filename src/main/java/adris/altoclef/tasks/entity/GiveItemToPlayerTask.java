@@ -24,6 +24,9 @@ import java.util.Optional;
 
 public class GiveItemToPlayerTask extends Task {
 
+    // How far ahead of a moving player we throw
+    private static final int THROW_LEAD_TICKS = 5;
+
     private final String _playerName;
     private final ItemTarget[] _targets;
 
@@ -64,7 +67,9 @@ public class GiveItemToPlayerTask extends Task {
         if (_droppingItems) {
             // THROW ITEMS
             setDebugState("Throwing items");
-            LookHelper.lookAt(mod, targetPos);
+            // Lead them a little if they're moving, the items take a moment to get there.
+            Vec3d aimPos = mod.getEntityTracker().getPlayerPredictedPosition(_playerName, THROW_LEAD_TICKS).orElse(lastPos.get()).add(0, 0.2f, 0);
+            LookHelper.lookAt(mod, aimPos);
             for (int i = 0; i < _throwTarget.size(); ++i) {
                 ItemTarget target = _throwTarget.get(i);
                 if (target.getTargetCount() > 0) {
@@ -13,6 +13,13 @@ public class KillEntitiesTask extends DoToClosestEntityTask {
         super(KillEntityTask::new, shouldKill, entities);
     }
 
+    /**
+     * @param matchSubtypes Whether subclasses of `entities` should be killed too
+     */
+    public KillEntitiesTask(Predicate<Entity> shouldKill, boolean matchSubtypes, Class... entities) {
+        super(KillEntityTask::new, shouldKill, matchSubtypes, entities);
+    }
+
     public KillEntitiesTask(Class... entities) {
         super(KillEntityTask::new, entities);
     }
@@ -37,6 +37,9 @@ public abstract class CustomBaritoneGoalTask extends Task implements ITaskRequir
         if (_cachedGoal == null) {
             _cachedGoal = newGoal(mod);
         }
+        if (_cachedGoal != null) {
+            updateGoal(mod, _cachedGoal);
+        }
 
         if (_wander) {
             if (isFinished(mod)) {
@@ -68,6 +71,9 @@ public abstract class CustomBaritoneGoalTask extends Task implements ITaskRequir
         if (_cachedGoal == null) {
             _cachedGoal = newGoal(mod);
         }
+        if (_cachedGoal != null) {
+            updateGoal(mod, _cachedGoal);
+        }
         return _cachedGoal != null && _cachedGoal.isInGoal(mod.getPlayer().getBlockPos());
     }
 
@@ -78,5 +84,8 @@ public abstract class CustomBaritoneGoalTask extends Task implements ITaskRequir
 
     protected abstract Goal newGoal(AltoClef mod);
 
+    // Virtual. Runs on the client thread every time before we use our goal, for goals that need to grab things from the world.
+    protected void updateGoal(AltoClef mod, Goal goal) {}
+
     protected void onWander(AltoClef mod) {}
 }
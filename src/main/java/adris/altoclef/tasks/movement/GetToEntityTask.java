@@ -6,9 +6,15 @@ import adris.altoclef.tasksystem.Task;
 import adris.altoclef.util.baritone.GoalFollowEntity;
 import adris.altoclef.util.progresscheck.MovementProgressChecker;
 import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.util.math.Vec3d;
 
 public class GetToEntityTask extends Task implements ITaskRequiresGrounded {
 
+    // Players move, and we take a while to get to them. Aim for where they'll be by the time we get there (roughly).
+    private static final double OUR_SPEED_PER_TICK = 0.25;
+    private static final int MAX_LEAD_TICKS = 40;
+
     private final Entity _entity;
 
     private final double _closeEnoughDistance;
@@ -16,6 +22,8 @@ public class GetToEntityTask extends Task implements ITaskRequiresGrounded {
     private final MovementProgressChecker _progress = new MovementProgressChecker(5, 0.1, 5, 0.001, 2);
     private final TimeoutWanderTask _wanderTask = new TimeoutWanderTask(10);
 
+    private GoalFollowEntity _goal;
+
     public GetToEntityTask(Entity entity, double closeEnoughDistance) {
         _entity = entity;
         _closeEnoughDistance = closeEnoughDistance;
@@ -40,8 +48,13 @@ public class GetToEntityTask extends Task implements ITaskRequiresGrounded {
             return _wanderTask;
         }
 
+        if (_goal == null) {
+            _goal = new GoalFollowEntity(_entity, _closeEnoughDistance);
+        }
+        // Moving the target along doesn't make baritone re-path, it just keeps heading for the (new) goal.
+        _goal.setTarget(getTargetPosition(mod));
         if (!mod.getClientBaritone().getCustomGoalProcess().isActive()) {
-            mod.getClientBaritone().getCustomGoalProcess().setGoalAndPath(new GoalFollowEntity(_entity, _closeEnoughDistance));
+            mod.getClientBaritone().getCustomGoalProcess().setGoalAndPath(_goal);
         }
 
         if (mod.getPlayer().isInRange(_entity, _closeEnoughDistance)) {
@@ -56,6 +69,15 @@ public class GetToEntityTask extends Task implements ITaskRequiresGrounded {
         return null;
     }
 
+    private Vec3d getTargetPosition(AltoClef mod) {
+        if (_entity instanceof PlayerEntity player) {
+            double distance = Math.sqrt(player.squaredDistanceTo(mod.getPlayer()));
+            int leadTicks = (int) Math.min(MAX_LEAD_TICKS, Math.max(distance - _closeEnoughDistance, 0) / OUR_SPEED_PER_TICK);
+            return mod.getEntityTracker().getPlayerPredictedPosition(player.getName().getString(), leadTicks).orElse(player.getPos());
+        }
+        return _entity.getPos();
+    }
+
     @Override
     protected void onStop(AltoClef mod, Task interruptTask) {
         mod.getClientBaritone().getCustomGoalProcess().onLostControl();
@@ -3,11 +3,11 @@ package adris.altoclef.tasks.movement;
 import adris.altoclef.AltoClef;
 import adris.altoclef.chains.MobDefenseChain;
 import adris.altoclef.tasksystem.Task;
+import adris.altoclef.trackers.entitytracking.EntitySnapshot;
 import adris.altoclef.util.baritone.GoalRunAwayFromEntities;
 import baritone.api.pathing.goals.Goal;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.mob.CreeperEntity;
-import net.minecraft.util.math.Vec3d;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +43,11 @@ public class RunAwayFromCreepersTask extends CustomBaritoneGoalTask {
         return new GoalRunAwayFromCreepers(mod, _distanceToRun);
     }
 
+    @Override
+    protected void updateGoal(AltoClef mod, Goal goal) {
+        ((GoalRunAwayFromEntities) goal).updateTargets(mod);
+    }
+
     private static class GoalRunAwayFromCreepers extends GoalRunAwayFromEntities {
 
         public GoalRunAwayFromCreepers(AltoClef mod, double distance) {
@@ -55,11 +60,20 @@ public class RunAwayFromCreepersTask extends CustomBaritoneGoalTask {
         }
 
         @Override
-        protected double getCostOfEntity(Entity entity, int x, int y, int z) {
-            if (entity instanceof CreeperEntity) {
-                return MobDefenseChain.getCreeperSafety(new Vec3d(x + 0.5, y + 0.5, z + 0.5), (CreeperEntity) entity);
+        protected double getEntityState(Entity entity) {
+            // How far along the creeper's fuse is
+            if (entity instanceof CreeperEntity creeper) {
+                return creeper.getClientFuseTime(1);
+            }
+            return super.getEntityState(entity);
+        }
+
+        @Override
+        protected double getCostOfEntity(EntitySnapshot snapshot, int index, double state, int x, int y, int z) {
+            if (snapshot.getType(index) == CreeperEntity.class) {
+                return MobDefenseChain.getCreeperSafety(snapshot.squaredDistanceTo(index, x + 0.5, y + 0.5, z + 0.5), (float) state);
             }
-            return super.getCostOfEntity(entity, x, y, z);
+            return super.getCostOfEntity(snapshot, index, state, x, y, z);
         }
     }
 }
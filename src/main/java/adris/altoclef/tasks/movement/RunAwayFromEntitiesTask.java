@@ -34,6 +34,11 @@ public abstract class RunAwayFromEntitiesTask extends CustomBaritoneGoalTask {
         return new GoalRunAwayStuff(mod, _distanceToRun, _xz);
     }
 
+    @Override
+    protected void updateGoal(AltoClef mod, Goal goal) {
+        ((GoalRunAwayFromEntities) goal).updateTargets(mod);
+    }
+
 
     private class GoalRunAwayStuff extends GoalRunAwayFromEntities {
 
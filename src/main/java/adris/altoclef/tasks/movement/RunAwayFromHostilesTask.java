@@ -2,7 +2,6 @@ package adris.altoclef.tasks.movement;
 
 import adris.altoclef.AltoClef;
 import adris.altoclef.tasksystem.Task;
-import adris.altoclef.util.helpers.BaritoneHelper;
 import adris.altoclef.util.baritone.GoalRunAwayFromEntities;
 import baritone.api.pathing.goals.Goal;
 import net.minecraft.entity.Entity;
@@ -34,6 +33,11 @@ public class RunAwayFromHostilesTask extends CustomBaritoneGoalTask {
         return new GoalRunAwayFromHostiles(mod, _distanceToRun);
     }
 
+    @Override
+    protected void updateGoal(AltoClef mod, Goal goal) {
+        ((GoalRunAwayFromEntities) goal).updateTargets(mod);
+    }
+
     @Override
     protected boolean isEqual(Task other) {
         if (other instanceof RunAwayFromHostilesTask task) {
@@ -55,14 +59,11 @@ public class RunAwayFromHostilesTask extends CustomBaritoneGoalTask {
 
         @Override
         protected List<Entity> getEntities(AltoClef mod) {
-            List<Entity> result;
             Stream<Entity> stream = mod.getEntityTracker().getHostiles().stream();
-            synchronized (BaritoneHelper.MINECRAFT_LOCK) {
-                if (!_includeSkeletons) {
-                    stream = stream.filter(hostile -> !(hostile instanceof SkeletonEntity));
-                }
-                return stream.collect(Collectors.toList());
+            if (!_includeSkeletons) {
+                stream = stream.filter(hostile -> !(hostile instanceof SkeletonEntity));
             }
+            return stream.collect(Collectors.toList());
         }
     }
 }
@@ -489,10 +489,8 @@ public class BeatMinecraft2Task extends Task {
         if (mod.getWorld().getBlockState(blockPos.up(1)).getBlock() == Blocks.WATER || blockPos.getY() < 50) {
             return false;
         }
-        for (BlockPos check : WorldHelper.scanRegion(mod, blockPos.add(-4, -2, -4), blockPos.add(4, 2, 4))) {
-            if (mod.getWorld().getBlockState(check).getBlock() == Blocks.NETHERRACK) {
-                return true;
-            }
+        if (mod.getBlockTracker().anyWithinBox(blockPos.add(-4, -2, -4), blockPos.add(4, 2, 4), Blocks.NETHERRACK)) {
+            return true;
         }
         _notRuinedPortalChests.add(blockPos);
         return false;
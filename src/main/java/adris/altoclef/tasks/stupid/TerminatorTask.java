@@ -15,7 +15,6 @@ import adris.altoclef.tasksystem.Task;
 import adris.altoclef.ui.MessagePriority;
 import adris.altoclef.util.ItemTarget;
 import adris.altoclef.util.csharpisbetter.TimerGame;
-import adris.altoclef.util.helpers.BaritoneHelper;
 import adris.altoclef.util.helpers.ItemHelper;
 import adris.altoclef.util.helpers.LookHelper;
 import adris.altoclef.util.helpers.StorageHelper;
@@ -30,6 +29,7 @@ import net.minecraft.util.math.Vec3d;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -66,6 +66,7 @@ public class TerminatorTask extends Task {
     private final TimerGame _funnyMessageTimer = new TimerGame(10);
     private Vec3d _closestPlayerLastPos;
     private Vec3d _closestPlayerLastObservePos;
+    private String _closestPlayerName;
     private Task _runAwayTask;
     private String _currentVisibleTarget;
 
@@ -92,6 +93,7 @@ public class TerminatorTask extends Task {
         if (closest.isPresent()) {
             _closestPlayerLastPos = closest.get().getPos();
             _closestPlayerLastObservePos = mod.getPlayer().getPos();
+            _closestPlayerName = closest.get().getName().getString();
         }
 
         if (!isReadyToPunk(mod)) {
@@ -128,10 +130,9 @@ public class TerminatorTask extends Task {
                 _runAwayExtraTime.reset();
                 try {
                     _runAwayTask = new RunAwayFromPlayersTask(() -> {
+                        // Picked on the client thread (see GoalRunAwayFromEntities), no locking needed.
                         Stream<PlayerEntity> stream = mod.getEntityTracker().getTrackedEntities(PlayerEntity.class).stream();
-                        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
-                            return stream.filter(toAccept -> shouldPunk(mod, toAccept)).collect(Collectors.toList());
-                        }
+                        return stream.filter(toAccept -> shouldPunk(mod, toAccept)).collect(Collectors.toList());
                     }, RUN_AWAY_DISTANCE);
                 } catch (ConcurrentModificationException e) {
                     // oof
@@ -281,6 +282,18 @@ public class TerminatorTask extends Task {
             return dx * dx + dz * dz < _radius * _radius;
         }
 
+        // Which way the player was running when we lost them. If they weren't, assume away from us.
+        private Vec3d getLastPlayerDirection(AltoClef mod) {
+            if (_closestPlayerName != null) {
+                OptionalDouble heading = mod.getEntityTracker().getPlayerHeadingYaw(_closestPlayerName);
+                if (heading.isPresent()) {
+                    double yaw = Math.toRadians(heading.getAsDouble());
+                    return new Vec3d(-Math.sin(yaw), 0, Math.cos(yaw));
+                }
+            }
+            return _closestPlayerLastPos.subtract(_closestPlayerLastObservePos).multiply(1, 0, 1).normalize();
+        }
+
         @Override
         protected ChunkPos getBestChunkOverride(AltoClef mod, List<ChunkPos> chunks) {
             // Prioritise the chunk we last saw a player in.
@@ -293,7 +306,7 @@ public class TerminatorTask extends Task {
                     double distanceSq = (cx - px) * (cx - px) + (cz - pz) * (cz - pz);
                     double pdx = _closestPlayerLastPos.getX() - cx, pdz = _closestPlayerLastPos.getZ() - cz;
                     double distanceToLastPlayerPos = pdx * pdx + pdz * pdz;
-                    Vec3d direction = _closestPlayerLastPos.subtract(_closestPlayerLastObservePos).multiply(1, 0, 1).normalize();
+                    Vec3d direction = getLastPlayerDirection(mod);
                     double dirx = direction.x, dirz = direction.z;
                     double correctDistance = pdx * dirx + pdz * dirz;
                     double tempX = dirx * correctDistance,
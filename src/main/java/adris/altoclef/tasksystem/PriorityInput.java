@@ -0,0 +1,19 @@
+package adris.altoclef.tasksystem;
+
+/**
+ * What a chain's priority can depend on (see {@link TaskChain#getPriorityInputs()}).
+ *
+ * Each input gets a stamp once per tick, which changes whenever the input does (at least as far as priorities care).
+ */
+public enum PriorityInput {
+    // Health, hunger, air, armor, fire/lava/water and status effects (not where we are, that changes all the time)
+    PLAYER,
+    // Everything in our inventory, what we're holding and our cursor
+    INVENTORY,
+    // Entities showing up, going away or moving a few blocks, and how many projectiles are flying. Coarse: Anger, fuses and small moves don't count
+    ENTITIES,
+    // Which screen is open
+    SCREEN,
+    // Mod settings (reloading them counts as a change)
+    SETTINGS
+}
@@ -0,0 +1,96 @@
+package adris.altoclef.tasksystem;
+
+import adris.altoclef.AltoClef;
+import adris.altoclef.trackers.EntityTracker;
+import adris.altoclef.util.helpers.StorageHelper;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.entity.player.PlayerInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import java.util.EnumSet;
+
+/**
+ * This tick's {@link PriorityInput} stamps, each worked out the first time a chain asks for it.
+ *
+ * Stamps are hashes, so two different states could in theory share one.
+ * That only ever makes a chain reuse its priority for a few more ticks (see {@link TaskChain#getMaxPriorityStaleness()}).
+ */
+class PriorityInputStamps {
+
+    private static final PriorityInput[] INPUTS = PriorityInput.values();
+
+    private final long[] _stamps = new long[INPUTS.length];
+    private final boolean[] _ready = new boolean[INPUTS.length];
+    private AltoClef _mod;
+
+    /**
+     * Forget last tick's stamps.
+     */
+    public void reset(AltoClef mod) {
+        _mod = mod;
+        for (int i = 0; i < _ready.length; ++i) {
+            _ready[i] = false;
+        }
+    }
+
+    /**
+     * @return One stamp for all of `inputs`, which changes if any of them do.
+     */
+    public long combine(EnumSet<PriorityInput> inputs) {
+        long result = 1;
+        for (PriorityInput input : INPUTS) {
+            if (inputs.contains(input)) {
+                result = result * 31 + get(input);
+            }
+        }
+        return result;
+    }
+
+    public long get(PriorityInput input) {
+        int index = input.ordinal();
+        if (!_ready[index]) {
+            _stamps[index] = switch (input) {
+                case PLAYER -> stampPlayer(_mod.getPlayer());
+                case INVENTORY -> stampInventory(_mod.getPlayer());
+                case ENTITIES -> stampEntities(_mod.getEntityTracker());
+                case SCREEN -> System.identityHashCode(MinecraftClient.getInstance().currentScreen);
+                case SETTINGS -> System.identityHashCode(_mod.getModSettings());
+            };
+            _ready[index] = true;
+        }
+        return _stamps[index];
+    }
+
+    private static long stampPlayer(ClientPlayerEntity player) {
+        long result = Float.floatToIntBits(player.getHealth());
+        result = result * 31 + player.getHungerManager().getFoodLevel();
+        result = result * 31 + Float.floatToIntBits(player.getHungerManager().getSaturationLevel());
+        result = result * 31 + player.getAir();
+        result = result * 31 + player.getArmor();
+        result = result * 31 + (player.isOnFire() ? 1 : 0) + (player.isInLava() ? 2 : 0) + (player.isTouchingWater() ? 4 : 0) + (player.isOnGround() ? 8 : 0);
+        result = result * 31 + player.getStatusEffects().size();
+        return result;
+    }
+
+    private static long stampInventory(ClientPlayerEntity player) {
+        PlayerInventory inventory = player.getInventory();
+        long result = inventory.selectedSlot;
+        for (int i = 0; i < inventory.size(); ++i) {
+            result = result * 31 + stampStack(inventory.getStack(i));
+        }
+        result = result * 31 + stampStack(StorageHelper.getItemStackInCursorSlot());
+        return result;
+    }
+
+    private static long stampStack(ItemStack stack) {
+        return stack.isEmpty() ? 0 : Item.getRawId(stack.getItem()) * 97L + stack.getCount();
+    }
+
+    private static long stampEntities(EntityTracker tracker) {
+        // Only counters the tracker keeps anyway. The views (hostiles, projectiles...) would each need working out,
+        // which is the work we're trying to skip.
+        return tracker.getEntityVersion() * 31 + tracker.getProjectileEntityCount();
+    }
+}
@@ -20,6 +20,19 @@ public abstract class Task {
     private boolean _active = false;
 
     public void tick(AltoClef mod, TaskChain parentChain) {
+        if (TaskProfiler.isEnabled()) {
+            TaskProfiler.push(getClass());
+            try {
+                tickInner(mod, parentChain);
+            } finally {
+                TaskProfiler.pop();
+            }
+        } else {
+            tickInner(mod, parentChain);
+        }
+    }
+
+    private void tickInner(AltoClef mod, TaskChain parentChain) {
         parentChain.addTaskToChain(this);
         if (_first) {
             Debug.logInternal("Task START: " + this);
@@ -3,26 +3,104 @@ package adris.altoclef.tasksystem;
 import adris.altoclef.AltoClef;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 
 public abstract class TaskChain {
 
     private final List<Task> _cachedTaskChain = new ArrayList<>();
 
+    // Our last priority, and what it was worked out from (see `getPriorityInputs`)
+    private boolean _priorityCached = false;
+    private long _cachedPriorityKey;
+    private long _cachedPriorityTick;
+    private float _cachedPriority;
+
     public TaskChain(TaskRunner runner) {
         runner.addTaskChain(this);
     }
 
     public void tick(AltoClef mod) {
         _cachedTaskChain.clear();
-        onTick(mod);
+        if (TaskProfiler.isEnabled()) {
+            TaskProfiler.push(getName());
+            try {
+                onTick(mod);
+            } finally {
+                TaskProfiler.pop();
+            }
+        } else {
+            onTick(mod);
+        }
     }
 
     public void stop(AltoClef mod) {
         _cachedTaskChain.clear();
+        invalidatePriority();
         onStop(mod);
     }
 
+    /**
+     * Run our reflexes, then get our priority, reusing last one if nothing it depends on changed.
+     *
+     * @param inputs This tick's input stamps, or null to always recompute.
+     * @param mustRecompute Recompute no matter what (ex. we're the chain in control, so our decisions matter every tick)
+     */
+    float evaluatePriority(AltoClef mod, PriorityInputStamps inputs, long tick, boolean mustRecompute) {
+        tickReflexes(mod);
+        EnumSet<PriorityInput> dependsOn = getPriorityInputs();
+        if (inputs == null || dependsOn == null) {
+            return getPriority(mod);
+        }
+        long key = inputs.combine(dependsOn) * 31 + getPriorityState(mod);
+        if (!mustRecompute && _priorityCached && key == _cachedPriorityKey && tick - _cachedPriorityTick < getMaxPriorityStaleness()) {
+            return _cachedPriority;
+        }
+        _cachedPriority = getPriority(mod);
+        _cachedPriorityKey = key;
+        _cachedPriorityTick = tick;
+        _priorityCached = true;
+        return _cachedPriority;
+    }
+
+    /**
+     * Make sure our priority gets recomputed next tick, ex. because our task finished.
+     */
+    protected void invalidatePriority() {
+        _priorityCached = false;
+    }
+
+    /**
+     * Side effects that can't wait for our priority to be recomputed (ex. swimming up so we don't drown, hitting mobs in reach).
+     * Runs every tick while we're active, right before our priority is checked.
+     */
+    protected void tickReflexes(AltoClef mod) {
+    }
+
+    /**
+     * What `getPriority` depends on. If not null, our priority is only recomputed when one of these (or `getPriorityState`) changes,
+     * or after `getMaxPriorityStaleness` ticks. Otherwise, it's recomputed every tick.
+     *
+     * Anything that has to happen every tick regardless goes in `tickReflexes`.
+     */
+    public EnumSet<PriorityInput> getPriorityInputs() {
+        return null;
+    }
+
+    /**
+     * Cheap stamp of anything else `getPriority` depends on, that the inputs don't cover (ex. other chains' state).
+     */
+    protected long getPriorityState(AltoClef mod) {
+        return 0;
+    }
+
+    /**
+     * How many ticks we may reuse our priority for, even if nothing changed (timers, things our inputs miss...)
+     */
+    public int getMaxPriorityStaleness() {
+        return 20;
+    }
+
     protected abstract void onStop(AltoClef mod);
 
     public abstract void onInterrupt(AltoClef mod, TaskChain other);
@@ -0,0 +1,259 @@
+package adris.altoclef.tasksystem;
+
+import adris.altoclef.Debug;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Measures where our ticks go, per chain and per task.
+ *
+ * Every chain/task tick is a frame, nested just like the tasks are. For each frame we record its own (self) time,
+ * meaning time not spent in its sub tasks, along with bytes allocated, keyed by the whole stack of frames ("Chain;TaskA;TaskB").
+ * That's the "collapsed stack" format flame graph tools read.
+ *
+ * Only keeps the last {@link #WINDOW_TICKS} ticks. Client thread only.
+ * When off, all it costs is checking {@link #isEnabled()}.
+ */
+public class TaskProfiler {
+
+    // 30 seconds
+    public static final int WINDOW_TICKS = 20 * 30;
+    // Deeper than this and we stop recording (but keep counting depth so push/pop stay paired)
+    private static final int MAX_DEPTH = 128;
+
+    private static boolean _enabled = false;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+    private static final Frame[] _stack = new Frame[MAX_DEPTH];
+    private static int _depth = 0;
+    // Every stack we've seen, so pushing a frame looks its path up instead of building a new string.
+    private static PathNode _root = new PathNode(null);
+
+    // What this tick recorded so far, by stack
+    private static Object2LongOpenHashMap<String> _tickNanos = new Object2LongOpenHashMap<>();
+    private static Object2LongOpenHashMap<String> _tickBytes = new Object2LongOpenHashMap<>();
+    // The last WINDOW_TICKS ticks, oldest first.
+    private static final ArrayDeque<TickSample> _window = new ArrayDeque<>();
+
+    static {
+        for (int i = 0; i < MAX_DEPTH; ++i) {
+            _stack[i] = new Frame();
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                    && bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+                return bean;
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            Debug.logInternal("Allocation tracking not supported, task profiler will only measure time: " + e.getMessage());
+        }
+        return null;
+    }
+
+    public static boolean isEnabled() {
+        return _enabled;
+    }
+
+    public static void start() {
+        clear();
+        _enabled = true;
+    }
+
+    public static void stop() {
+        _enabled = false;
+        _depth = 0;
+    }
+
+    public static void clear() {
+        _window.clear();
+        _root = new PathNode(null);
+        _tickNanos = new Object2LongOpenHashMap<>();
+        _tickBytes = new Object2LongOpenHashMap<>();
+        _depth = 0;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Start a frame. Must be followed by exactly one {@link #pop()}.
+     */
+    public static void push(String name) {
+        pushKey(name);
+    }
+
+    public static void push(Class<?> type) {
+        pushKey(type);
+    }
+
+    /**
+     * @param key A frame name, or a class whose (simple) name it is.
+     */
+    private static void pushKey(Object key) {
+        int depth = _depth++;
+        if (depth >= MAX_DEPTH) return;
+        Frame frame = _stack[depth];
+        // Only builds a path the first time we see this stack, so we don't allocate (and count it against our parent) every push.
+        frame.node = (depth == 0 ? _root : _stack[depth - 1].node).getChild(key);
+        frame.childNanos = 0;
+        frame.childBytes = 0;
+        frame.startBytes = allocatedBytes();
+        frame.startNanos = System.nanoTime();
+    }
+
+    public static void pop() {
+        long now = System.nanoTime();
+        long bytes = allocatedBytes();
+        int depth = --_depth;
+        if (depth < 0) {
+            // Turned on halfway through a frame.
+            _depth = 0;
+            return;
+        }
+        if (depth >= MAX_DEPTH) return;
+        Frame frame = _stack[depth];
+        long totalNanos = now - frame.startNanos,
+                totalBytes = bytes - frame.startBytes;
+        _tickNanos.addTo(frame.node.path, totalNanos - frame.childNanos);
+        _tickBytes.addTo(frame.node.path, totalBytes - frame.childBytes);
+        if (depth > 0) {
+            _stack[depth - 1].childNanos += totalNanos;
+            _stack[depth - 1].childBytes += totalBytes;
+        }
+    }
+
+    /**
+     * Closes off this tick's recording, rolling the oldest tick out of our window.
+     */
+    public static void endTick() {
+        if (_tickNanos.isEmpty()) return;
+        _window.addLast(new TickSample(_tickNanos, _tickBytes));
+        while (_window.size() > WINDOW_TICKS) {
+            _window.removeFirst();
+        }
+        // Sized like this tick's, so they (probably) won't grow while we're measuring next tick.
+        _tickNanos = new Object2LongOpenHashMap<>(_tickNanos.size());
+        _tickBytes = new Object2LongOpenHashMap<>(_tickBytes.size());
+    }
+
+    public static int getRecordedTicks() {
+        return _window.size();
+    }
+
+    /**
+     * Writes self time (microseconds) per stack over our window, in collapsed stack format (one "a;b;c count" per line).
+     * Allocated bytes go in a second file next to it, same format.
+     *
+     * @return The hottest stacks by self time, for a quick look without a flame graph.
+     */
+    public static List<String> dump(Path timeFile, Path allocationFile) throws IOException {
+        Object2LongOpenHashMap<String> nanos = new Object2LongOpenHashMap<>();
+        Object2LongOpenHashMap<String> bytes = new Object2LongOpenHashMap<>();
+        for (TickSample sample : _window) {
+            for (Object2LongMap.Entry<String> entry : sample.nanos.object2LongEntrySet()) {
+                nanos.addTo(entry.getKey(), entry.getLongValue());
+            }
+            for (Object2LongMap.Entry<String> entry : sample.bytes.object2LongEntrySet()) {
+                bytes.addTo(entry.getKey(), entry.getLongValue());
+            }
+        }
+        Path folder = timeFile.toAbsolutePath().getParent();
+        if (folder != null) {
+            Files.createDirectories(folder);
+        }
+        writeCollapsed(timeFile, nanos, 1000);
+        if (THREAD_BEAN != null) {
+            writeCollapsed(allocationFile, bytes, 1);
+        }
+
+        List<Object2LongMap.Entry<String>> sorted = new ArrayList<>(nanos.object2LongEntrySet());
+        sorted.sort((a, b) -> Long.compare(b.getLongValue(), a.getLongValue()));
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < Math.min(5, sorted.size()); ++i) {
+            Object2LongMap.Entry<String> entry = sorted.get(i);
+            String path = entry.getKey();
+            String leaf = path.substring(path.lastIndexOf(';') + 1);
+            result.add(String.format("%s: %.2fms/tick self, %dB/tick", leaf,
+                    entry.getLongValue() / 1_000_000.0 / _window.size(), bytes.getLong(path) / _window.size()));
+        }
+        return result;
+    }
+
+    private static void writeCollapsed(Path file, Object2LongOpenHashMap<String> values, long divisor) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (Object2LongMap.Entry<String> entry : values.object2LongEntrySet()) {
+                long value = entry.getLongValue() / divisor;
+                if (value <= 0) continue;
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(Long.toString(value));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static class Frame {
+        public PathNode node;
+        public long startNanos, startBytes;
+        // Totals of our finished children, subtracted to get our self time.
+        public long childNanos, childBytes;
+    }
+
+    /**
+     * One stack of frames, and the stacks we've seen pushed on top of it.
+     */
+    private static class PathNode {
+        // "Chain;TaskA;TaskB", null for the root
+        public final String path;
+        private final HashMap<Object, PathNode> _children = new HashMap<>();
+
+        public PathNode(String path) {
+            this.path = path;
+        }
+
+        public PathNode getChild(Object key) {
+            PathNode child = _children.get(key);
+            if (child == null) {
+                String name;
+                if (key instanceof Class<?> type) {
+                    name = type.getSimpleName();
+                    if (name.isEmpty()) name = type.getName();
+                } else {
+                    name = key.toString();
+                }
+                // Names are used as stack separators in the collapsed format
+                name = name.replace(';', ':');
+                child = new PathNode(path == null ? name : path + ";" + name);
+                _children.put(key, child);
+            }
+            return child;
+        }
+    }
+
+    private static class TickSample {
+        public final Object2LongOpenHashMap<String> nanos;
+        public final Object2LongOpenHashMap<String> bytes;
+
+        public TickSample(Object2LongOpenHashMap<String> nanos, Object2LongOpenHashMap<String> bytes) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+        }
+    }
+}
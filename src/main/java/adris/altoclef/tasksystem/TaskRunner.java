@@ -13,6 +13,9 @@ public class TaskRunner {
 
     private TaskChain _cachedCurrentTaskChain = null;
 
+    private final PriorityInputStamps _priorityInputs = new PriorityInputStamps();
+    private long _ticks = 0;
+
     public TaskRunner(AltoClef mod) {
         _mod = mod;
         _active = false;
@@ -20,12 +23,19 @@ public class TaskRunner {
 
     public void tick() {
         if (!_active) return;
+        _ticks++;
+        // Input stamps read from our player, so chains only get to reuse priorities in game.
+        boolean memoize = _mod != null && AltoClef.inGame();
+        if (memoize) {
+            _priorityInputs.reset(_mod);
+        }
         // Get highest priority chain and run
         TaskChain maxChain = null;
         float maxPriority = Float.NEGATIVE_INFINITY;
         for (TaskChain chain : _chains) {
             if (!chain.isActive()) continue;
-            float priority = chain.getPriority(_mod);
+            // The chain in control always recomputes, its decisions matter every tick.
+            float priority = chain.evaluatePriority(_mod, memoize ? _priorityInputs : null, _ticks, chain == _cachedCurrentTaskChain);
             if (priority > maxPriority) {
                 maxPriority = priority;
                 maxChain = chain;
@@ -38,6 +48,9 @@ public class TaskRunner {
         if (maxChain != null) {
             maxChain.tick(_mod);
         }
+        if (TaskProfiler.isEnabled()) {
+            TaskProfiler.endTick();
+        }
     }
 
     public void addTaskChain(TaskChain chain) {
@@ -45,7 +58,8 @@ public class TaskRunner {
     }
 
     public void enable() {
-        if (!_active) {
+        // No mod when running headless (ex. simulations), so no behaviour to set up.
+        if (!_active && _mod != null) {
             _mod.getBehaviour().push();
             _mod.getBehaviour().setPauseOnLostFocus(false);
         }
@@ -53,7 +67,7 @@ public class TaskRunner {
     }
 
     public void disable() {
-        if (_active) {
+        if (_active && _mod != null) {
             _mod.getBehaviour().pop();
         }
         for (TaskChain chain : _chains) {
@@ -3,27 +3,42 @@ package adris.altoclef.trackers;
 import adris.altoclef.AltoClef;
 import adris.altoclef.Debug;
 import adris.altoclef.trackers.blacklisting.WorldLocateBlacklist;
+import adris.altoclef.trackers.blocktracking.BlockDeltaLog;
+import adris.altoclef.trackers.blocktracking.BlockScanScheduler;
+import adris.altoclef.trackers.blocktracking.ChunkBucketIndex;
+import adris.altoclef.trackers.blocktracking.ChunkSectionSource;
+import adris.altoclef.trackers.blocktracking.EvictionHeap;
+import adris.altoclef.trackers.blocktracking.PaletteChunkScanner;
+import adris.altoclef.trackers.blocktracking.ParallelChunkScanner;
+import adris.altoclef.trackers.blocktracking.RegionBlockStore;
 import adris.altoclef.util.Dimension;
 import adris.altoclef.util.helpers.BaritoneHelper;
 import adris.altoclef.util.csharpisbetter.TimerGame;
 import adris.altoclef.util.helpers.ConfigHelper;
 import adris.altoclef.util.helpers.WorldHelper;
-import adris.altoclef.util.helpers.StlHelper;
 import baritone.Baritone;
 import baritone.api.utils.BlockOptionalMetaLookup;
 import baritone.pathing.movement.CalculationContext;
 import baritone.process.MineProcess;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.world.ClientWorld;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
+import net.minecraft.util.registry.Registry;
 
 import java.util.*;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 /**
  * Tracks blocks the way we want it, when we want it.
@@ -32,6 +47,10 @@ import java.util.stream.Collectors;
  * without scanning the world over and over again.
  *
  * Also keeps track of blacklists for unreachable blocks
+ *
+ * Scans build a brand new cache in the background and publish it in one go, so reading never waits on a scan.
+ * Changes made on the client thread in the meantime are kept in a small log on top of the published cache
+ * (see {@link BlockDeltaLog}) until the next published cache includes them.
  */
 public class BlockTracker extends Tracker {
 
@@ -45,25 +64,41 @@ public class BlockTracker extends Tracker {
     // asynchronously to spread out the expensive cost of scanning.
     private static final boolean ASYNC_SCANNING = true;
 
-    private final HashMap<Dimension, PosCache> _caches = new HashMap<>();
+    // Once this many changes pile up on top of the published cache, publish a new one even if there's nothing to scan.
+    private static final int MAX_UNPUBLISHED_CHANGES = 512;
+
+    private final HashMap<Dimension, DimensionCache> _caches = new HashMap<>();
+
+    // Remembers what's in our caches on disk, for the current server
+    private final HashMap<Dimension, RegionBlockStore> _stores = new HashMap<>();
+
+    private final TimerGame _persistentFlushTimer = new TimerGame(_config.persistentCacheFlushInterval);
 
     //private final PosCache _cache = new PosCache(100, 64*1.5);
 
-    private final TimerGame _timer = new TimerGame(_config.scanInterval);
+    // Periodic scanning: The least amount of time between two scan passes
+    private final TimerGame _timer = new TimerGame(_config.scanIntervalWhenNewBlocksFound);
+
+    // Periodic scanning: Which block types a scan pass should look for
+    private final BlockScanScheduler _scanScheduler = new BlockScanScheduler(_config.maxScanBackoff);
 
-    private final TimerGame _forceElapseTimer = new TimerGame(_config.scanIntervalWhenNewBlocksFound);
+    // Counts ticks we've been in game for, to schedule scans with.
+    private long _ticks = 0;
 
     // A scan can last no more than 15 seconds
     private final TimerGame _asyncForceResetScanFlag = new TimerGame(15);
 
     private final Map<Block, Integer> _trackingBlocks = new HashMap<>();
 
-    private final Object _scanMutex = new Object();
+    private final ParallelChunkScanner _chunkScanner = new ParallelChunkScanner();
 
-    private boolean _scanning = false;
+    // Only one background build at a time, each one starts from what the last one published.
+    private volatile boolean _scanning = false;
 
-    // Only perform scans at the END of our frame
-    private final Semaphore _endOfFrameMutex = new Semaphore(1);
+    // Incremental scanning: Chunks that loaded and haven't been scanned yet
+    private final Set<ChunkPos> _pendingChunkScans = new HashSet<>();
+    // Incremental scanning: Newly tracked blocks that need to be found in every chunk we already have loaded
+    private final Set<Block> _pendingBackfillBlocks = new HashSet<>();
 
     //private Block _currentlyTracking = null;
     private final AltoClef _mod;
@@ -73,40 +108,114 @@ public class BlockTracker extends Tracker {
         _mod = mod;
         // First time, track immediately
         _timer.forceElapse();
-        _forceElapseTimer.forceElapse();
     }
 
     @Override
     protected void updateState() {
-        if (shouldUpdate()) {
+        // Pick up whatever the last background scan published.
+        // Queries go through `ensureUpdated`, so this only happens once a tick and never while another query's filter is running.
+        currentCache().syncSnapshot();
+        if (!_config.scanAsynchronously && shouldUpdate()) {
             update();
         }
     }
 
-    // We want our `_trackingBlocks` value to be read AFTER tasks have finished ticking
-    public void preTickTask() {
-        try {
-            _endOfFrameMutex.acquire();
-        } catch (InterruptedException e) {
-            Debug.logWarning("Pre-tick failed to acquire block track mutex! (send logs)");
-            e.printStackTrace();
+    /**
+     * Run at the end of our frame, once tasks are done ticking and `_trackingBlocks` is settled.
+     * This is where scans get kicked off, and `_ticks` (the scan scheduler's clock) advances, so it has to run every tick.
+     */
+    public void postTickTask() {
+        if (!AltoClef.inGame()) return;
+        _ticks++;
+        currentCache().syncSnapshot();
+        if (shouldUpdate()) {
+            update();
         }
     }
-    public void postTickTask() {
-        _endOfFrameMutex.release();
+
+    /**
+     * Housekeeping that can wait a few ticks: Disk persistence, and folding a long change log into a new cache.
+     */
+    public void postTickUpkeep() {
+        if (!AltoClef.inGame()) return;
+        DimensionCache cache = currentCache();
+        if (_config.persistentCache) {
+            updatePersistentCache();
+        }
+        if (cache.getUnpublishedChangeCount() > MAX_UNPUBLISHED_CHANGES) {
+            // Our change log is getting long. Fold it into a new cache (unless a scan is already building one).
+            build(next -> {});
+        }
     }
 
     @Override
     protected void reset() {
+        // Save what we know before forgetting it
+        if (_config.persistentCache) {
+            flushPersistentCache();
+        }
+        _stores.clear();
         // Tasks will handle de-tracking blocks.
         /*
         synchronized (_trackingBlocks) {
             _trackingBlocks.clear();
         }
          */
-        for (PosCache cache : _caches.values()) {
+        for (DimensionCache cache : _caches.values()) {
             cache.clear();
         }
+        _pendingChunkScans.clear();
+        _pendingBackfillBlocks.clear();
+        // Everything we track has to be looked for again.
+        _scanScheduler.resetSchedules();
+        _timer.forceElapse();
+    }
+
+    /**
+     * Called when the client loads a chunk. In incremental mode, the chunk gets scanned for every tracked block.
+     */
+    public void onChunkLoad(ChunkPos pos) {
+        if (_config.persistentCache) {
+            // Load what we remember around here, if we haven't already
+            currentStore().requestRegion(pos);
+        }
+        if (!_config.incrementalScanning) return;
+        _pendingChunkScans.add(pos);
+    }
+
+    /**
+     * Called when the client unloads a chunk. In incremental mode, we forget everything in that chunk
+     * unless we're remembering things on disk, in which case it's kept until the chunk loads again.
+     */
+    public void onChunkUnload(ChunkPos pos) {
+        if (!_config.incrementalScanning) return;
+        _pendingChunkScans.remove(pos);
+        if (_config.persistentCache) return;
+        currentCache().removeChunk(pos);
+    }
+
+    /**
+     * Called when a block changes in the client world. Keeps tracked blocks up to date between scans,
+     * both when tracked blocks appear and when they disappear.
+     */
+    public void onBlockChanged(BlockPos pos, BlockState oldState, BlockState newState) {
+        Block oldBlock = oldState.getBlock(),
+                newBlock = newState.getBlock();
+        if (oldBlock == newBlock) return;
+        boolean trackingOld, trackingNew;
+        synchronized (_trackingBlocks) {
+            trackingOld = _trackingBlocks.containsKey(oldBlock);
+            trackingNew = _trackingBlocks.containsKey(newBlock);
+        }
+        if (!trackingOld && !trackingNew) return;
+        // The position we're handed may be mutable.
+        BlockPos immutable = pos.toImmutable();
+        if (trackingOld) {
+            currentCache().removeBlock(immutable, oldBlock);
+        }
+        if (trackingNew) {
+            currentCache().addBlock(newBlock, immutable);
+        }
     }
 
     public boolean isTracking(Block block) {
@@ -121,30 +230,56 @@ public class BlockTracker extends Tracker {
      * tracked forever (not the end of the world, but other block types will be lost.
      */
     public void trackBlock(Block... blocks) {
+        trackBlock(-1, blocks);
+    }
+
+    /**
+     * Starts tracking/pay attention to some blocks, making sure what we know about them is never older than `freshWithinTicks`.
+     * Only matters when scanning periodically, incremental scanning follows block changes as they happen.
+     * <b>IMPORTANT:</b> ALWAYS pair with {@link #stopTracking(int, Block...) stopTracking}, passing the same `freshWithinTicks`,
+     * so the budget goes back to whatever other trackers still need.
+     *
+     * @param freshWithinTicks Rescan these blocks at least this often (in ticks). Negative to use the regular schedule.
+     */
+    public void trackBlock(int freshWithinTicks, Block... blocks) {
         synchronized (_trackingBlocks) {
             for (Block block : blocks) {
                 if (!_trackingBlocks.containsKey(block)) {
                     // We're tracking a new block, so we're not updated.
                     setDirty();
                     _trackingBlocks.put(block, 0);
-                    // Force a rescan if these are new blocks and we aren't doing this like every frame.
-                    if (_forceElapseTimer.elapsed()) {
-                        _timer.forceElapse();
-                        _forceElapseTimer.reset();
-                        _forceElapseTimer.setInterval(_config.scanIntervalWhenNewBlocksFound);
+                    if (_config.incrementalScanning) {
+                        // Only the chunks we already have need to be looked at, new chunks get scanned as they load.
+                        _pendingBackfillBlocks.add(block);
                     }
                 }
+                // New blocks are due right away, without making everything else we track rescan with them.
+                _scanScheduler.track(block, getScanIntervalTicks(block), freshWithinTicks);
                 _trackingBlocks.put(block, _trackingBlocks.get(block) + 1);
             }
         }
     }
 
+    private static int getScanIntervalTicks(Block block) {
+        Double interval = _config.blockScanIntervals.get(Registry.BLOCK.getId(block).toString());
+        return (int) Math.ceil((interval != null ? interval : _config.scanInterval) * 20);
+    }
+
     /**
      * Stops tracking some blocks, after calling {@link #trackBlock(Block...) trackBlock}.
      *
      * Only call this once for every {@link #trackBlock(Block...) trackBlock}.
      */
     public void stopTracking(Block... blocks) {
+        stopTracking(-1, blocks);
+    }
+
+    /**
+     * Stops tracking some blocks, after calling {@link #trackBlock(int, Block...) trackBlock} with a freshness budget.
+     *
+     * @param freshWithinTicks The same budget they were tracked with.
+     */
+    public void stopTracking(int freshWithinTicks, Block... blocks) {
         synchronized (_trackingBlocks) {
             for (Block block : blocks) {
                 if (_trackingBlocks.containsKey(block)) {
@@ -152,9 +287,11 @@ public class BlockTracker extends Tracker {
                     if (current == 0) {
                         Debug.logWarning("Untracked block " + block + " more times than necessary. BlockTracker stack is unreliable from this point on.");
                     } else {
+                        _scanScheduler.release(block, freshWithinTicks);
                         _trackingBlocks.put(block, current - 1);
                         if (_trackingBlocks.get(block) <= 0) {
                             _trackingBlocks.remove(block);
+                            _scanScheduler.untrack(block);
                         }
                     }
                 }
@@ -169,19 +306,15 @@ public class BlockTracker extends Tracker {
      */
     public void addBlock(Block block, BlockPos pos) {
         if (blockIsValid(pos, block)) {
-            synchronized (_scanMutex) {
-                currentCache().addBlock(block, pos);
-            }
+            currentCache().addBlock(block, pos);
         } else {
             Debug.logInternal("INVALID SET: " + block + " " + pos);
         }
     }
 
     public boolean anyFound(Block... blocks) {
-        updateState();
-        synchronized (_scanMutex) {
-            return currentCache().anyFound(blocks);
-        }
+        ensureUpdated();
+        return currentCache().anyFound(blocks);
     }
 
     /**
@@ -190,10 +323,8 @@ public class BlockTracker extends Tracker {
      * @param blocks The blocks to check for
      */
     public boolean anyFound(Predicate<BlockPos> isValidTest, Block... blocks) {
-        updateState();
-        synchronized (_scanMutex) {
-            return currentCache().anyFound(isValidTest, blocks);
-        }
+        ensureUpdated();
+        return currentCache().anyFound(isValidTest, blocks);
     }
 
     public Optional<BlockPos> getNearestTracking(Block... blocks) {
@@ -224,20 +355,16 @@ public class BlockTracker extends Tracker {
             }
         }
         // Make sure we've scanned the first time if we need to.
-        updateState();
-        synchronized (_scanMutex) {
-            return currentCache().getNearest(_mod, pos, isValidTest, blocks);
-        }
+        ensureUpdated();
+        return currentCache().getNearest(_mod, pos, isValidTest, blocks);
     }
 
     /**
      * Returns the locations of all tracked blocks of a given type
      */
     public List<BlockPos> getKnownLocations(Block... blocks) {
-        updateState();
-        synchronized (_scanMutex) {
-            return currentCache().getKnownLocations(blocks);
-        }
+        ensureUpdated();
+        return currentCache().getKnownLocations(blocks);
     }
 
     public Optional<BlockPos> getNearestWithinRange(BlockPos pos, double range, Block... blocks) {
@@ -245,111 +372,275 @@ public class BlockTracker extends Tracker {
     }
 
     /**
-     * Scans a radius for the closest block of a given type .
+     * Finds the closest block of a given type within a radius.
      * @param pos The center of this radius
      * @param range Radius to scan for
      * @param blocks What blocks to check for
      */
     public Optional<BlockPos> getNearestWithinRange(Vec3d pos, double range, Block... blocks) {
-        int minX = (int) Math.floor(pos.x - range),
-                maxX = (int) Math.floor(pos.x + range),
-                minY = (int) Math.floor(pos.y - range),
-                maxY = (int) Math.floor(pos.y + range),
-                minZ = (int) Math.floor(pos.z - range),
-                maxZ = (int) Math.floor(pos.z + range);
-        double closestDistance = Float.POSITIVE_INFINITY;
-        BlockPos nearest = null;
-        for (int x = minX; x <= maxX; ++x) {
-            for (int y = minY; y <= maxY; ++y) {
-                for (int z = minZ; z <= maxZ; ++z) {
-                    BlockPos check = new BlockPos(x, y, z);
-                    synchronized (_scanMutex) {
-                        if (currentCache().blockUnreachable(check)) continue;
-                    }
+        List<BlockPos> nearest = getKNearestWithinRange(pos, range, 1, blocks);
+        return nearest.isEmpty() ? Optional.empty() : Optional.of(nearest.get(0));
+    }
 
-                    assert MinecraftClient.getInstance().world != null;
-                    Block b = MinecraftClient.getInstance().world.getBlockState(check).getBlock();
-                    boolean valid = false;
-                    for (Block type : blocks) {
-                        if (type == b) {
-                            valid = true;
-                            break;
-                        }
-                    }
-                    if (!valid) continue;
-                    if (check.isWithinDistance(pos, range)) {
-                        double sq = check.getSquaredDistance(pos, false);
-                        if (sq < closestDistance) {
-                            closestDistance = sq;
-                            nearest = check;
-                        }
-                    }
-                }
+    /**
+     * Finds the `k` closest blocks of the given types within a radius.
+     * @param pos The center of this radius
+     * @param range Radius to scan for
+     * @param k How many blocks to return at most
+     * @param blocks What blocks to check for
+     * @return Up to `k` positions, closest first.
+     */
+    public List<BlockPos> getKNearestWithinRange(Vec3d pos, double range, int k, Block... blocks) {
+        BlockPos min = new BlockPos(Math.floor(pos.x - range), Math.floor(pos.y - range), Math.floor(pos.z - range)),
+                max = new BlockPos(Math.floor(pos.x + range), Math.floor(pos.y + range), Math.floor(pos.z + range));
+        double rangeSq = range * range;
+        // Keeps the highest scores, so score by negative distance to keep the closest.
+        EvictionHeap nearest = new EvictionHeap(k);
+        DimensionCache cache = currentCache();
+        visitWithinBox(min, max, check -> {
+            double sq = check.getSquaredDistance(pos, true);
+            if (sq <= rangeSq && !cache.blockUnreachable(check)) {
+                nearest.offer(check.asLong(), -sq);
+            }
+            return false;
+        }, blocks);
+        List<BlockPos> result = new ArrayList<>(nearest.size());
+        for (int i = 0; i < nearest.size(); ++i) {
+            result.add(BlockPos.fromLong(nearest.getPosition(i)));
+        }
+        result.sort(Comparator.comparingDouble(check -> check.getSquaredDistance(pos, true)));
+        return result;
+    }
+
+    /**
+     * Returns every block of the given types within a box, read from the world (see {@link #anyWithinBox}).
+     * @param min Lowest corner of the box (inclusive)
+     * @param max Highest corner of the box (inclusive)
+     * @param blocks What blocks to check for
+     */
+    public List<BlockPos> getWithinBox(BlockPos min, BlockPos max, Block... blocks) {
+        List<BlockPos> result = new ArrayList<>();
+        scanWithinBox(min, max, check -> {
+            result.add(check);
+            return false;
+        }, blocks);
+        return result;
+    }
+
+    /**
+     * Checks whether there's any block of the given types within a box.
+     * Always reads the world and never our cache, so this is safe for making sure there's none (within loaded chunks).
+     * @param min Lowest corner of the box (inclusive)
+     * @param max Highest corner of the box (inclusive)
+     * @param blocks What blocks to check for
+     */
+    public boolean anyWithinBox(BlockPos min, BlockPos max, Block... blocks) {
+        return scanWithinBox(min, max, check -> true, blocks);
+    }
+
+    /**
+     * Visits every block of the given types within a box until `visit` returns true, looking at what we know if we can.
+     *
+     * If we're tracking every one of these blocks this only looks at our cache, otherwise it scans the world.
+     * The cache may be missing blocks: Ones tracked since our last scan, and ones past `maxCacheSizePerBlockType`
+     * or purged for being far away. So this is only fit for finding blocks (ex. the nearest one), never for
+     * making sure there aren't any (use {@link #scanWithinBox} for that).
+     *
+     * @return Whether `visit` returned true at any point
+     */
+    private boolean visitWithinBox(BlockPos min, BlockPos max, Predicate<BlockPos> visit, Block... blocks) {
+        if (canAnswerFromCache(blocks)) {
+            ensureUpdated();
+            return currentCache().visitWithinBox(min, max, check -> blockIsInWorld(check, blocks) && visit.test(check), blocks);
+        }
+        return scanWithinBox(min, max, visit, blocks);
+    }
+
+    /**
+     * Visits every block of the given types within a box until `visit` returns true, straight from the world.
+     * Skips every chunk section whose palette can't have them, so it's cheap for boxes a few chunks across.
+     * Chunks that aren't loaded count as having nothing.
+     *
+     * @return Whether `visit` returned true at any point
+     */
+    private boolean scanWithinBox(BlockPos min, BlockPos max, Predicate<BlockPos> visit, Block... blocks) {
+        ChunkSectionSource world = ChunkSectionSource.ofClient();
+        if (world == null) return false;
+        return PaletteChunkScanner.scanBox(world, min, max, state -> contains(blocks, state.getBlock()), (check, state) -> visit.test(check.toImmutable()));
+    }
+
+    /**
+     * Whether our cache is worth asking about these blocks instead of the world (see `visitWithinBox` for what it can miss).
+     */
+    private boolean canAnswerFromCache(Block... blocks) {
+        synchronized (_trackingBlocks) {
+            for (Block block : blocks) {
+                if (!_trackingBlocks.containsKey(block)) return false;
             }
         }
-        return Optional.ofNullable(nearest);
+        for (Block block : blocks) {
+            // Tracked, but not looked for yet.
+            if (_pendingBackfillBlocks.contains(block)) return false;
+        }
+        return true;
     }
 
     private boolean shouldUpdate() {
-        return _timer.elapsed();
+        if (_config.incrementalScanning) {
+            return !_pendingChunkScans.isEmpty() || !_pendingBackfillBlocks.isEmpty();
+        }
+        return _timer.elapsed() && _scanScheduler.anyDue(_ticks);
     }
 
     private void update() {
-        // Perform a baritone scan
-        _timer.reset();
-        _timer.setInterval(_config.scanInterval);
-        CalculationContext ctx = new CalculationContext(_mod.getClientBaritone(), _config.scanAsynchronously);
         if (_config.scanAsynchronously) {
             if (_scanning && _asyncForceResetScanFlag.elapsed()) {
                 Debug.logMessage("SCANNING TOOK TOO LONG! Will assume it ended mid way. Hopefully this won't break anything...");
                 _scanning = false;
             }
-            if (!_scanning) {
-                Baritone.getExecutor().execute(() -> {
-                    _scanning = true;
-                    _asyncForceResetScanFlag.reset();
-                    rescanWorld(ctx, true);
+            // Whatever's pending stays pending until the current scan publishes.
+            if (_scanning) return;
+        }
+        Set<Block> tracking;
+        synchronized (_trackingBlocks) {
+            tracking = new HashSet<>(_trackingBlocks.keySet());
+        }
+        if (_config.incrementalScanning) {
+            // Grab pending work on the client thread, as the chunk tracker isn't thread safe.
+            List<ChunkPos> chunks = new ArrayList<>(_pendingChunkScans);
+            List<Block> backfill = new ArrayList<>(_pendingBackfillBlocks);
+            _pendingChunkScans.clear();
+            _pendingBackfillBlocks.clear();
+            // Blocks may have been untracked since
+            backfill.removeIf(block -> !tracking.contains(block));
+            List<ChunkPos> backfillChunks = backfill.isEmpty() ? Collections.emptyList() : _mod.getChunkTracker().getLoadedChunks();
+            if (tracking.isEmpty()) return;
+            build(next -> scanChunksIncremental(next, tracking, chunks, backfill, backfillChunks));
+            return;
+        }
+        // Perform a baritone scan, only for the blocks that are due.
+        _timer.reset();
+        _timer.setInterval(_config.scanIntervalWhenNewBlocksFound);
+        Set<Block> due = new HashSet<>(_scanScheduler.takeDue(_ticks, _config.scanBatchWindow));
+        due.removeIf(block -> !tracking.contains(block));
+        if (due.isEmpty()) return;
+        if (_config.scanParallelism > 1) {
+            // Grab these here, the chunk tracker isn't thread safe.
+            List<ChunkPos> loadedChunks = _mod.getChunkTracker().getLoadedChunks();
+            build(next -> rescanWorldParallel(next, due, loadedChunks));
+        } else {
+            CalculationContext ctx = new CalculationContext(_mod.getClientBaritone(), _config.scanAsynchronously);
+            build(next -> rescanWorld(next, due, ctx));
+        }
+    }
+
+    /**
+     * Builds a new cache from the current one and publishes it.
+     *
+     * @param work Fills in the new cache. When scanning asynchronously, this runs on baritone's executor
+     *             and may only touch the cache it's handed (and the world).
+     */
+    private void build(Consumer<PosCache> work) {
+        if (_config.scanAsynchronously && _scanning) return;
+        Set<Block> tracking;
+        synchronized (_trackingBlocks) {
+            tracking = new HashSet<>(_trackingBlocks.keySet());
+        }
+        DimensionCache.Builder builder = currentCache().startBuild(_mod.getPlayer() != null ? _mod.getPlayer().getPos() : null, tracking);
+        if (_config.scanAsynchronously) {
+            _scanning = true;
+            _asyncForceResetScanFlag.reset();
+            Baritone.getExecutor().execute(() -> {
+                try {
+                    builder.publish(builder.build(work));
+                } finally {
                     _scanning = false;
-                });
-            }
+                }
+            });
         } else {
             // Synchronous scanning.
-            rescanWorld(ctx, false);
+            builder.publish(builder.build(work));
+            currentCache().syncSnapshot();
         }
     }
 
-    private void rescanWorld(CalculationContext ctx, boolean async) {
-        Block[] blocksToScan;
-        if (async) {
-            // Wait for end of frame
-            try {
-                _endOfFrameMutex.acquire();
-                _endOfFrameMutex.release();
-            } catch (InterruptedException e) {
-                Debug.logWarning("RESCAN INTERRUPTED! Will SKIP the scan (see logs)");
-                _endOfFrameMutex.release();
-                e.printStackTrace();
-                return;
+    /**
+     * Incremental scan: Scans newly loaded chunks for every tracked block,
+     * and every already loaded chunk for newly tracked blocks.
+     *
+     * Whatever is scanned replaces what we knew about that chunk.
+     */
+    private void scanChunksIncremental(PosCache cache, Set<Block> tracking, List<ChunkPos> newChunks, List<Block> backfillBlocks, List<ChunkPos> backfillChunks) {
+        ChunkSectionSource world = ChunkSectionSource.ofClient();
+        if (world == null) return;
+
+        Map<Block, LongArrayList> newChunkResults = _chunkScanner.scan(world, newChunks, tracking, _config.scanParallelism);
+        Map<Block, LongArrayList> backfillResults = Collections.emptyMap();
+        Set<ChunkPos> newChunkSet = new HashSet<>(newChunks);
+        List<ChunkPos> oldChunks = new ArrayList<>(backfillChunks);
+        oldChunks.removeIf(newChunkSet::contains);
+        if (!backfillBlocks.isEmpty()) {
+            backfillResults = _chunkScanner.scan(world, oldChunks, new HashSet<>(backfillBlocks), _config.scanParallelism);
+        }
+        Debug.logInternal("Incremental scan: " + newChunks.size() + " new chunks, " + backfillBlocks.size() + " backfilled blocks.");
+
+        Block[] trackingArray = tracking.toArray(Block[]::new);
+        Block[] backfillArray = backfillBlocks.toArray(Block[]::new);
+        for (ChunkPos chunk : newChunks) {
+            cache.removeChunk(chunk, trackingArray);
+        }
+        if (backfillArray.length != 0) {
+            for (ChunkPos chunk : oldChunks) {
+                cache.removeChunk(chunk, backfillArray);
             }
         }
-        synchronized (_trackingBlocks) {
-            Debug.logInternal("Rescanning world for " + _trackingBlocks.size() + " blocks... Hopefully not dummy slow.");
-            blocksToScan = new Block[_trackingBlocks.size()];
-            _trackingBlocks.keySet().toArray(blocksToScan);
+        addScanResults(cache, newChunkResults);
+        addScanResults(cache, backfillResults);
+    }
+
+    private static void addScanResults(PosCache cache, Map<Block, LongArrayList> results) {
+        for (Map.Entry<Block, LongArrayList> found : results.entrySet()) {
+            LongArrayList positions = found.getValue();
+            for (int i = 0; i < positions.size(); ++i) {
+                cache.add(found.getKey(), positions.getLong(i));
+            }
         }
+    }
+
+    /**
+     * Rescans every loaded chunk on several threads (see `scanParallelism`) instead of through baritone.
+     * Whatever we find replaces everything we knew about those chunks, in one go.
+     */
+    private void rescanWorldParallel(PosCache cache, Set<Block> tracking, List<ChunkPos> loadedChunks) {
+        Debug.logInternal("Rescanning " + loadedChunks.size() + " chunks for " + tracking.size() + " blocks on " + _config.scanParallelism + " threads.");
+        ChunkSectionSource world = ChunkSectionSource.ofClient();
+        if (world == null) return;
+
+        Map<Block, LongArrayList> found = _chunkScanner.scan(world, loadedChunks, tracking, _config.scanParallelism);
 
-        List<BlockPos> knownBlocks;
-        synchronized (_scanMutex) {
-            knownBlocks = currentCache().getKnownLocations(blocksToScan);
+        Block[] trackingArray = tracking.toArray(Block[]::new);
+        for (ChunkPos chunk : loadedChunks) {
+            cache.removeChunk(chunk, trackingArray);
         }
+        addScanResults(cache, found);
+        for (Block block : tracking) {
+            _scanScheduler.reportResult(block, found.get(block));
+        }
+    }
+
+    private void rescanWorld(PosCache cache, Set<Block> tracking, CalculationContext ctx) {
+        Debug.logInternal("Rescanning world for " + tracking.size() + " blocks... Hopefully not dummy slow.");
+        Block[] blocksToScan = tracking.toArray(Block[]::new);
+
+        ClientWorld world = MinecraftClient.getInstance().world;
+        if (world == null) return;
 
         // Clear invalid block pos before rescan
-        for (BlockPos check : knownBlocks) {
-            if (!blockIsValid(check, blocksToScan)) {
+        for (BlockPos check : cache.getKnownLocations(blocksToScan)) {
+            // We may be off the client thread, so ask the world directly instead of the chunk tracker.
+            if (world.getChunkManager().isChunkLoaded(check.getX() >> 4, check.getZ() >> 4) && !worldHasBlock(world, check, blocksToScan)) {
                 //Debug.logInternal("Removed at " + check);
-                synchronized (_scanMutex) {
-                    currentCache().removeBlock(check, blocksToScan);
-                }
+                cache.removeBlock(check, blocksToScan);
             }
         }
 
@@ -357,33 +648,46 @@ public class BlockTracker extends Tracker {
         BlockOptionalMetaLookup boml = new BlockOptionalMetaLookup(blocksToScan);
         List<BlockPos> found = MineProcess.searchWorld(ctx, boml, _config.maxCacheSizePerBlockType, Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
 
-        synchronized (_scanMutex) {
-            if (MinecraftClient.getInstance().world != null) {
-                for (BlockPos pos : found) {
-                    Block block = MinecraftClient.getInstance().world.getBlockState(pos).getBlock();
-                    synchronized (_trackingBlocks) {
-                        if (_trackingBlocks.containsKey(block)) {
-                            //Debug.logInternal("Good: " + block + " at " + pos);
-                            currentCache().addBlock(block, pos);
-                        }
-                    }
-                }
-
-                // Purge if we have too many blocks tracked at once.
-                currentCache().smartPurge(_mod, _mod.getPlayer().getPos());
+        Map<Block, LongArrayList> foundByType = new HashMap<>();
+        for (BlockPos pos : found) {
+            Block block = world.getBlockState(pos).getBlock();
+            if (tracking.contains(block)) {
+                //Debug.logInternal("Good: " + block + " at " + pos);
+                cache.addBlock(block, pos);
+                foundByType.computeIfAbsent(block, b -> new LongArrayList()).add(pos.asLong());
             }
         }
+        for (Block block : tracking) {
+            _scanScheduler.reportResult(block, foundByType.get(block));
+        }
+    }
+
+    /**
+     * @return How many blocks we've forgotten in the current dimension to stay within our cache size limits.
+     */
+    public long getEvictedCount() {
+        return currentCache().getEvictedCount();
+    }
+
+    /**
+     * @return What the unreachable block blacklist for the current dimension has been up to.
+     */
+    public String getBlacklistStats() {
+        return currentCache().getBlacklistStats();
     }
 
     // Checks whether it would be WRONG to say "at pos the block is block"
     // Returns true if wrong, false if correct OR undetermined/unsure.
     public boolean blockIsValid(BlockPos pos, Block... blocks) {
-        synchronized (_scanMutex) {
-            // We can't reach it, don't even try.
-            if (currentCache().blockUnreachable(pos)) {
-                return false;
-            }
+        // We can't reach it, don't even try.
+        if (currentCache().blockUnreachable(pos)) {
+            return false;
         }
+        return blockIsInWorld(pos, blocks);
+    }
+
+    // Same as `blockIsValid`, without caring whether we can reach it.
+    private boolean blockIsInWorld(BlockPos pos, Block... blocks) {
         // It might be OK to remove this. Will have to test.
         if (!_mod.getChunkTracker().isChunkLoaded(pos)) {
             //Debug.logInternal("(failed chunkcheck: " + new ChunkPos(pos) + ")");
@@ -396,12 +700,16 @@ public class BlockTracker extends Tracker {
         if (zaWarudo == null) {
             return true;
         }
+        return worldHasBlock(zaWarudo, pos, blocks);
+    }
+
+    private static boolean worldHasBlock(ClientWorld world, BlockPos pos, Block... blocks) {
         try {
             for (Block block : blocks) {
-                if (zaWarudo.isAir(pos) && WorldHelper.isAir(block)) {
+                if (world.isAir(pos) && WorldHelper.isAir(block)) {
                     return true;
                 }
-                BlockState state = zaWarudo.getBlockState(pos);
+                BlockState state = world.getBlockState(pos);
                 if (state.getBlock() == block) {
                     return true;
                 }
@@ -418,9 +726,7 @@ public class BlockTracker extends Tracker {
      * @return Whether that block is considered unreachable
      */
     public boolean unreachable(BlockPos pos) {
-        synchronized (_scanMutex) {
-            return currentCache().blockUnreachable(pos);
-        }
+        return currentCache().blockUnreachable(pos);
     }
 
     /**
@@ -429,106 +735,326 @@ public class BlockTracker extends Tracker {
      * @param allowedFailures how many times we can try reaching before we finally declare this block "unreachable"
      */
     public void requestBlockUnreachable(BlockPos pos, int allowedFailures) {
-        synchronized (_scanMutex) {
-            currentCache().blacklistBlockUnreachable(_mod, pos, allowedFailures);
-        }
+        currentCache().blacklistBlockUnreachable(_mod, pos, allowedFailures);
     }
 
     public void requestBlockUnreachable(BlockPos pos) {
         requestBlockUnreachable(pos, _config.defaultUnreachableAttemptsAllowed);
     }
 
-    private PosCache currentCache() {
+    /**
+     * Adds regions that finished loading from disk, and periodically writes what we know back to disk.
+     */
+    private void updatePersistentCache() {
+        Map<Block, LongArrayList> loaded;
+        while ((loaded = currentStore().pollLoadedRegion()) != null) {
+            DimensionCache cache = currentCache();
+            for (Map.Entry<Block, LongArrayList> entry : loaded.entrySet()) {
+                Block block = entry.getKey();
+                LongArrayList positions = entry.getValue();
+                for (int i = 0; i < positions.size(); ++i) {
+                    BlockPos pos = BlockPos.fromLong(positions.getLong(i));
+                    // Anything in a loaded chunk gets checked right away, the rest once their chunk loads.
+                    if (blockIsValid(pos, block)) {
+                        cache.addBlock(block, pos);
+                    }
+                }
+            }
+        }
+        if (_persistentFlushTimer.elapsed()) {
+            _persistentFlushTimer.reset();
+            _persistentFlushTimer.setInterval(_config.persistentCacheFlushInterval);
+            flushPersistentCache();
+        }
+    }
+
+    private void flushPersistentCache() {
+        for (Map.Entry<Dimension, RegionBlockStore> store : _stores.entrySet()) {
+            DimensionCache cache = _caches.get(store.getKey());
+            if (cache != null) {
+                cache.flushTo(store.getValue());
+            }
+        }
+    }
+
+    private RegionBlockStore currentStore() {
+        Dimension dimension = WorldHelper.getCurrentDimension();
+        if (!_stores.containsKey(dimension)) {
+            _stores.put(dimension, RegionBlockStore.forCurrentWorld(dimension));
+        }
+        return _stores.get(dimension);
+    }
+
+    private DimensionCache currentCache() {
         Dimension dimension = WorldHelper.getCurrentDimension();
         if (!_caches.containsKey(dimension)) {
-            _caches.put(dimension, new PosCache());
+            _caches.put(dimension, new DimensionCache());
         }
         return _caches.get(dimension);
     }
 
+    private static boolean contains(Block[] blocks, Block block) {
+        for (Block check : blocks) {
+            if (check == block) return true;
+        }
+        return false;
+    }
 
-    static class PosCache {
-        private final HashMap<Block, List<BlockPos>> _cachedBlocks = new HashMap<>();
+    /**
+     * Everything we know about one dimension.
+     *
+     * Readers look at the last published {@link PosCache} plus the changes made on the client thread since.
+     * Publishing is a single atomic swap, nobody reading ever waits on a scan.
+     *
+     * Everything except {@link Builder#build(Consumer)} and {@link Builder#publish(PosCache)} is client thread only.
+     */
+    static class DimensionCache {
+
+        private final AtomicReference<Generation> _published = new AtomicReference<>(new Generation(new PosCache(), 0));
+
+        // What the client thread is reading right now. Only swapped in `syncSnapshot`, so a tick sees consistent data.
+        private Generation _current = _published.get();
 
-        private final HashMap<BlockPos, Block> _cachedByPosition = new HashMap<>();
+        private final BlockDeltaLog _delta = new BlockDeltaLog();
 
-        private final WorldLocateBlacklist _blacklist = new WorldLocateBlacklist();
+        private final WorldLocateBlacklist _blacklist = new WorldLocateBlacklist(_config.unreachableForgetSeconds, _config.maxUnreachableBlocks);
+
+        // When (in millis) positions were last handed out, so recently used blocks are the last to be forgotten.
+        private final Long2LongOpenHashMap _lastAccess = new Long2LongOpenHashMap();
+
+        private final AtomicLong _evictedByTypeLimit = new AtomicLong(),
+                _evictedByTotalLimit = new AtomicLong();
+
+        /**
+         * Switch over to the last published cache, if there's a new one.
+         */
+        public void syncSnapshot() {
+            Generation published = _published.get();
+            if (published != _current) {
+                _current = published;
+                _delta.rebase(published.baseSeq, published.cache::getBlockAt);
+            }
+        }
+
+        /**
+         * Captures everything a new cache needs to be built off the client thread.
+         */
+        public Builder startBuild(Vec3d playerPos, Set<Block> tracking) {
+            syncSnapshot();
+            // Forget access times of blocks we no longer know of.
+            LongIterator accessed = _lastAccess.keySet().iterator();
+            while (accessed.hasNext()) {
+                if (_delta.getEffectiveBlock(accessed.nextLong()) == null) {
+                    accessed.remove();
+                }
+            }
+            return new Builder(_current, _delta.copyOps(), _delta.getLastSeq(), _blacklist.getUnreachableItems(),
+                    playerPos, tracking, new Long2LongOpenHashMap(_lastAccess));
+        }
+
+        public long getEvictedCount() {
+            return _evictedByTypeLimit.get() + _evictedByTotalLimit.get();
+        }
+
+        public int getUnpublishedChangeCount() {
+            return _delta.size();
+        }
 
         public boolean anyFound(Block... blocks) {
+            PosCache snapshot = _current.cache;
             for (Block block : blocks) {
-                if (_cachedBlocks.containsKey(block)) return true;
+                if (_delta.getAddedCount(block) > 0) return true;
+                if (snapshot.getCount(block) > _delta.getRemovedCount(block)) return true;
             }
             return false;
         }
 
         public boolean anyFound(Predicate<BlockPos> isValidTest, Block... blocks) {
+            PosCache snapshot = _current.cache;
             for (Block block : blocks) {
-                if (_cachedBlocks.containsKey(block)) {
-                    for (BlockPos pos : _cachedBlocks.get(block)) {
-                        if (isValidTest.test(pos)) {
-                            return true;
-                        }
-                    }
+                ChunkBucketIndex index = snapshot.getIndex(block);
+                if (index != null && index.anyMatch(pos -> !_delta.isRemoved(pos.asLong(), block) && isValidTest.test(pos))) {
+                    return true;
+                }
+            }
+            for (Long2ObjectMap.Entry<Block> added : _delta.getAdded().long2ObjectEntrySet()) {
+                if (contains(blocks, added.getValue()) && isValidTest.test(BlockPos.fromLong(added.getLongKey()))) {
+                    return true;
                 }
             }
             return false;
         }
 
         public List<BlockPos> getKnownLocations(Block... blocks) {
+            PosCache snapshot = _current.cache;
             List<BlockPos> result = new ArrayList<>();
             for (Block block : blocks) {
-                List<BlockPos> found = _cachedBlocks.get(block);
-                if (found != null) {
-                    result.addAll(found);
+                ChunkBucketIndex index = snapshot.getIndex(block);
+                if (index == null) continue;
+                index.forEachPacked(packed -> {
+                    if (!_delta.isRemoved(packed, block)) {
+                        result.add(BlockPos.fromLong(packed));
+                    }
+                });
+            }
+            for (Long2ObjectMap.Entry<Block> added : _delta.getAdded().long2ObjectEntrySet()) {
+                if (contains(blocks, added.getValue())) {
+                    result.add(BlockPos.fromLong(added.getLongKey()));
                 }
             }
             return result;
         }
 
-        public void removeBlock(BlockPos pos, Block... blocks) {
+        /**
+         * Gets the nearest block, searching outwards chunk by chunk from `position`.
+         * Only the chunks that could contain something closer than what we've found are looked at.
+         */
+        public Optional<BlockPos> getNearest(AltoClef mod, Vec3d position, Predicate<BlockPos> isValid, Block... blocks) {
+            if (!anyFound(blocks)) {
+                //Debug.logInternal("(failed cataloguecheck for " + block.getTranslationKey() + ")");
+                return Optional.empty();
+            }
+
+            PosCache snapshot = _current.cache;
+            List<ChunkBucketIndex> indices = new ArrayList<>(blocks.length);
             for (Block block : blocks) {
-                if (_cachedBlocks.containsKey(block)) {
-                    _cachedBlocks.get(block).remove(pos);
-                    _cachedByPosition.remove(pos);
-                    if (_cachedBlocks.get(block).size() == 0) {
-                        _cachedBlocks.remove(block);
+                ChunkBucketIndex index = snapshot.getIndex(block);
+                if (index != null) {
+                    indices.add(index);
+                }
+            }
+
+            ChunkBucketIndex.PositionScore score = (x, y, z) -> BaritoneHelper.calculateGenericHeuristic(position.x, position.y, position.z, x + 0.5, y + 0.5, z + 0.5);
+            // Can't remove while we're searching, so clean these up afterwards.
+            List<BlockPos> invalid = new ArrayList<>();
+            Predicate<BlockPos> accept = pos -> {
+                // If our current block isn't valid, fix it up.
+                if (!mod.getBlockTracker().blockIsValid(pos, blocks)) {
+                    invalid.add(pos);
+                    return false;
+                }
+                return isValid.test(pos);
+            };
+            Optional<BlockPos> closest = ChunkBucketIndex.getNearest(indices, position, score,
+                    // The heuristic can't be lower than walking in a straight line horizontally.
+                    range -> BaritoneHelper.calculateGenericHeuristic(0, 0, 0, range, 0, 0),
+                    pos -> {
+                        long packed = pos.asLong();
+                        if (_delta.isRemoved(packed, snapshot.getBlockAt(packed))) return false;
+                        return accept.test(pos);
+                    });
+
+            // Anything added since the snapshot isn't in its indices, check those on their own. There shouldn't be many.
+            BlockPos best = closest.orElse(null);
+            double bestScore = best != null ? score.score(best.getX(), best.getY(), best.getZ()) : Double.POSITIVE_INFINITY;
+            for (Long2ObjectMap.Entry<Block> added : _delta.getAdded().long2ObjectEntrySet()) {
+                if (!contains(blocks, added.getValue())) continue;
+                long packed = added.getLongKey();
+                double check = score.score(BlockPos.unpackLongX(packed), BlockPos.unpackLongY(packed), BlockPos.unpackLongZ(packed));
+                if (check < bestScore) {
+                    BlockPos pos = BlockPos.fromLong(packed);
+                    if (accept.test(pos)) {
+                        best = pos;
+                        bestScore = check;
                     }
                 }
             }
+
+            for (BlockPos pos : invalid) {
+                removeBlock(pos, blocks);
+            }
+
+            if (best != null) {
+                _lastAccess.put(best.asLong(), System.currentTimeMillis());
+            }
+
+            return Optional.ofNullable(best);
         }
 
-        public void addBlock(Block block, BlockPos pos) {
-            if (blockUnreachable(pos)) return;
-            if (_cachedByPosition.containsKey(pos)) {
-                if (_cachedByPosition.get(pos) == block) {
-                    // We're already tracked
-                    return;
-                } else {
-                    // We're tracked incorrectly, fix
-                    removeBlock(pos, block);
+        /**
+         * Visits every known block of the given types within a box until `visit` returns true.
+         *
+         * @param min Lowest corner of the box (inclusive)
+         * @param max Highest corner of the box (inclusive)
+         */
+        public boolean visitWithinBox(BlockPos min, BlockPos max, Predicate<BlockPos> visit, Block... blocks) {
+            PosCache snapshot = _current.cache;
+            for (int chunkX = min.getX() >> 4; chunkX <= max.getX() >> 4; ++chunkX) {
+                for (int chunkZ = min.getZ() >> 4; chunkZ <= max.getZ() >> 4; ++chunkZ) {
+                    for (Block block : blocks) {
+                        ChunkBucketIndex index = snapshot.getIndex(block);
+                        if (index != null && index.anyMatchInChunk(chunkX, chunkZ, packed ->
+                                isWithinBox(packed, min, max) && !_delta.isRemoved(packed, block) && visit.test(BlockPos.fromLong(packed)))) {
+                            return true;
+                        }
+                    }
                 }
             }
-            if (!anyFound(block)) {
-                _cachedBlocks.put(block, new ArrayList<>());
+            for (Long2ObjectMap.Entry<Block> added : _delta.getAdded().long2ObjectEntrySet()) {
+                long packed = added.getLongKey();
+                if (contains(blocks, added.getValue()) && isWithinBox(packed, min, max) && visit.test(BlockPos.fromLong(packed))) {
+                    return true;
+                }
             }
-            _cachedBlocks.get(block).add(pos);
-            _cachedByPosition.put(pos, block);
+            return false;
         }
 
+        private static boolean isWithinBox(long packed, BlockPos min, BlockPos max) {
+            int x = BlockPos.unpackLongX(packed),
+                    y = BlockPos.unpackLongY(packed),
+                    z = BlockPos.unpackLongZ(packed);
+            return x >= min.getX() && x <= max.getX()
+                    && y >= min.getY() && y <= max.getY()
+                    && z >= min.getZ() && z <= max.getZ();
+        }
 
-        public void clear() {
-            Debug.logInternal("CLEARED BLOCK CACHE");
-            _cachedBlocks.clear();
-            _cachedByPosition.clear();
-            _blacklist.clear();
+        public void addBlock(Block block, BlockPos pos) {
+            if (blockUnreachable(pos)) return;
+            long packed = pos.asLong();
+            // We're already tracked
+            if (_delta.getEffectiveBlock(packed) == block) return;
+            _delta.add(block, packed);
         }
 
-        public int getBlockTrackCount() {
-            int count = 0;
-            for (List<BlockPos> list : _cachedBlocks.values()) {
-                count += list.size();
+        public void removeBlock(BlockPos pos, Block... blocks) {
+            long packed = pos.asLong();
+            Block current = _delta.getEffectiveBlock(packed);
+            if (current != null && contains(blocks, current)) {
+                _delta.remove(current, packed);
+            }
+        }
+
+        /**
+         * Forget every block within a chunk.
+         */
+        public void removeChunk(ChunkPos chunk) {
+            LongArrayList positions = new LongArrayList();
+            for (ChunkBucketIndex index : _current.cache.getIndices()) {
+                index.forEachInChunk(chunk.x, chunk.z, positions::add);
+            }
+            LongIterator added = _delta.getAdded().keySet().iterator();
+            while (added.hasNext()) {
+                long packed = added.nextLong();
+                if (BlockPos.unpackLongX(packed) >> 4 == chunk.x && BlockPos.unpackLongZ(packed) >> 4 == chunk.z) {
+                    positions.add(packed);
+                }
+            }
+            for (int i = 0; i < positions.size(); ++i) {
+                long packed = positions.getLong(i);
+                Block current = _delta.getEffectiveBlock(packed);
+                if (current != null) {
+                    _delta.remove(current, packed);
+                }
             }
-            return count;
+        }
+
+        public void flushTo(RegionBlockStore store) {
+            PosCache effective = _current.cache;
+            if (_delta.size() != 0) {
+                effective = effective.copy();
+                BlockDeltaLog.replay(_delta.copyOps(), effective);
+            }
+            effective.flushTo(store);
         }
 
         public void blacklistBlockUnreachable(AltoClef mod, BlockPos pos, int allowedFailures) {
@@ -539,141 +1065,316 @@ public class BlockTracker extends Tracker {
             return _blacklist.unreachable(pos);
         }
 
-        // Gets nearest block. For now does linear search. In the future might optimize this a bit
-        public Optional<BlockPos> getNearest(AltoClef mod, Vec3d position, Predicate<BlockPos> isValid, Block... blocks) {
-            if (!anyFound(blocks)) {
-                //Debug.logInternal("(failed cataloguecheck for " + block.getTranslationKey() + ")");
-                return Optional.empty();
-            }
+        public String getBlacklistStats() {
+            return _blacklist.getStats();
+        }
 
-            BlockPos closest = null;
-            double minScore = Double.POSITIVE_INFINITY;
+        public void clear() {
+            Debug.logInternal("CLEARED BLOCK CACHE (blacklist: " + _blacklist.getStats() + ")");
+            // A scan still running was started from the old cache, so it will fail to publish over this one.
+            _published.set(new Generation(new PosCache(), _delta.getLastSeq()));
+            _current = _published.get();
+            _delta.clear();
+            _blacklist.clear();
+            _lastAccess.clear();
+        }
 
-            List<BlockPos> blockList = getKnownLocations(blocks);
+        private static class Generation {
+            public final PosCache cache;
+            // The newest change from the delta log this cache contains
+            public final long baseSeq;
 
-            int toPurge = blockList.size() - _config.maxCacheSizePerBlockType;
+            public Generation(PosCache cache, long baseSeq) {
+                this.cache = cache;
+                this.baseSeq = baseSeq;
+            }
+        }
 
-            boolean closestPurged = false;
+        /**
+         * Builds the next cache. Everything it needs is captured on the client thread, so it can run anywhere.
+         */
+        class Builder {
+            private final Generation _base;
+            private final List<BlockDeltaLog.Op> _ops;
+            private final long _baseSeq;
+            private final List<BlockPos> _unreachable;
+            private final Vec3d _playerPos;
+            private final Set<Block> _tracking;
+            private final Long2LongOpenHashMap _lastAccess;
+
+            public Builder(Generation base, List<BlockDeltaLog.Op> ops, long baseSeq, List<BlockPos> unreachable, Vec3d playerPos, Set<Block> tracking, Long2LongOpenHashMap lastAccess) {
+                _base = base;
+                _ops = ops;
+                _baseSeq = baseSeq;
+                _unreachable = unreachable;
+                _playerPos = playerPos;
+                _tracking = tracking;
+                _lastAccess = lastAccess;
+            }
 
-            for (BlockPos pos : blockList) {
-                // If our current block isn't valid, fix it up. This cleans while we're iterating.
-                if (!mod.getBlockTracker().blockIsValid(pos, blocks)) {
-                    removeBlock(pos, blocks);
-                    continue;
+            /**
+             * @param work Fills in the new cache, starting off as the current cache plus every change made since.
+             */
+            public PosCache build(Consumer<PosCache> work) {
+                PosCache next = _base.cache.copy();
+                BlockDeltaLog.replay(_ops, next);
+                work.accept(next);
+                for (BlockPos pos : _unreachable) {
+                    next.removeAt(pos.asLong());
+                }
+                if (_playerPos != null) {
+                    // Purge if we have too many blocks tracked at once.
+                    PosCache.PurgeResult purged = next.smartPurge(_playerPos, _tracking, _lastAccess, System.currentTimeMillis());
+                    if (purged.byTypeLimit != 0 || purged.byTotalLimit != 0) {
+                        _evictedByTypeLimit.addAndGet(purged.byTypeLimit);
+                        _evictedByTotalLimit.addAndGet(purged.byTotalLimit);
+                        Debug.logInternal("Block cache evicted " + purged.byTypeLimit + " (per type limit) + " + purged.byTotalLimit
+                                + " (total limit), " + next.getBlockTrackCount() + " remain. "
+                                + getEvictedCount() + " evicted so far.");
+                    }
                 }
-                if (!isValid.test(pos)) continue;
+                return next;
+            }
 
-                double score = BaritoneHelper.calculateGenericHeuristic(position, WorldHelper.toVec3d(pos));
+            public void publish(PosCache next) {
+                // Only goes through if nobody cleared or published over the cache we started from.
+                if (!_published.compareAndSet(_base, new Generation(next, _baseSeq))) {
+                    Debug.logInternal("Block cache changed while scanning, dropped the scan.");
+                }
+            }
+        }
+    }
+
+    /**
+     * A set of tracked block positions. Once published it is never modified again, see {@link DimensionCache}.
+     */
+    static class PosCache implements BlockDeltaLog.Target {
+        private final HashMap<Block, ChunkBucketIndex> _cachedBlocks = new HashMap<>();
 
-                boolean currentlyClosest = false;
-                boolean purged = false;
+        // Keyed by BlockPos.asLong()
+        private final Long2ObjectOpenHashMap<Block> _cachedByPosition = new Long2ObjectOpenHashMap<>();
 
-                if (score < minScore) {
-                    minScore = score;
-                    closest = pos;
-                    currentlyClosest = true;
+        public PosCache copy() {
+            PosCache result = new PosCache();
+            for (Map.Entry<Block, ChunkBucketIndex> entry : _cachedBlocks.entrySet()) {
+                result._cachedBlocks.put(entry.getKey(), entry.getValue().copy());
+            }
+            result._cachedByPosition.putAll(_cachedByPosition);
+            return result;
+        }
+
+        public ChunkBucketIndex getIndex(Block block) {
+            return _cachedBlocks.get(block);
+        }
+
+        public Collection<ChunkBucketIndex> getIndices() {
+            return _cachedBlocks.values();
+        }
+
+        public int getCount(Block block) {
+            ChunkBucketIndex index = _cachedBlocks.get(block);
+            return index != null ? index.size() : 0;
+        }
+
+        public Block getBlockAt(long packedPos) {
+            return _cachedByPosition.get(packedPos);
+        }
+
+        public List<BlockPos> getKnownLocations(Block... blocks) {
+            List<BlockPos> result = new ArrayList<>();
+            for (Block block : blocks) {
+                ChunkBucketIndex found = _cachedBlocks.get(block);
+                if (found != null) {
+                    found.addAllTo(result);
                 }
+            }
+            return result;
+        }
 
-                if (toPurge > 0) {
-                    double sqDist = position.squaredDistanceTo(WorldHelper.toVec3d(pos));
-                    if (sqDist > _config.cutoffDistance * _config.cutoffDistance) {
-                        // cut this one off.
-                        for (Block block : blocks) {
-                            if (_cachedBlocks.containsKey(block)) {
-                                removeBlock(pos, block);
-                            }
-                        }
-                        toPurge--;
-                        purged = true;
-                    }
+        public void removeBlock(BlockPos pos, Block... blocks) {
+            long packed = pos.asLong();
+            for (Block block : blocks) {
+                remove(block, packed);
+            }
+        }
+
+        @Override
+        public void remove(Block block, long packedPos) {
+            ChunkBucketIndex index = _cachedBlocks.get(block);
+            if (index != null && index.remove(packedPos)) {
+                _cachedByPosition.remove(packedPos);
+                if (index.isEmpty()) {
+                    _cachedBlocks.remove(block);
                 }
+            }
+        }
+
+        /**
+         * Forget whatever block is at a position.
+         */
+        public void removeAt(long packedPos) {
+            Block current = _cachedByPosition.get(packedPos);
+            if (current != null) {
+                remove(current, packedPos);
+            }
+        }
 
-                if (currentlyClosest) {
-                    closestPurged = purged;
+        /**
+         * Forget every block of the given types within a chunk.
+         */
+        public void removeChunk(ChunkPos chunk, Block... blocks) {
+            for (Block block : blocks) {
+                ChunkBucketIndex index = _cachedBlocks.get(block);
+                if (index == null) continue;
+                LongIterator removed = index.removeChunk(chunk.x, chunk.z).iterator();
+                while (removed.hasNext()) {
+                    _cachedByPosition.remove(removed.nextLong());
+                }
+                if (index.isEmpty()) {
+                    _cachedBlocks.remove(block);
                 }
             }
+        }
 
-            while (toPurge > 0) {
-                if (blockList.size() == 0) {
-                    //noinspection UnusedAssignment
-                    toPurge = 0;
-                    break;
+        public void addBlock(Block block, BlockPos pos) {
+            add(block, pos.asLong());
+        }
+
+        @Override
+        public void add(Block block, long packedPos) {
+            Block current = _cachedByPosition.get(packedPos);
+            if (current != null) {
+                if (current == block) {
+                    // We're already tracked
+                    return;
+                } else {
+                    // We're tracked incorrectly, fix
+                    remove(current, packedPos);
                 }
-                blockList.remove(blockList.size() - 1);
-                toPurge--;
             }
+            _cachedBlocks.computeIfAbsent(block, b -> new ChunkBucketIndex()).add(packedPos);
+            _cachedByPosition.put(packedPos, block);
+        }
 
-            // Special case: Our closest was purged. Add us back.
-            if (closestPurged) {
-                Debug.logInternal("Rare edge case: Closest block was purged cause it was real far away, it will now be added back.");
-                blockList.add(closest);
+        public int getBlockTrackCount() {
+            int count = 0;
+            for (ChunkBucketIndex index : _cachedBlocks.values()) {
+                count += index.size();
             }
+            return count;
+        }
 
-            return Optional.ofNullable(closest);
+        public void flushTo(RegionBlockStore store) {
+            store.flush(_cachedBlocks);
+        }
+
+        public static class PurgeResult {
+            public int byTypeLimit;
+            public int byTotalLimit;
         }
 
         /**
-         * Purge enough blocks so our size is small enough
+         * Purge enough blocks so our size is small enough.
+         *
+         * The blocks most worth forgetting go first: far from the player, not handed out in a while,
+         * and of types nobody is tracking anymore. Picked with a bounded heap instead of sorting everything,
+         * and removed through {@link #remove(Block, long)} so the per type index and by position map stay in sync.
+         *
+         * @param lastAccess When (millis) positions were last handed out
+         * @param now        Current time (millis)
          */
-        public void smartPurge(AltoClef mod, Vec3d playerPos) {
-
-            // Clear cached by position blocks, as they can be a handful.
-            try {
-                int MAX_CACHE_SIZE = _config.maxTotalCacheSize;
-                if (_cachedByPosition.size() > MAX_CACHE_SIZE) {
-                    List<BlockPos> toRemoveList = new ArrayList<>(_cachedByPosition.size() - MAX_CACHE_SIZE);
-                    // Just purge randomly.
-                    for (BlockPos pos : _cachedByPosition.keySet()) {
-                        if (_cachedByPosition.size() - toRemoveList.size() < MAX_CACHE_SIZE) {
-                            break;
-                        }
-                        toRemoveList.add(pos);
-                    }
-                    for (BlockPos toDelete : toRemoveList) {
-                        _cachedByPosition.remove(toDelete);
+        public PurgeResult smartPurge(Vec3d playerPos, Set<Block> tracking, Long2LongOpenHashMap lastAccess, long now) {
+            PurgeResult result = new PurgeResult();
+
+            // Too many of one type
+            for (Block block : _cachedBlocks.keySet().toArray(Block[]::new)) {
+                ChunkBucketIndex index = _cachedBlocks.get(block);
+                int excess = index.size() - _config.maxCacheSizePerBlockType;
+                if (excess <= 0) continue;
+                EvictionHeap evict = new EvictionHeap(excess);
+                index.forEachPacked(packed -> evict.offer(packed, getEvictionScore(packed, block, playerPos, tracking, lastAccess, now)));
+                result.byTypeLimit += removeAll(block, evict);
+            }
+
+            // Too many overall
+            int excess = _cachedByPosition.size() - _config.maxTotalCacheSize;
+            if (excess > 0) {
+                EvictionHeap evict = new EvictionHeap(excess);
+                for (Long2ObjectMap.Entry<Block> entry : _cachedByPosition.long2ObjectEntrySet()) {
+                    evict.offer(entry.getLongKey(), getEvictionScore(entry.getLongKey(), entry.getValue(), playerPos, tracking, lastAccess, now));
+                }
+                for (int i = 0; i < evict.size(); ++i) {
+                    long packed = evict.getPosition(i);
+                    if (_cachedByPosition.containsKey(packed)) {
+                        removeAt(packed);
+                        result.byTotalLimit++;
                     }
                 }
-            } catch (Exception e) {
-                Debug.logWarning("Failed to purge/reduce _cachedByPosition cache.: Its size remains at " + _cachedByPosition.size());
             }
 
-            // ^^^ TODO: Something about that feels fishy, particularly how it's disconnected from the _cachedBlocks purging.
-            // I smell a dangerous edge case bug.
-
-            for (Block block : _cachedBlocks.keySet()) {
-                List<BlockPos> tracking = _cachedBlocks.get(block);
+            return result;
+        }
 
-                // Clear blacklisted blocks
-                try {
-                    // Untrack the blocks further away
-                    tracking = tracking.stream()
-                            .filter(pos -> !_blacklist.unreachable(pos))
-                            // This is invalid, because some blocks we may want to GO TO not BREAK.
-                            //.filter(pos -> !mod.getExtraBaritoneSettings().shouldAvoidBreaking(pos))
-                            .distinct()
-                            .sorted(StlHelper.compareValues((BlockPos blockpos) -> blockpos.getSquaredDistance(playerPos, true)))
-                            .collect(Collectors.toList());
-                    tracking = tracking.stream()
-                            .limit(_config.maxCacheSizePerBlockType)
-                            .collect(Collectors.toList());
-                    // This won't update otherwise.
-                    _cachedBlocks.put(block, tracking);
-                } catch (IllegalArgumentException e) {
-                    // Comparison method violates its general contract: Sometimes transitivity breaks.
-                    // In which case, ignore it.
-                    Debug.logWarning("Failed to purge/reduce block search count for " + block + ": It remains at " + tracking.size());
+        private int removeAll(Block block, EvictionHeap evict) {
+            int removed = 0;
+            for (int i = 0; i < evict.size(); ++i) {
+                long packed = evict.getPosition(i);
+                if (_cachedByPosition.get(packed) == block) {
+                    remove(block, packed);
+                    removed++;
                 }
             }
+            return removed;
+        }
+
+        /**
+         * Higher means more worth forgetting. Roughly "how many cutoff distances away" plus penalties.
+         */
+        private static double getEvictionScore(long packed, Block block, Vec3d playerPos, Set<Block> tracking, Long2LongOpenHashMap lastAccess, long now) {
+            double dx = BlockPos.unpackLongX(packed) + 0.5 - playerPos.x,
+                    dy = BlockPos.unpackLongY(packed) + 0.5 - playerPos.y,
+                    dz = BlockPos.unpackLongZ(packed) + 0.5 - playerPos.z;
+            double score = Math.sqrt(dx * dx + dy * dy + dz * dz) / _config.cutoffDistance;
+            // Never handed out counts the same as handed out a long time ago.
+            double age = lastAccess.containsKey(packed) ? (now - lastAccess.get(packed)) / (_config.evictionRecencySeconds * 1000) : 1;
+            score += Math.max(0, Math.min(age, 1));
+            // Nobody is looking for these right now, we only remember them for later.
+            if (!tracking.contains(block)) {
+                score += 1;
+            }
+            return score;
         }
     }
 
     static class BlockTrackerConfig {
+        // How often (in seconds) each tracked block gets rescanned when scanning periodically
         public double scanInterval = 7;
+        // Periodic scanning: The least amount of time (in seconds) between two scans
         public double scanIntervalWhenNewBlocksFound = 2;
+        // Periodic scanning: `scanInterval` for specific blocks, by id (ex. "minecraft:lava": 3)
+        public HashMap<String, Double> blockScanIntervals = new HashMap<>();
+        // Periodic scanning: Blocks whose scans keep finding the same thing get rescanned up to this many times less often.
+        public int maxScanBackoff = 8;
+        // Periodic scanning: Blocks this far (0 to 1) through their interval get scanned along with blocks that are due.
+        public double scanBatchWindow = 0.5;
         public boolean scanAsynchronously = true;
         public int maxTotalCacheSize = 10000;
         public int maxCacheSizePerBlockType = 100;
         public double cutoffDistance = 64*2;
         public int defaultUnreachableAttemptsAllowed = 4;
+        // Forget that a block was unreachable after this many seconds without failing to reach it again
+        public double unreachableForgetSeconds = 300;
+        // Remember at most this many unreachable blocks per dimension, forgetting the ones that failed longest ago first.
+        public int maxUnreachableBlocks = 2000;
+        // If true, only scan chunks as they load and follow block changes instead of rescanning the whole world every `scanInterval` seconds. Off by default until it has seen more use.
+        public boolean incrementalScanning = false;
+        // How many threads to scan chunks with. 1 scans on a single (baritone's) thread.
+        public int scanParallelism = 1;
+        // If true, remember block locations on disk (under altoclef/block_cache) per server/dimension so we don't start from scratch after re-joining. Off by default.
+        public boolean persistentCache = false;
+        // How often (in seconds) we write remembered block locations to disk
+        public double persistentCacheFlushInterval = 30;
+        // When the cache is full, blocks handed out within this many seconds are kept over ones that weren't.
+        public double evictionRecencySeconds = 60;
     }
 }
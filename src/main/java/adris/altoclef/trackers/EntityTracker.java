@@ -3,12 +3,23 @@ package adris.altoclef.trackers;
 import adris.altoclef.Debug;
 import adris.altoclef.mixins.PersistentProjectileEntityAccessor;
 import adris.altoclef.trackers.blacklisting.EntityLocateBlacklist;
+import adris.altoclef.trackers.entitytracking.CollisionRegistry;
+import adris.altoclef.trackers.entitytracking.EntityGrid;
+import adris.altoclef.trackers.entitytracking.EntitySnapshot;
+import adris.altoclef.trackers.entitytracking.PositionHistory;
+import adris.altoclef.trackers.entitytracking.EntityTypeIndex;
 import adris.altoclef.util.ItemTarget;
 import adris.altoclef.util.helpers.BaritoneHelper;
 import adris.altoclef.util.baritone.CachedProjectile;
+import adris.altoclef.util.baritone.ProjectileBatch;
+import adris.altoclef.util.baritone.ProjectileDangerMap;
 import adris.altoclef.util.helpers.EntityHelper;
 import adris.altoclef.util.helpers.ProjectileHelper;
+import it.unimi.dsi.fastutil.ints.Int2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ClientPlayerEntity;
+import net.minecraft.client.world.ClientWorld;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.ItemEntity;
 import net.minecraft.entity.mob.*;
@@ -17,41 +28,111 @@ import net.minecraft.entity.projectile.PersistentProjectileEntity;
 import net.minecraft.entity.projectile.ProjectileEntity;
 import net.minecraft.item.Item;
 import net.minecraft.util.math.Vec3d;
+import net.minecraft.world.World;
 
 import java.util.*;
 import java.util.function.Predicate;
 
 /**
  * Keeps track of entities so we can search/grab them.
+ *
+ * Entities get indexed as the world adds/removes them, so each tick only has to refresh
+ * whatever depends on their changing state (alive, position, grounded...)
+ *
+ * Pathing threads should read {@link #getSnapshot()}, which needs no locking.
+ * The rest is guarded by {@link BaritoneHelper#MINECRAFT_LOCK} for callers that still read it from other threads.
  */
 @SuppressWarnings("rawtypes")
 public class EntityTracker extends Tracker {
 
-    private final HashMap<Item, List<ItemEntity>> _itemDropLocations = new HashMap<>();
-    private final HashMap<Class, List<Entity>> _entityMap = new HashMap<>();
+    // The world our indexes below describe. Any other world means we have to rebuild them.
+    private World _trackedWorld;
+    // Every living entity in the tracked world, kept up to date by the world's entity add/remove events.
+    private final LinkedHashSet<Entity> _entities = new LinkedHashSet<>();
 
+    // Indexes maintained on add/remove
+    private final HashMap<Class, List<Entity>> _entityMap = new HashMap<>();
+    private final HashMap<String, PlayerEntity> _playerMap = new HashMap<>();
+    private final LinkedHashSet<ItemEntity> _itemEntities = new LinkedHashSet<>();
+    private final LinkedHashSet<Entity> _hostileCandidates = new LinkedHashSet<>();
+    // Projectiles by entity id, along with what we know about their trajectory
+    private final Int2ObjectLinkedOpenHashMap<ProjectileEntity> _projectileEntities = new Int2ObjectLinkedOpenHashMap<>();
+    private final Int2ObjectOpenHashMap<CachedProjectile> _trackedProjectiles = new Int2ObjectOpenHashMap<>();
+
+    // Every entity filed under every class/interface it is, for queries like "any HostileEntity"
+    private final EntityTypeIndex _typeIndex = new EntityTypeIndex();
+    // Where everything is, for closest/range queries
+    private final EntityGrid _grid = new EntityGrid();
+
+    // Views that depend on state that changes constantly (position, grounded, angry...)
+    // Each one is worked out the first time it's asked for in a tick (see the ensure methods), so nobody pays for views they don't use.
+    private final HashMap<Item, List<ItemEntity>> _itemDropLocations = new HashMap<>();
     private final List<Entity> _closeEntities = new ArrayList<>();
     private final List<Entity> _hostiles = new ArrayList<>();
-
     private final List<CachedProjectile> _projectiles = new ArrayList<>();
+    private final ProjectileBatch _projectileBatch = new ProjectileBatch(16, CachedProjectile.TRAJECTORY_TICKS);
+    private ProjectileDangerMap _projectileDangerMap = ProjectileDangerMap.EMPTY;
+    private boolean _closeEntitiesDirty = true,
+            _itemDropsDirty = true,
+            _hostilesDirty = true,
+            _projectilesDirty = true;
+    // The last tick anybody asked for projectiles. Hostiles are only ever worked out on demand.
+    private long _projectilesLastWanted = Long.MIN_VALUE / 2;
+    // Keep putting their danger map in the snapshot for this many ticks after that.
+    private static final int KEEP_PUBLISHING_TICKS = 20;
+    // Published every update for pathing threads, which read it instead of locking.
+    private volatile EntitySnapshot _snapshot = EntitySnapshot.EMPTY;
+
+    // Where we've seen each player lately, to tell where they are headed. Only remembers so many players, least recently seen go first.
+    private static final int PLAYER_HISTORY_SIZE = 20;
+    private static final int MAX_REMEMBERED_PLAYERS = 64;
+    private final LinkedHashMap<String, PositionHistory> _playerHistory = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PositionHistory> eldest) {
+            return size() > MAX_REMEMBERED_PLAYERS;
+        }
+    };
+    // Counts our updates, which happen once a tick. Timestamps player history.
+    private long _ticks = 0;
 
-    private final HashMap<String, PlayerEntity> _playerMap = new HashMap<>();
-    private final HashMap<String, Vec3d> _playerLastCoordinates = new HashMap<>();
+    // Up to this many candidates, checking each one beats searching the grid.
+    private static final int LINEAR_SCAN_MAX = 24;
+    // Hostiles further than this don't concern us.
+    private static final double HOSTILE_RANGE = 26;
+
+    // Forget unreachable entities after this long without failing again, they've probably moved (or died).
+    private static final double ENTITY_BLACKLIST_FORGET_SECONDS = 120;
+    private static final int ENTITY_BLACKLIST_MAX_SIZE = 500;
 
-    private final EntityLocateBlacklist _entityBlacklist = new EntityLocateBlacklist();
+    private final EntityLocateBlacklist _entityBlacklist = new EntityLocateBlacklist(ENTITY_BLACKLIST_FORGET_SECONDS, ENTITY_BLACKLIST_MAX_SIZE);
 
-    private final HashMap<PlayerEntity, List<Entity>> _entitiesCollidingWithPlayerAccumulator = new HashMap<>();
-    private final HashMap<PlayerEntity, HashSet<Entity>> _entitiesCollidingWithPlayer = new HashMap<>();
+    private final CollisionRegistry _collisions = new CollisionRegistry();
 
     public EntityTracker(TrackerManager manager) {
         super(manager);
     }
 
-    public void registerPlayerCollision(PlayerEntity player, Entity entity) {
-        if (!_entitiesCollidingWithPlayerAccumulator.containsKey(player)) {
-            _entitiesCollidingWithPlayerAccumulator.put(player, new ArrayList<>());
+    public void onEntityAdded(Entity entity) {
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            // Entities from a world we're not tracking get picked up when we rebuild for that world.
+            if (_trackedWorld == null || entity.world != _trackedWorld) return;
+            if (!shouldTrack(entity)) return;
+            if (_entities.add(entity)) {
+                index(entity);
+            }
         }
-        _entitiesCollidingWithPlayerAccumulator.get(player).add(entity);
+    }
+
+    public void onEntityRemoved(Entity entity) {
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            if (_entities.remove(entity)) {
+                unindex(entity);
+            }
+        }
+    }
+
+    public void registerPlayerCollision(PlayerEntity player, Entity entity) {
+        _collisions.register(player, entity);
     }
 
     /**
@@ -70,7 +151,7 @@ public class EntityTracker extends Tracker {
     }
 
     public boolean isCollidingWithPlayer(PlayerEntity player, Entity entity) {
-        return _entitiesCollidingWithPlayer.containsKey(player) && _entitiesCollidingWithPlayer.get(player).contains(entity);
+        return _collisions.isColliding(player, entity);
     }
     public boolean isCollidingWithPlayer(Entity entity) {
         return isCollidingWithPlayer(_mod.getPlayer(), entity);
@@ -99,6 +180,7 @@ public class EntityTracker extends Tracker {
 
     public Optional<ItemEntity> getClosestItemDrop(Vec3d position, Predicate<ItemEntity> acceptPredicate, ItemTarget... targets) {
         ensureUpdated();
+        ensureItemDrops();
         if (targets.length == 0) {
             Debug.logError("You asked for the drop position of zero items... Most likely a typo.");
             return Optional.empty();
@@ -108,21 +190,41 @@ public class EntityTracker extends Tracker {
             return Optional.empty();
         }
 
-        ItemEntity closestEntity = null;
-        float minCost = Float.POSITIVE_INFINITY;
+        // Few drops: Just check them all.
+        int candidates = 0;
+        Set<Item> matches = new HashSet<>();
         for (ItemTarget target : targets) {
             for (Item item : target.getMatches()) {
-                if (!itemDropped(item)) continue;
-                for (ItemEntity entity : _itemDropLocations.get(item)) {
-                    if (_entityBlacklist.unreachable(entity)) continue;
-                    if (!entity.getStack().getItem().equals(item)) continue;
-                    if (!acceptPredicate.test(entity)) continue;
+                if (matches.add(item) && _itemDropLocations.containsKey(item)) {
+                    candidates += _itemDropLocations.get(item).size();
+                }
+            }
+        }
+        if (candidates > LINEAR_SCAN_MAX) {
+            Entity closest = _grid.getClosest(position, Double.POSITIVE_INFINITY,
+                    entity -> BaritoneHelper.calculateGenericHeuristic(position, entity.getPos()),
+                    range -> BaritoneHelper.calculateGenericHeuristic(position, position.add(range, 0, 0)),
+                    entity -> entity instanceof ItemEntity ientity
+                            && (ientity.isOnGround() || ientity.isTouchingWater())
+                            && matches.contains(ientity.getStack().getItem())
+                            && !_entityBlacklist.unreachable(ientity)
+                            && acceptPredicate.test(ientity));
+            return Optional.ofNullable((ItemEntity) closest);
+        }
 
-                    float cost = (float) BaritoneHelper.calculateGenericHeuristic(position, entity.getPos());
-                    if (cost < minCost) {
-                        minCost = cost;
-                        closestEntity = entity;
-                    }
+        ItemEntity closestEntity = null;
+        float minCost = Float.POSITIVE_INFINITY;
+        for (Item item : matches) {
+            if (!itemDropped(item)) continue;
+            for (ItemEntity entity : _itemDropLocations.get(item)) {
+                if (_entityBlacklist.unreachable(entity)) continue;
+                if (!entity.getStack().getItem().equals(item)) continue;
+                if (!acceptPredicate.test(entity)) continue;
+
+                float cost = (float) BaritoneHelper.calculateGenericHeuristic(position, entity.getPos());
+                if (cost < minCost) {
+                    minCost = cost;
+                    closestEntity = entity;
                 }
             }
         }
@@ -139,16 +241,42 @@ public class EntityTracker extends Tracker {
         return getClosestEntity(_mod.getPlayer().getPos(), acceptPredicate, entityTypes);
     }
     public Optional<Entity> getClosestEntity(Vec3d position, Predicate<Entity> acceptPredicate, Class... entityTypes) {
-        Entity closestEntity = null;
-        double minCost = Float.POSITIVE_INFINITY;
-        for (Class toFind : entityTypes) {
-            synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+        return getClosestEntityWithinRange(position, Double.POSITIVE_INFINITY, acceptPredicate, entityTypes);
+    }
+
+    /**
+     * Like {@link #getClosestEntity(Vec3d, Predicate, Class[])}, but ignores anything `range` or more blocks away.
+     * The tighter the range, the less we have to look at.
+     */
+    public Optional<Entity> getClosestEntityWithinRange(Vec3d position, double range, Predicate<Entity> acceptPredicate, Class... entityTypes) {
+        ensureUpdated();
+        double rangeSq = range * range;
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            // Few candidates: Just check them all.
+            int candidates = 0;
+            for (Class toFind : entityTypes) {
+                if (_entityMap.containsKey(toFind)) {
+                    candidates += _entityMap.get(toFind).size();
+                }
+            }
+            if (candidates > LINEAR_SCAN_MAX) {
+                Entity closest = _grid.getClosest(position, range,
+                        entity -> entity.squaredDistanceTo(position),
+                        minRange -> minRange * minRange,
+                        entity -> isAnyType(entity, entityTypes) && entity.isAlive() && entity.squaredDistanceTo(position) < rangeSq && acceptPredicate.test(entity));
+                return Optional.ofNullable(closest);
+            }
+
+            Entity closestEntity = null;
+            double minCost = Float.POSITIVE_INFINITY;
+            for (Class toFind : entityTypes) {
                 if (_entityMap.containsKey(toFind)) {
                     for (Entity entity : _entityMap.get(toFind)) {
                         // Don't accept entities that no longer exist
                         if (!entity.isAlive()) continue;
-                        if (!acceptPredicate.test(entity)) continue;
                         double cost = entity.squaredDistanceTo(position);
+                        if (cost >= rangeSq) continue;
+                        if (!acceptPredicate.test(entity)) continue;
                         if (cost < minCost) {
                             minCost = cost;
                             closestEntity = entity;
@@ -156,12 +284,80 @@ public class EntityTracker extends Tracker {
                     }
                 }
             }
+            return Optional.ofNullable(closestEntity);
         }
-        return Optional.ofNullable(closestEntity);
+    }
+
+    private static boolean isAnyType(Entity entity, Class[] types) {
+        Class type = squashType(entity.getClass());
+        for (Class check : types) {
+            if (check == type) return true;
+        }
+        return false;
+    }
+
+    public <T extends Entity> Optional<T> getClosest(Class<T> type) {
+        return getClosest(_mod.getPlayer().getPos(), entity -> true, type);
+    }
+
+    /**
+     * Finds the closest entity that is a `type`, subclasses and implementing classes included.
+     */
+    public <T extends Entity> Optional<T> getClosest(Vec3d position, Predicate<? super T> acceptPredicate, Class<T> type) {
+        return getClosestOfAnyType(position, entity -> acceptPredicate.test(type.cast(entity)), type).map(type::cast);
+    }
+
+    /**
+     * Finds the closest entity that is any of `types`, subclasses and implementing classes included.
+     * Each entity is only looked at once, no matter how many of the types it is.
+     *
+     * `Entity` itself isn't a type we index, that's just every entity.
+     */
+    public Optional<Entity> getClosestOfAnyType(Vec3d position, Predicate<Entity> acceptPredicate, Class... types) {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            int candidates = 0;
+            for (Class type : types) {
+                candidates += _typeIndex.get(type).size();
+            }
+            if (candidates > LINEAR_SCAN_MAX) {
+                Entity closest = _grid.getClosest(position, Double.POSITIVE_INFINITY,
+                        entity -> entity.squaredDistanceTo(position),
+                        minRange -> minRange * minRange,
+                        entity -> _typeIndex.isOfAnyType(entity, types) && entity.isAlive() && acceptPredicate.test(entity));
+                return Optional.ofNullable(closest);
+            }
+
+            Entity closestEntity = null;
+            double minCost = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < types.length; ++i) {
+                for (Entity entity : _typeIndex.get(types[i])) {
+                    // We already looked at it under an earlier type
+                    if (isOfAnyTypeBefore(entity, types, i)) continue;
+                    if (!entity.isAlive()) continue;
+                    double cost = entity.squaredDistanceTo(position);
+                    if (cost >= minCost) continue;
+                    if (!acceptPredicate.test(entity)) continue;
+                    minCost = cost;
+                    closestEntity = entity;
+                }
+            }
+            return Optional.ofNullable(closestEntity);
+        }
+    }
+
+    private boolean isOfAnyTypeBefore(Entity entity, Class[] types, int index) {
+        if (index == 0) return false;
+        Set<Class> entityTypes = _typeIndex.getTypesOf(entity.getClass());
+        for (int i = 0; i < index; ++i) {
+            if (entityTypes.contains(types[i])) return true;
+        }
+        return false;
     }
 
     public boolean itemDropped(Item... items) {
         ensureUpdated();
+        ensureItemDrops();
         for (Item item : items) {
             if (_itemDropLocations.containsKey(item)) {
                 // Find a non-blacklisted item
@@ -183,6 +379,7 @@ public class EntityTracker extends Tracker {
 
     public List<ItemEntity> getDroppedItems() {
         ensureUpdated();
+        ensureItemDrops();
         return _itemDropLocations.values().stream().reduce(new ArrayList<>(), (result, drops) -> {
             result.addAll(drops);
             return result;
@@ -199,6 +396,31 @@ public class EntityTracker extends Tracker {
         return false;
     }
 
+    /**
+     * Whether any entity is one of `types`, subclasses and implementing classes included.
+     */
+    public boolean entityOfTypeFound(Class... types) {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            for (Class type : types) {
+                if (_typeIndex.contains(type)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Every entity that is a `type`, subclasses and implementing classes included.
+     * {@link #getTrackedEntities(Class)} only gets entities of that exact class.
+     */
+    public <T extends Entity> List<T> getEntitiesOfType(Class<T> type) {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            //noinspection unchecked
+            return (List<T>) _typeIndex.get(type);
+        }
+    }
+
     public <T extends Entity> List<T> getTrackedEntities(Class<T> type) {
         ensureUpdated();
         if (!entityFound(type)) {
@@ -215,6 +437,7 @@ public class EntityTracker extends Tracker {
      */
     public List<Entity> getCloseEntities() {
         ensureUpdated();
+        ensureCloseEntities();
         synchronized (BaritoneHelper.MINECRAFT_LOCK) {
             return _closeEntities;
         }
@@ -225,13 +448,46 @@ public class EntityTracker extends Tracker {
      */
     public List<CachedProjectile> getProjectiles() {
         ensureUpdated();
+        ensureProjectiles();
         synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            _projectilesLastWanted = _ticks;
             return _projectiles;
         }
     }
 
+    /**
+     * Everything pathing needs to know about entities, as of the last time the tracker updated (every tick).
+     * Unlike everything else here this doesn't update itself and never changes, so it's safe to grab
+     * from pathing threads without locking.
+     */
+    public EntitySnapshot getSnapshot() {
+        return _snapshot;
+    }
+
+    /**
+     * A counter that changes whenever an entity shows up, goes away or moves a few blocks.
+     * Cheap, unlike the views: Good for telling whether anything might have changed since last time.
+     */
+    public long getEntityVersion() {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            return _grid.getVersion();
+        }
+    }
+
+    /**
+     * How many projectiles are in the world, including ones we'd ignore. Doesn't simulate any of them.
+     */
+    public int getProjectileEntityCount() {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            return _projectileEntities.size();
+        }
+    }
+
     public List<Entity> getHostiles() {
         ensureUpdated();
+        ensureHostiles();
         synchronized (BaritoneHelper.MINECRAFT_LOCK) {
             return _hostiles;
         }
@@ -255,7 +511,44 @@ public class EntityTracker extends Tracker {
     public Optional<Vec3d> getPlayerMostRecentPosition(String name) {
         ensureUpdated();
         synchronized (BaritoneHelper.MINECRAFT_LOCK) {
-            return Optional.ofNullable(_playerLastCoordinates.getOrDefault(name, null));
+            PositionHistory history = _playerHistory.get(name);
+            return history != null ? Optional.of(history.getLatest()) : Optional.empty();
+        }
+    }
+
+    /**
+     * Guess where a player will be some ticks from now, assuming they keep moving the way they have been.
+     * If we haven't seen them in a while that's just where we last saw them.
+     * @param name Username on a multiplayer server.
+     */
+    public Optional<Vec3d> getPlayerPredictedPosition(String name, int ticksAhead) {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            PositionHistory history = _playerHistory.get(name);
+            return history != null ? Optional.of(history.predict(_ticks, ticksAhead)) : Optional.empty();
+        }
+    }
+
+    /**
+     * @return Which way a player was heading (as a yaw) when we last saw them, if they were moving.
+     */
+    public OptionalDouble getPlayerHeadingYaw(String name) {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            PositionHistory history = _playerHistory.get(name);
+            double yaw = history != null ? history.getHeadingYaw() : Double.NaN;
+            return Double.isNaN(yaw) ? OptionalDouble.empty() : OptionalDouble.of(yaw);
+        }
+    }
+
+    /**
+     * @return How fast (blocks per tick) a player has been moving lately, or zero if we haven't seen them lately.
+     */
+    public Vec3d getPlayerVelocity(String name) {
+        ensureUpdated();
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            PositionHistory history = _playerHistory.get(name);
+            return history != null ? history.getVelocity(_ticks) : Vec3d.ZERO;
         }
     }
 
@@ -279,6 +572,13 @@ public class EntityTracker extends Tracker {
         _entityBlacklist.blackListItem(_mod, entity, 3);
     }
 
+    /**
+     * @return What the unreachable entity blacklist has been up to.
+     */
+    public String getBlacklistStats() {
+        return _entityBlacklist.getStats();
+    }
+
     /**
      * Whether we have decided that this entity is unreachable.
      */
@@ -289,100 +589,235 @@ public class EntityTracker extends Tracker {
     @Override
     protected synchronized void updateState() {
         synchronized (BaritoneHelper.MINECRAFT_LOCK) {
-            _itemDropLocations.clear();
-            _entityMap.clear();
-            _closeEntities.clear();
-            _projectiles.clear();
-            _hostiles.clear();
-            _playerMap.clear();
-            if (MinecraftClient.getInstance().world == null) return;
+            ClientWorld world = MinecraftClient.getInstance().world;
+            if (world == null) {
+                clearIndexes();
+                _trackedWorld = null;
+                return;
+            }
+            _ticks++;
 
             // Store/Register All accumulated player collisions for this frame.
-            _entitiesCollidingWithPlayer.clear();
-            for (Map.Entry<PlayerEntity, List<Entity>> collisions : _entitiesCollidingWithPlayerAccumulator.entrySet()) {
-                _entitiesCollidingWithPlayer.put(collisions.getKey(), new HashSet<>());
-                _entitiesCollidingWithPlayer.get(collisions.getKey()).addAll(collisions.getValue());
+            _collisions.flip();
+
+            // New world (joined, or changed dimension): Add/remove events only keep us up to date from here on.
+            if (world != _trackedWorld) {
+                clearIndexes();
+                _trackedWorld = world;
+                for (Entity entity : world.getEntities()) {
+                    if (!shouldTrack(entity)) continue;
+                    if (_entities.add(entity)) {
+                        index(entity);
+                    }
+                }
+            }
+
+            // Drop entities that died but haven't been removed yet, and re-file whoever moved.
+            for (Iterator<Entity> it = _entities.iterator(); it.hasNext(); ) {
+                Entity entity = it.next();
+                if (!entity.isAlive()) {
+                    it.remove();
+                    unindex(entity);
+                    continue;
+                }
+                _grid.update(entity);
             }
-            _entitiesCollidingWithPlayerAccumulator.clear();
 
-            // Loop through all entities and track 'em
-            for (Entity entity : MinecraftClient.getInstance().world.getEntities()) {
+            // Everything derived from here on waits until someone asks for it.
+            _closeEntitiesDirty = true;
+            _itemDropsDirty = true;
+            _hostilesDirty = true;
+            _projectilesDirty = true;
 
-                // Catalogue based on type. Some types may get "squashed" or combined into one.
-                Class type = entity.getClass();
-                type = squashType(type);
+            // Pathing reads projectiles from the snapshot without asking for them,
+            // so keep publishing them for a bit after anyone asked.
+            boolean publishProjectiles = _ticks - _projectilesLastWanted <= KEEP_PUBLISHING_TICKS;
+            if (publishProjectiles) ensureProjectiles();
+            _snapshot = new EntitySnapshot(_entities, publishProjectiles ? _projectileDangerMap : ProjectileDangerMap.EMPTY);
 
-                //noinspection ConstantConditions
-                if (entity == null || !entity.isAlive()) continue;
+            for (Map.Entry<String, PlayerEntity> player : _playerMap.entrySet()) {
+                recordPlayerPosition(player.getKey(), player.getValue().getPos());
+            }
+        }
+    }
 
-                // Don't catalogue our own player.
-                if (type == PlayerEntity.class && entity.equals(_mod.getPlayer())) continue;
+    private void ensureCloseEntities() {
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            if (!_closeEntitiesDirty || _trackedWorld == null) return;
+            _closeEntitiesDirty = false;
+            _closeEntities.clear();
+            _grid.forEachWithinRange(_mod.getPlayer().getPos(), _mod.getModSettings().getEntityReachRange(), _closeEntities::add);
+        }
+    }
 
-                if (!_entityMap.containsKey(type)) {
-                    _entityMap.put(type, new ArrayList<>());
+    private void ensureItemDrops() {
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            if (!_itemDropsDirty || _trackedWorld == null) return;
+            _itemDropsDirty = false;
+            // Only cared about GROUNDED item entities
+            for (List<ItemEntity> drops : _itemDropLocations.values()) {
+                drops.clear();
+            }
+            for (ItemEntity entity : _itemEntities) {
+                if (entity.isOnGround() || entity.isTouchingWater()) {
+                    _itemDropLocations.computeIfAbsent(entity.getStack().getItem(), item -> new ArrayList<>()).add(entity);
                 }
-                _entityMap.get(type).add(entity);
+            }
+            _itemDropLocations.values().removeIf(List::isEmpty);
+        }
+    }
 
-                if (_mod.getControllerExtras().inRange(entity)) {
-                    _closeEntities.add(entity);
+    private void ensureHostiles() {
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            if (!_hostilesDirty || _trackedWorld == null) return;
+            _hostilesDirty = false;
+            _hostiles.clear();
+            _grid.forEachWithinRange(_mod.getPlayer().getPos(), HOSTILE_RANGE, entity -> {
+                if (_hostileCandidates.contains(entity) && EntityHelper.isAngryAtPlayer(_mod, entity)) {
+                    _hostiles.add(entity);
                 }
+            });
+        }
+    }
 
-                if (entity instanceof ItemEntity ientity) {
-                    Item droppedItem = ientity.getStack().getItem();
-
-                    // Only cared about GROUNDED item entities
-                    if (ientity.isOnGround() || ientity.isTouchingWater()) {
-                        if (!_itemDropLocations.containsKey(droppedItem)) {
-                            _itemDropLocations.put(droppedItem, new ArrayList<>());
-                        }
-                        _itemDropLocations.get(droppedItem).add(ientity);
+    private void ensureProjectiles() {
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            if (!_projectilesDirty || _trackedWorld == null) return;
+            _projectilesDirty = false;
+            _projectiles.clear();
+            for (ProjectileEntity projEntity : _projectileEntities.values()) {
+                if (_mod.getBehaviour().shouldAvoidDodgingProjectile(projEntity)) continue;
+                // Get projectile "inGround" variable
+                if (projEntity instanceof PersistentProjectileEntity && ((PersistentProjectileEntityAccessor) projEntity).isInGround()) continue;
+                CachedProjectile proj = _trackedProjectiles.get(projEntity.getId());
+                // Keeps its trajectory as long as it's still following it (even if we skipped a few ticks).
+                proj.update(projEntity.getPos(), projEntity.getVelocity());
+                _projectiles.add(proj);
+            }
+            // Simulate every projectile that needs it in one go.
+            _projectileBatch.clear();
+            for (CachedProjectile proj : _projectiles) {
+                if (proj.needsTrajectory()) {
+                    proj.addTo(_projectileBatch);
+                }
+            }
+            if (_projectileBatch.size() != 0) {
+                _projectileBatch.simulate(ProjectileBatch.Terrain.of(_trackedWorld));
+                int index = 0;
+                for (CachedProjectile proj : _projectiles) {
+                    if (proj.needsTrajectory()) {
+                        proj.setTrajectory(_projectileBatch, index++);
                     }
-                } else if (entity instanceof MobEntity) {
-
-                    //noinspection ConstantConditions
-                    if (entity instanceof HostileEntity || entity instanceof HoglinEntity || entity instanceof ZoglinEntity) {
-
-                        if (EntityHelper.isAngryAtPlayer(_mod, entity)) {
+                }
+            }
+            _projectileDangerMap = _projectiles.isEmpty() ? ProjectileDangerMap.EMPTY : new ProjectileDangerMap(_projectiles);
+        }
+    }
 
-                            // Check if the mob is facing us or is close enough
-                            boolean closeEnough = entity.isInRange(_mod.getPlayer(), 26);
+    private static boolean shouldTrack(Entity entity) {
+        //noinspection ConstantConditions
+        if (entity == null || !entity.isAlive()) return false;
+        // Don't catalogue our own player.
+        return !(entity instanceof ClientPlayerEntity);
+    }
 
-                            //Debug.logInternal("TARGET: " + hostile.is);
-                            if (closeEnough) {
-                                _hostiles.add(entity);
-                            }
-                        }
-                    }
-                } else if (entity instanceof ProjectileEntity projEntity) {
-                    if (!_mod.getBehaviour().shouldAvoidDodgingProjectile(entity)) {
-                        CachedProjectile proj = new CachedProjectile();
-
-                        boolean inGround = false;
-                        // Get projectile "inGround" variable
-                        if (entity instanceof PersistentProjectileEntity) {
-                            inGround = ((PersistentProjectileEntityAccessor) entity).isInGround();
-                        }
+    // Adds an entity to every index it belongs in.
+    private void index(Entity entity) {
+        // Catalogue based on type. Some types may get "squashed" or combined into one.
+        Class type = squashType(entity.getClass());
+        _entityMap.computeIfAbsent(type, t -> new ArrayList<>()).add(entity);
+        _typeIndex.add(entity);
+        _grid.add(entity);
+
+        if (entity instanceof ItemEntity ientity) {
+            _itemEntities.add(ientity);
+        } else if (entity instanceof MobEntity) {
+            //noinspection ConstantConditions
+            if (entity instanceof HostileEntity || entity instanceof HoglinEntity || entity instanceof ZoglinEntity) {
+                _hostileCandidates.add(entity);
+            }
+        } else if (entity instanceof ProjectileEntity projEntity) {
+            // Type, gravity and drag never change, only position and velocity need refreshing.
+            CachedProjectile proj = new CachedProjectile(projEntity.getId());
+            proj.gravity = ProjectileHelper.getGravity(projEntity);
+            proj.drag = ProjectileHelper.getDrag(projEntity);
+            proj.waterDrag = ProjectileHelper.getWaterDrag(projEntity);
+            proj.projectileType = projEntity.getClass();
+            _projectileEntities.put(projEntity.getId(), projEntity);
+            _trackedProjectiles.put(projEntity.getId(), proj);
+        } else if (entity instanceof PlayerEntity player) {
+            String name = player.getName().getString();
+            _playerMap.put(name, player);
+            recordPlayerPosition(name, player.getPos());
+        }
+    }
 
-                        if (!inGround) {
-                            proj.position = projEntity.getPos();
-                            proj.velocity = projEntity.getVelocity();
-                            proj.gravity = ProjectileHelper.hasGravity(projEntity) ? ProjectileHelper.ARROW_GRAVITY_ACCEL : 0;
-                            proj.projectileType = projEntity.getClass();
-                            _projectiles.add(proj);
-                        }
-                    }
-                } else if (entity instanceof PlayerEntity player) {
-                    String name = player.getName().getString();
-                    _playerMap.put(name, player);
-                    _playerLastCoordinates.put(name, player.getPos());
-                }
+    // Removes an entity from every index it's in.
+    private void unindex(Entity entity) {
+        _typeIndex.remove(entity);
+        _grid.remove(entity);
+        Class type = squashType(entity.getClass());
+        List<Entity> ofType = _entityMap.get(type);
+        if (ofType != null) {
+            ofType.remove(entity);
+            if (ofType.isEmpty()) {
+                _entityMap.remove(type);
             }
         }
+        if (entity instanceof ItemEntity ientity) {
+            _itemEntities.remove(ientity);
+            List<ItemEntity> drops = _itemDropLocations.get(ientity.getStack().getItem());
+            if (drops != null) drops.remove(ientity);
+        } else if (entity instanceof ProjectileEntity projEntity) {
+            // Ids can get reused, make sure it's still this projectile under this id.
+            if (_projectileEntities.get(projEntity.getId()) == projEntity) {
+                _projectileEntities.remove(projEntity.getId());
+                _trackedProjectiles.remove(projEntity.getId());
+            }
+        } else if (entity instanceof PlayerEntity player) {
+            // Remember where they were last seen, but another player with the same name might have replaced them.
+            _playerMap.remove(player.getName().getString(), player);
+        }
+        _hostileCandidates.remove(entity);
+        _closeEntities.remove(entity);
+        _hostiles.remove(entity);
+    }
+
+    private void recordPlayerPosition(String name, Vec3d pos) {
+        // Insertion ordered: Move them to the back every time we see them, so the players seen least recently go first (lookups don't count).
+        PositionHistory history = _playerHistory.remove(name);
+        if (history == null) {
+            history = new PositionHistory(PLAYER_HISTORY_SIZE);
+        }
+        history.add(_ticks, pos);
+        _playerHistory.put(name, history);
+    }
+
+    private void clearIndexes() {
+        _entities.clear();
+        _typeIndex.clear();
+        _grid.clear();
+        _entityMap.clear();
+        _playerMap.clear();
+        _itemEntities.clear();
+        _hostileCandidates.clear();
+        _projectileEntities.clear();
+        _trackedProjectiles.clear();
+        _snapshot = EntitySnapshot.EMPTY;
+        _projectileDangerMap = ProjectileDangerMap.EMPTY;
+        _itemDropLocations.clear();
+        _closeEntities.clear();
+        _hostiles.clear();
+        _projectiles.clear();
     }
 
     @Override
     protected void reset() {
-        // Dirty clears everything else.
+        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
+            clearIndexes();
+            _trackedWorld = null;
+        }
+        _collisions.clear();
         _entityBlacklist.clear();
     }
 }
@@ -32,6 +32,11 @@ public class TrackerManager {
         for (Tracker tracker : _trackers) {
             tracker.setDirty();
         }
+
+        // Pathing reads the entity snapshot without asking us to update, so publish it every tick.
+        if (inGame) {
+            _mod.getEntityTracker().ensureUpdated();
+        }
     }
 
     public void addTracker(Tracker tracker) {
@@ -1,65 +1,155 @@
 package adris.altoclef.trackers.blacklisting;
 
 import adris.altoclef.AltoClef;
-import adris.altoclef.Debug;
 import adris.altoclef.util.MiningRequirement;
 import adris.altoclef.util.helpers.StorageHelper;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.util.math.Vec3d;
 
-import java.util.HashMap;
-
 /**
  * Sometimes we will try to access something and fail TOO many times.
  * <p>
  * This lets us know that a block is unreachable, and will ignore it from the search intelligently.
+ * <p>
+ * Items are keyed by something stable (entity id, packed position) so we never hold on to the items themselves.
+ * We forget an item once it hasn't failed for a while, and only remember so many items (the least recently failed go first),
+ * so this doesn't grow forever over long sessions.
  */
 public abstract class AbstractObjectBlacklist<T> {
 
-    private final HashMap<T, BlacklistEntry> _entries = new HashMap<>();
+    // Expiry is checked to the second, across a wheel spanning a bit over a minute.
+    private static final long EXPIRY_RESOLUTION_MILLIS = 1000;
+    private static final int EXPIRY_SLOTS = 64;
+
+    // In order of last failure, oldest first.
+    private final Long2ObjectLinkedOpenHashMap<BlacklistEntry> _entries = new Long2ObjectLinkedOpenHashMap<>();
+    private final ExpiryWheel _expiry = new ExpiryWheel(EXPIRY_SLOTS, EXPIRY_RESOLUTION_MILLIS, System.currentTimeMillis());
+
+    private final long _forgetAfterMillis;
+    private final int _maxSize;
+
+    // Stats
+    private long _failureCount, _resetCount, _unreachableCount, _expiredCount, _evictedCount;
+
+    /**
+     * @param forgetAfterSeconds Forget an item once it hasn't failed for this long.
+     * @param maxSize            Remember at most this many items.
+     */
+    public AbstractObjectBlacklist(double forgetAfterSeconds, int maxSize) {
+        _forgetAfterMillis = (long) (forgetAfterSeconds * 1000);
+        _maxSize = Math.max(maxSize, 1);
+    }
 
     public void blackListItem(AltoClef mod, T item, int numberOfFailuresAllowed) {
-        if (!_entries.containsKey(item)) {
-            BlacklistEntry entry = new BlacklistEntry();
+        long now = System.currentTimeMillis();
+        expire(now);
+        long key = getKey(item);
+        BlacklistEntry entry = _entries.getAndMoveToLast(key);
+        if (entry == null) {
+            entry = new BlacklistEntry();
             entry.numberOfFailuresAllowed = numberOfFailuresAllowed;
             entry.numberOfFailures = 0;
             entry.bestDistanceSq = Double.POSITIVE_INFINITY;
             entry.bestTool = MiningRequirement.HAND;
-            _entries.put(item, entry);
+            _entries.putAndMoveToLast(key, entry);
+            entry.expiryTick = _expiry.schedule(key, now + _forgetAfterMillis);
+            while (_entries.size() > _maxSize) {
+                _entries.removeFirst();
+                _evictedCount++;
+            }
         }
-        BlacklistEntry entry = _entries.get(item);
+        entry.lastFailureMillis = now;
         double newDistance = getPos(item).squaredDistanceTo(mod.getPlayer().getPos());
         MiningRequirement newTool = StorageHelper.getCurrentMiningRequirement(mod);
         // For distance, add a slight threshold so it doesn't reset EVERY time we move a tiny bit closer.
         if (newTool.ordinal() > entry.bestTool.ordinal() || (newDistance < entry.bestDistanceSq - 1)) {
             if (newTool.ordinal() > entry.bestTool.ordinal()) entry.bestTool = newTool;
             if (newDistance < entry.bestDistanceSq) entry.bestDistanceSq = newDistance;
+            if (entry.numberOfFailures != 0) {
+                _resetCount++;
+            }
             entry.numberOfFailures = 0;
-            Debug.logMessage("Blacklist RESET: " + item.toString());
         }
         entry.numberOfFailures++;
         entry.numberOfFailuresAllowed = numberOfFailuresAllowed;
-        Debug.logMessage("Blacklist: " + item.toString() + ": Try " + entry.numberOfFailures + " / " + entry.numberOfFailuresAllowed);
+        _failureCount++;
+        if (entry.numberOfFailures == entry.numberOfFailuresAllowed + 1) {
+            _unreachableCount++;
+        }
     }
 
     protected abstract Vec3d getPos(T item);
 
+    // Something that identifies the item and doesn't keep it alive.
+    protected abstract long getKey(T item);
+
     public boolean unreachable(T item) {
-        if (_entries.containsKey(item)) {
-            BlacklistEntry entry = _entries.get(item);
-            return entry.numberOfFailures > entry.numberOfFailuresAllowed;
+        return unreachable(getKey(item));
+    }
+
+    protected boolean unreachable(long key) {
+        expire(System.currentTimeMillis());
+        BlacklistEntry entry = _entries.get(key);
+        return entry != null && entry.numberOfFailures > entry.numberOfFailuresAllowed;
+    }
+
+    /**
+     * @return The key of every item we've given up on.
+     */
+    protected LongArrayList getUnreachableKeys() {
+        expire(System.currentTimeMillis());
+        LongArrayList result = new LongArrayList();
+        for (Long2ObjectMap.Entry<BlacklistEntry> entry : _entries.long2ObjectEntrySet()) {
+            BlacklistEntry value = entry.getValue();
+            if (value.numberOfFailures > value.numberOfFailuresAllowed) {
+                result.add(entry.getLongKey());
+            }
         }
-        return false;
+        return result;
+    }
+
+    private void expire(long now) {
+        _expiry.advance(now, (key, tick) -> {
+            BlacklistEntry entry = _entries.get(key);
+            // Removed (or removed and added again) since this was scheduled
+            if (entry == null || entry.expiryTick != tick) return;
+            long forgetAt = entry.lastFailureMillis + _forgetAfterMillis;
+            if (forgetAt <= now) {
+                _entries.remove(key);
+                _expiredCount++;
+            } else {
+                // Failed again since, or further out than the wheel reaches.
+                entry.expiryTick = _expiry.schedule(key, forgetAt);
+            }
+        });
+    }
+
+    public int size() {
+        return _entries.size();
+    }
+
+    /**
+     * @return Counts of what this blacklist has done so far, for debugging.
+     */
+    public String getStats() {
+        return size() + " entries, " + _failureCount + " failures, " + _resetCount + " resets, " + _unreachableCount
+                + " marked unreachable, " + _expiredCount + " expired, " + _evictedCount + " evicted";
     }
 
     public void clear() {
         _entries.clear();
+        _expiry.clear();
     }
 
-    // Key: BlockPos
     private static class BlacklistEntry {
         public int numberOfFailuresAllowed;
         public int numberOfFailures;
         public double bestDistanceSq;
         public MiningRequirement bestTool;
+        public long lastFailureMillis;
+        // The tick our expiry is scheduled for, so stale schedules can be told apart.
+        public long expiryTick;
     }
 }
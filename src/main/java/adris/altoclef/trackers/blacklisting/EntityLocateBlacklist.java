@@ -4,8 +4,18 @@ import net.minecraft.entity.Entity;
 import net.minecraft.util.math.Vec3d;
 
 public class EntityLocateBlacklist extends AbstractObjectBlacklist<Entity> {
+
+    public EntityLocateBlacklist(double forgetAfterSeconds, int maxSize) {
+        super(forgetAfterSeconds, maxSize);
+    }
+
     @Override
     protected Vec3d getPos(Entity item) {
         return item.getPos();
     }
+
+    @Override
+    protected long getKey(Entity item) {
+        return item.getId();
+    }
 }
@@ -0,0 +1,74 @@
+package adris.altoclef.trackers.blacklisting;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Timer wheel: Schedules keys to come due at some time, and hands them back once they are.
+ *
+ * Time is split into ticks of `resolution` millis, and each tick maps to one of a fixed ring of slots.
+ * Scheduling and advancing only ever touch the slots in between, never every key.
+ *
+ * Keys scheduled further out than the wheel spans simply come up early; whoever owns the key checks and re-schedules it.
+ */
+class ExpiryWheel {
+
+    private final long _resolutionMillis;
+    // Each slot holds (key, tick) pairs
+    private final LongArrayList[] _slots;
+    // Every tick up to and including this one has been handed out.
+    private long _currentTick;
+
+    public ExpiryWheel(int slots, long resolutionMillis, long nowMillis) {
+        _resolutionMillis = resolutionMillis;
+        _slots = new LongArrayList[slots];
+        for (int i = 0; i < slots; ++i) {
+            _slots[i] = new LongArrayList();
+        }
+        _currentTick = nowMillis / resolutionMillis;
+    }
+
+    /**
+     * @return The tick the key was scheduled for. Passed back along with the key once it's due.
+     */
+    public long schedule(long key, long dueMillis) {
+        long tick = Math.max((dueMillis + _resolutionMillis - 1) / _resolutionMillis, _currentTick + 1);
+        // Can't land further out than one lap, we'd hand it out a lap early.
+        tick = Math.min(tick, _currentTick + _slots.length);
+        LongArrayList slot = _slots[(int) (tick % _slots.length)];
+        slot.add(key);
+        slot.add(tick);
+        return tick;
+    }
+
+    /**
+     * Hands out every key whose tick has passed.
+     */
+    public void advance(long nowMillis, DueHandler onDue) {
+        long target = nowMillis / _resolutionMillis;
+        if (target <= _currentTick) return;
+        // Been gone for over a lap, every slot is due.
+        long laps = Math.min(target - _currentTick, _slots.length);
+        for (long tick = target - laps + 1; tick <= target; ++tick) {
+            LongArrayList slot = _slots[(int) (tick % _slots.length)];
+            if (slot.isEmpty()) continue;
+            // Copy out first, onDue may schedule into this very slot.
+            long[] due = slot.toLongArray();
+            slot.clear();
+            _currentTick = tick;
+            for (int i = 0; i < due.length; i += 2) {
+                onDue.onDue(due[i], due[i + 1]);
+            }
+        }
+        _currentTick = target;
+    }
+
+    public void clear() {
+        for (LongArrayList slot : _slots) {
+            slot.clear();
+        }
+    }
+
+    public interface DueHandler {
+        void onDue(long key, long tick);
+    }
+}
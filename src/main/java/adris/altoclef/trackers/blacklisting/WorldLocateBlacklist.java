@@ -1,12 +1,38 @@
 package adris.altoclef.trackers.blacklisting;
 
 import adris.altoclef.util.helpers.WorldHelper;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class WorldLocateBlacklist extends AbstractObjectBlacklist<BlockPos> {
+
+    public WorldLocateBlacklist(double forgetAfterSeconds, int maxSize) {
+        super(forgetAfterSeconds, maxSize);
+    }
+
     @Override
     protected Vec3d getPos(BlockPos item) {
         return WorldHelper.toVec3d(item);
     }
+
+    @Override
+    protected long getKey(BlockPos item) {
+        return item.asLong();
+    }
+
+    /**
+     * @return Every block we've given up on.
+     */
+    public List<BlockPos> getUnreachableItems() {
+        LongArrayList keys = getUnreachableKeys();
+        List<BlockPos> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); ++i) {
+            result.add(BlockPos.fromLong(keys.getLong(i)));
+        }
+        return result;
+    }
 }
@@ -0,0 +1,196 @@
+package adris.altoclef.trackers.blocktracking;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.block.Block;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * Block changes made on the client thread since the last published cache snapshot.
+ *
+ * Snapshots are immutable, so instead of touching them every tick change (block placed, block broken, manually added)
+ * is appended here. Readers look at the snapshot through an overlay of these changes,
+ * and the next snapshot built in the background replays them before it gets published.
+ *
+ * Only ever touched from the client thread.
+ */
+public class BlockDeltaLog {
+
+    /**
+     * Something changes get replayed onto.
+     */
+    public interface Target {
+        void add(Block block, long packedPos);
+        void remove(Block block, long packedPos);
+    }
+
+    /**
+     * A single change. Positions are packed, see {@link net.minecraft.util.math.BlockPos#asLong()}
+     */
+    public static class Op {
+        public final long seq;
+        public final boolean add;
+        public final Block block;
+        public final long pos;
+
+        public Op(long seq, boolean add, Block block, long pos) {
+            this.seq = seq;
+            this.add = add;
+            this.block = block;
+            this.pos = pos;
+        }
+    }
+
+    private final ArrayList<Op> _ops = new ArrayList<>();
+
+    private long _lastSeq = 0;
+
+    // What the snapshot says is at a position, so the overlay knows what a change hides.
+    private LongFunction<Block> _snapshotBlockAt = pos -> null;
+
+    // Overlay: Positions added since the snapshot, and snapshot positions that no longer hold.
+    private final Long2ObjectOpenHashMap<Block> _added = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<Block> _removed = new Long2ObjectOpenHashMap<>();
+    private final Object2IntOpenHashMap<Block> _addedCounts = new Object2IntOpenHashMap<>();
+    private final Object2IntOpenHashMap<Block> _removedCounts = new Object2IntOpenHashMap<>();
+
+    public void add(Block block, long packedPos) {
+        record(new Op(++_lastSeq, true, block, packedPos));
+    }
+
+    public void remove(Block block, long packedPos) {
+        record(new Op(++_lastSeq, false, block, packedPos));
+    }
+
+    private void record(Op op) {
+        _ops.add(op);
+        applyOverlay(op);
+    }
+
+    /**
+     * A new snapshot was published. Drop every change it already contains and rebuild the overlay on top of it.
+     *
+     * @param baseSeq         The newest change the snapshot contains
+     * @param snapshotBlockAt What the new snapshot says is at a position
+     */
+    public void rebase(long baseSeq, LongFunction<Block> snapshotBlockAt) {
+        _snapshotBlockAt = snapshotBlockAt;
+        _ops.removeIf(op -> op.seq <= baseSeq);
+        clearOverlay();
+        for (Op op : _ops) {
+            applyOverlay(op);
+        }
+    }
+
+    /**
+     * @return A copy of every change we hold, safe to hand to another thread.
+     */
+    public List<Op> copyOps() {
+        return new ArrayList<>(_ops);
+    }
+
+    public static void replay(List<Op> ops, Target target) {
+        for (Op op : ops) {
+            if (op.add) {
+                target.add(op.block, op.pos);
+            } else {
+                target.remove(op.block, op.pos);
+            }
+        }
+    }
+
+    /**
+     * @return What's at a position once our changes are applied on top of the snapshot, or null if nothing.
+     */
+    public Block getEffectiveBlock(long packedPos) {
+        Block added = _added.get(packedPos);
+        if (added != null) return added;
+        Block snapshot = _snapshotBlockAt.apply(packedPos);
+        if (snapshot != null && isRemoved(packedPos, snapshot)) return null;
+        return snapshot;
+    }
+
+    /**
+     * @return Whether the snapshot's `snapshotBlock` at a position no longer holds.
+     */
+    public boolean isRemoved(long packedPos, Block snapshotBlock) {
+        return snapshotBlock != null && _removed.get(packedPos) == snapshotBlock;
+    }
+
+    /**
+     * @return Every position added since the snapshot. Read only.
+     */
+    public Long2ObjectMap<Block> getAdded() {
+        return Long2ObjectMaps.unmodifiable(_added);
+    }
+
+    public int getAddedCount(Block block) {
+        return _addedCounts.getInt(block);
+    }
+
+    public int getRemovedCount(Block block) {
+        return _removedCounts.getInt(block);
+    }
+
+    public int size() {
+        return _ops.size();
+    }
+
+    public long getLastSeq() {
+        return _lastSeq;
+    }
+
+    public void clear() {
+        _ops.clear();
+        _snapshotBlockAt = pos -> null;
+        clearOverlay();
+    }
+
+    private void clearOverlay() {
+        _added.clear();
+        _removed.clear();
+        _addedCounts.clear();
+        _removedCounts.clear();
+    }
+
+    private void applyOverlay(Op op) {
+        Block snapshot = _snapshotBlockAt.apply(op.pos);
+        if (op.add) {
+            // Whatever we added here before is replaced.
+            Block previous = _added.remove(op.pos);
+            if (previous != null) {
+                decrement(_addedCounts, previous);
+            }
+            if (snapshot == op.block) {
+                // The snapshot already says so.
+                if (_removed.remove(op.pos) != null) {
+                    decrement(_removedCounts, snapshot);
+                }
+            } else {
+                if (snapshot != null && _removed.put(op.pos, snapshot) == null) {
+                    _removedCounts.addTo(snapshot, 1);
+                }
+                _added.put(op.pos, op.block);
+                _addedCounts.addTo(op.block, 1);
+            }
+        } else {
+            if (_added.get(op.pos) == op.block) {
+                _added.remove(op.pos);
+                decrement(_addedCounts, op.block);
+            } else if (snapshot == op.block && _removed.put(op.pos, snapshot) == null) {
+                _removedCounts.addTo(snapshot, 1);
+            }
+        }
+    }
+
+    private static void decrement(Object2IntOpenHashMap<Block> counts, Block block) {
+        if (counts.addTo(block, -1) <= 1) {
+            counts.removeInt(block);
+        }
+    }
+}
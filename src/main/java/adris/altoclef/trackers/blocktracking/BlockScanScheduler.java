@@ -0,0 +1,188 @@
+package adris.altoclef.trackers.blocktracking;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2IntAVLTreeMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.Block;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Decides which tracked block types need rescanning, so each type gets rescanned on its own schedule
+ * instead of every type getting rescanned whenever one of them needs it.
+ *
+ * Every type has its own interval, which backs off while its scans keep finding the exact same blocks,
+ * and an optional staleness budget ("fresh within N ticks") that overrides the backoff.
+ * Types that are due around the same time get batched into a single scan pass.
+ *
+ * Client thread only, except {@link #reportResult(Block, LongArrayList)}.
+ */
+public class BlockScanScheduler {
+
+    private static final int NO_BUDGET = Integer.MAX_VALUE;
+
+    private final HashMap<Block, TypeSchedule> _types = new HashMap<>();
+
+    // Results come in from whatever thread scanned, and get picked up on the client thread.
+    private final ConcurrentLinkedQueue<ScanResult> _results = new ConcurrentLinkedQueue<>();
+
+    private final int _maxBackoff;
+
+    /**
+     * @param maxBackoff The most a type's interval can be multiplied by while nothing changes.
+     */
+    public BlockScanScheduler(int maxBackoff) {
+        _maxBackoff = Math.max(maxBackoff, 1);
+    }
+
+    /**
+     * Start scheduling a block type, or update its schedule if it already is.
+     *
+     * @param intervalTicks    How often to rescan this type when its scans keep changing.
+     * @param freshWithinTicks Never let this type go unscanned for longer than this. Negative for no limit.
+     *                         With several requests for the same type, the strictest one still active wins.
+     *                         Give it back with {@link #release(Block, int)} once it's no longer needed.
+     */
+    public void track(Block block, int intervalTicks, int freshWithinTicks) {
+        TypeSchedule schedule = _types.computeIfAbsent(block, b -> new TypeSchedule());
+        schedule.intervalTicks = Math.max(intervalTicks, 1);
+        if (freshWithinTicks >= 0) {
+            int budget = Math.max(freshWithinTicks, 1);
+            schedule.budgets.addTo(budget, 1);
+            schedule.freshWithinTicks = schedule.budgets.firstIntKey();
+        }
+    }
+
+    /**
+     * Drop one request made with {@link #track(Block, int, int)}, so the type falls back to the strictest request left
+     * (or its regular schedule, if none are).
+     *
+     * @param freshWithinTicks The same value it was tracked with. Negative does nothing.
+     */
+    public void release(Block block, int freshWithinTicks) {
+        if (freshWithinTicks < 0) return;
+        TypeSchedule schedule = _types.get(block);
+        if (schedule == null) return;
+        int budget = Math.max(freshWithinTicks, 1);
+        int count = schedule.budgets.get(budget);
+        if (count <= 1) {
+            schedule.budgets.remove(budget);
+        } else {
+            schedule.budgets.put(budget, count - 1);
+        }
+        schedule.freshWithinTicks = schedule.budgets.isEmpty() ? NO_BUDGET : schedule.budgets.firstIntKey();
+    }
+
+    public void untrack(Block block) {
+        _types.remove(block);
+    }
+
+    public boolean anyDue(long tick) {
+        drainResults();
+        for (TypeSchedule schedule : _types.values()) {
+            if (schedule.isDue(tick, 1)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Grabs every type that should be scanned this pass, and counts them as scanned.
+     *
+     * @param batchWindow Types this far (0 to 1) through their interval get scanned along with the due ones,
+     *                    so they don't need a pass of their own right after.
+     * @return Nothing if no type is due.
+     */
+    public List<Block> takeDue(long tick, double batchWindow) {
+        List<Block> result = new ArrayList<>();
+        if (!anyDue(tick)) return result;
+        for (Map.Entry<Block, TypeSchedule> entry : _types.entrySet()) {
+            TypeSchedule schedule = entry.getValue();
+            if (schedule.isDue(tick, batchWindow)) {
+                schedule.lastScanTick = tick;
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Report what a scan found for a type. Safe to call from any thread.
+     *
+     * @param found Packed positions found, or null if none.
+     */
+    public void reportResult(Block block, LongArrayList found) {
+        _results.add(new ScanResult(block, hashPositions(found)));
+    }
+
+    /**
+     * Forget when everything was scanned and what it found, so every type is due again.
+     */
+    public void resetSchedules() {
+        _results.clear();
+        for (TypeSchedule schedule : _types.values()) {
+            schedule.lastScanTick = Long.MIN_VALUE;
+            schedule.unchangedScans = 0;
+            schedule.hasResult = false;
+        }
+    }
+
+    private void drainResults() {
+        ScanResult result;
+        while ((result = _results.poll()) != null) {
+            TypeSchedule schedule = _types.get(result.block);
+            if (schedule == null) continue;
+            if (schedule.hasResult && schedule.lastResultHash == result.hash) {
+                // Same as last time, check less often.
+                if ((1L << schedule.unchangedScans) < _maxBackoff) {
+                    schedule.unchangedScans++;
+                }
+            } else {
+                schedule.unchangedScans = 0;
+            }
+            schedule.lastResultHash = result.hash;
+            schedule.hasResult = true;
+        }
+    }
+
+    // Order independent, so it doesn't matter in what order the scan found things.
+    private static long hashPositions(LongArrayList found) {
+        if (found == null) return 0;
+        long hash = found.size();
+        for (int i = 0; i < found.size(); ++i) {
+            hash += HashCommon.mix(found.getLong(i));
+        }
+        return hash;
+    }
+
+    private class TypeSchedule {
+        public int intervalTicks = 1;
+        // Active staleness budgets -> how many requests want each. The smallest one is what we go by.
+        public final Int2IntAVLTreeMap budgets = new Int2IntAVLTreeMap();
+        public int freshWithinTicks = NO_BUDGET;
+        public long lastScanTick = Long.MIN_VALUE;
+        public int unchangedScans = 0;
+        public boolean hasResult = false;
+        public long lastResultHash;
+
+        public boolean isDue(long tick, double fraction) {
+            // Never scanned
+            if (lastScanTick == Long.MIN_VALUE) return true;
+            long interval = Math.min((long) intervalTicks * Math.min(1L << unchangedScans, _maxBackoff), freshWithinTicks);
+            return tick - lastScanTick >= interval * fraction;
+        }
+    }
+
+    private static class ScanResult {
+        public final Block block;
+        public final long hash;
+
+        public ScanResult(Block block, long hash) {
+            this.block = block;
+            this.hash = hash;
+        }
+    }
+}
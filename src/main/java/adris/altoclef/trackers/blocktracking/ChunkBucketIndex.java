@@ -0,0 +1,336 @@
+package adris.altoclef.trackers.blocktracking;
+
+import it.unimi.dsi.fastutil.longs.*;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Stores block positions bucketed by the chunk they're in.
+ *
+ * Lets us find the nearest position without looking at every position we know of:
+ * we search outwards chunk ring by chunk ring, and stop once no bucket further out can beat what we found.
+ *
+ * Positions are stored packed (see {@link BlockPos#asLong()}) in primitive open addressing sets,
+ * so we don't pay for a boxed BlockPos and a map entry per position, and adding/removing is O(1).
+ */
+public class ChunkBucketIndex {
+
+    private final Long2ObjectOpenHashMap<LongOpenHashSet> _buckets = new Long2ObjectOpenHashMap<>();
+
+    private int _size = 0;
+
+    // Chunk bounds of everything we've stored. Only grows until cleared, which is fine for bounding the search.
+    private int _minChunkX = Integer.MAX_VALUE, _maxChunkX = Integer.MIN_VALUE,
+            _minChunkZ = Integer.MAX_VALUE, _maxChunkZ = Integer.MIN_VALUE;
+
+    private static long getChunkKey(long packedPos) {
+        return ChunkPos.toLong(BlockPos.unpackLongX(packedPos) >> 4, BlockPos.unpackLongZ(packedPos) >> 4);
+    }
+
+    /**
+     * @return true if the position was not already stored.
+     */
+    public boolean add(BlockPos pos) {
+        return add(pos.asLong());
+    }
+
+    public boolean add(long packedPos) {
+        int chunkX = BlockPos.unpackLongX(packedPos) >> 4,
+                chunkZ = BlockPos.unpackLongZ(packedPos) >> 4;
+        long key = ChunkPos.toLong(chunkX, chunkZ);
+        LongOpenHashSet bucket = _buckets.get(key);
+        if (bucket == null) {
+            bucket = new LongOpenHashSet();
+            _buckets.put(key, bucket);
+            _minChunkX = Math.min(_minChunkX, chunkX);
+            _maxChunkX = Math.max(_maxChunkX, chunkX);
+            _minChunkZ = Math.min(_minChunkZ, chunkZ);
+            _maxChunkZ = Math.max(_maxChunkZ, chunkZ);
+        }
+        if (bucket.add(packedPos)) {
+            _size++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the position was stored and has been removed.
+     */
+    public boolean remove(BlockPos pos) {
+        return remove(pos.asLong());
+    }
+
+    public boolean remove(long packedPos) {
+        long key = getChunkKey(packedPos);
+        LongOpenHashSet bucket = _buckets.get(key);
+        if (bucket == null || !bucket.remove(packedPos)) {
+            return false;
+        }
+        if (bucket.isEmpty()) {
+            _buckets.remove(key);
+        }
+        _size--;
+        return true;
+    }
+
+    /**
+     * Removes every position within a chunk.
+     *
+     * @return The (packed) positions that were removed
+     */
+    public LongCollection removeChunk(int chunkX, int chunkZ) {
+        LongOpenHashSet bucket = _buckets.remove(ChunkPos.toLong(chunkX, chunkZ));
+        if (bucket == null) {
+            return LongSets.EMPTY_SET;
+        }
+        _size -= bucket.size();
+        return bucket;
+    }
+
+    public boolean contains(BlockPos pos) {
+        return contains(pos.asLong());
+    }
+
+    public boolean contains(long packedPos) {
+        LongOpenHashSet bucket = _buckets.get(getChunkKey(packedPos));
+        return bucket != null && bucket.contains(packedPos);
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public void clear() {
+        _buckets.clear();
+        _size = 0;
+        _minChunkX = Integer.MAX_VALUE;
+        _maxChunkX = Integer.MIN_VALUE;
+        _minChunkZ = Integer.MAX_VALUE;
+        _maxChunkZ = Integer.MIN_VALUE;
+    }
+
+    public void forEachPacked(LongConsumer onPackedPos) {
+        for (LongOpenHashSet bucket : _buckets.values()) {
+            LongIterator it = bucket.iterator();
+            while (it.hasNext()) {
+                onPackedPos.accept(it.nextLong());
+            }
+        }
+    }
+
+    public void forEachInChunk(int chunkX, int chunkZ, LongConsumer onPackedPos) {
+        LongOpenHashSet bucket = _buckets.get(ChunkPos.toLong(chunkX, chunkZ));
+        if (bucket == null) return;
+        LongIterator it = bucket.iterator();
+        while (it.hasNext()) {
+            onPackedPos.accept(it.nextLong());
+        }
+    }
+
+    /**
+     * @return Whether any (packed) position within a chunk passes `test`. Stops at the first one that does.
+     */
+    public boolean anyMatchInChunk(int chunkX, int chunkZ, LongPredicate test) {
+        LongOpenHashSet bucket = _buckets.get(ChunkPos.toLong(chunkX, chunkZ));
+        if (bucket == null) return false;
+        LongIterator it = bucket.iterator();
+        while (it.hasNext()) {
+            if (test.test(it.nextLong())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return A deep copy, which can be changed without touching this one.
+     */
+    public ChunkBucketIndex copy() {
+        ChunkBucketIndex result = new ChunkBucketIndex();
+        for (Long2ObjectMap.Entry<LongOpenHashSet> entry : _buckets.long2ObjectEntrySet()) {
+            result._buckets.put(entry.getLongKey(), new LongOpenHashSet(entry.getValue()));
+        }
+        result._size = _size;
+        result._minChunkX = _minChunkX;
+        result._maxChunkX = _maxChunkX;
+        result._minChunkZ = _minChunkZ;
+        result._maxChunkZ = _maxChunkZ;
+        return result;
+    }
+
+    public void forEach(Consumer<BlockPos> onPos) {
+        forEachPacked(packed -> onPos.accept(BlockPos.fromLong(packed)));
+    }
+
+    public boolean anyMatch(Predicate<BlockPos> test) {
+        for (LongOpenHashSet bucket : _buckets.values()) {
+            LongIterator it = bucket.iterator();
+            while (it.hasNext()) {
+                if (test.test(BlockPos.fromLong(it.nextLong()))) return true;
+            }
+        }
+        return false;
+    }
+
+    public void addAllTo(Collection<BlockPos> result) {
+        forEach(result::add);
+    }
+
+    private int getBucketCount() {
+        return _buckets.size();
+    }
+
+    /**
+     * Scores a block position, lower is better.
+     */
+    @FunctionalInterface
+    public interface PositionScore {
+        double score(int x, int y, int z);
+    }
+
+    /**
+     * Finds the best scoring position across several indices, searching outwards from `origin` one chunk ring at a time.
+     *
+     * @param indices          What to search
+     * @param origin           Where to search from
+     * @param score            Score of a position, lower is better.
+     * @param minScoreAtRange  Given a horizontal (chebyshev) block distance, returns the lowest score a position that far away could have.
+     *                         This is what lets us stop early, so it must never overestimate.
+     * @param accept           Filter. Positions that fail are skipped. May NOT modify the indices.
+     * @return The lowest scoring accepted position, if any.
+     */
+    public static Optional<BlockPos> getNearest(Collection<ChunkBucketIndex> indices, Vec3d origin, PositionScore score, DoubleUnaryOperator minScoreAtRange, Predicate<BlockPos> accept) {
+        int minChunkX = Integer.MAX_VALUE, maxChunkX = Integer.MIN_VALUE,
+                minChunkZ = Integer.MAX_VALUE, maxChunkZ = Integer.MIN_VALUE;
+        int totalBuckets = 0;
+        for (ChunkBucketIndex index : indices) {
+            if (index.isEmpty()) continue;
+            minChunkX = Math.min(minChunkX, index._minChunkX);
+            maxChunkX = Math.max(maxChunkX, index._maxChunkX);
+            minChunkZ = Math.min(minChunkZ, index._minChunkZ);
+            maxChunkZ = Math.max(maxChunkZ, index._maxChunkZ);
+            totalBuckets += index.getBucketCount();
+        }
+        if (totalBuckets == 0) return Optional.empty();
+
+        int centerX = (int) Math.floor(origin.x) >> 4,
+                centerZ = (int) Math.floor(origin.z) >> 4;
+        // Past this ring there's nothing left.
+        int maxRing = Math.max(
+                Math.max(Math.abs(minChunkX - centerX), Math.abs(maxChunkX - centerX)),
+                Math.max(Math.abs(minChunkZ - centerZ), Math.abs(maxChunkZ - centerZ))
+        );
+
+        NearestSearch search = new NearestSearch(score, accept);
+        int cellsVisited = 0;
+        int ring = 0;
+        for (; ring <= maxRing; ++ring) {
+            if (minScoreAtRange.applyAsDouble(getMinRangeOfRing(origin, centerX, centerZ, ring)) >= search.bestScore) {
+                // Nothing further out can beat what we have.
+                return Optional.ofNullable(search.best);
+            }
+            // Sparse/far away data: Walking empty rings costs more than just looking at every bucket.
+            if (cellsVisited > totalBuckets) {
+                break;
+            }
+            if (ring == 0) {
+                search.visitCell(indices, centerX, centerZ);
+                cellsVisited++;
+                continue;
+            }
+            for (int dx = -ring; dx <= ring; ++dx) {
+                search.visitCell(indices, centerX + dx, centerZ - ring);
+                search.visitCell(indices, centerX + dx, centerZ + ring);
+            }
+            for (int dz = -ring + 1; dz <= ring - 1; ++dz) {
+                search.visitCell(indices, centerX - ring, centerZ + dz);
+                search.visitCell(indices, centerX + ring, centerZ + dz);
+            }
+            cellsVisited += ring * 8;
+        }
+
+        if (ring <= maxRing) {
+            // Fallback: Check every bucket we haven't visited yet, skipping the ones that can't possibly win.
+            for (ChunkBucketIndex index : indices) {
+                for (Long2ObjectMap.Entry<LongOpenHashSet> entry : index._buckets.long2ObjectEntrySet()) {
+                    int chunkX = ChunkPos.getPackedX(entry.getLongKey()),
+                            chunkZ = ChunkPos.getPackedZ(entry.getLongKey());
+                    int bucketRing = Math.max(Math.abs(chunkX - centerX), Math.abs(chunkZ - centerZ));
+                    if (bucketRing < ring) continue;
+                    if (minScoreAtRange.applyAsDouble(getMinRangeOfRing(origin, centerX, centerZ, bucketRing)) >= search.bestScore) continue;
+                    search.visitBucket(entry.getValue());
+                }
+            }
+        }
+
+        return Optional.ofNullable(search.best);
+    }
+
+    /**
+     * The closest (horizontal chebyshev) distance any block within chunk ring `ring` can be from `origin`.
+     */
+    private static double getMinRangeOfRing(Vec3d origin, int centerX, int centerZ, int ring) {
+        if (ring == 0) return 0;
+        // Everything INSIDE this ring spans these block coordinates.
+        int innerMinX = (centerX - ring + 1) << 4,
+                innerMaxX = (centerX + ring) << 4,
+                innerMinZ = (centerZ - ring + 1) << 4,
+                innerMaxZ = (centerZ + ring) << 4;
+        double toEdge = Math.min(
+                Math.min(origin.x - innerMinX, innerMaxX - origin.x),
+                Math.min(origin.z - innerMinZ, innerMaxZ - origin.z)
+        );
+        // Give a block of slack, as positions are scored from wherever their caller likes (corner or center)
+        return Math.max(0, toEdge - 1);
+    }
+
+    private static class NearestSearch {
+        private final PositionScore _score;
+        private final Predicate<BlockPos> _accept;
+        public BlockPos best = null;
+        public double bestScore = Double.POSITIVE_INFINITY;
+
+        public NearestSearch(PositionScore score, Predicate<BlockPos> accept) {
+            _score = score;
+            _accept = accept;
+        }
+
+        public void visitCell(Collection<ChunkBucketIndex> indices, int chunkX, int chunkZ) {
+            long key = ChunkPos.toLong(chunkX, chunkZ);
+            for (ChunkBucketIndex index : indices) {
+                LongOpenHashSet bucket = index._buckets.get(key);
+                if (bucket != null) {
+                    visitBucket(bucket);
+                }
+            }
+        }
+
+        public void visitBucket(LongOpenHashSet bucket) {
+            LongIterator it = bucket.iterator();
+            while (it.hasNext()) {
+                long packed = it.nextLong();
+                double score = _score.score(BlockPos.unpackLongX(packed), BlockPos.unpackLongY(packed), BlockPos.unpackLongZ(packed));
+                // Check the score first, the filter is usually the expensive part.
+                if (score < bestScore) {
+                    BlockPos pos = BlockPos.fromLong(packed);
+                    if (_accept.test(pos)) {
+                        bestScore = score;
+                        best = pos;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package adris.altoclef.trackers.blocktracking;
+
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.world.ClientWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.EmptyChunk;
+import net.minecraft.world.chunk.WorldChunk;
+
+/**
+ * Where chunk scans read blocks from.
+ *
+ * Usually the client's world, but scanning only needs chunk sections,
+ * so anything that can hand those out works (ex. a simulated world, to measure scans without a client).
+ */
+@FunctionalInterface
+public interface ChunkSectionSource {
+
+    /**
+     * @return A chunk's sections from the bottom up (entries may be empty or null), or null if the chunk isn't loaded.
+     */
+    ChunkSection[] getSections(int chunkX, int chunkZ);
+
+    /**
+     * Reads chunks straight from a world, without locking anything.
+     *
+     * Reading from other threads is fine (the block tracker scans on baritone's executor and on scanner threads, like baritone does):
+     * The client's chunk map is an atomic array, and reading blocks from a section never takes its palette's lock.
+     * What isn't guaranteed is freshness: The owning thread may change or unload a chunk halfway through a scan,
+     * so results can be a little out of date (or mixed). Only use this where that's ok, ex. because every position
+     * gets checked against the world again before it's used.
+     */
+    static ChunkSectionSource of(World world) {
+        return (chunkX, chunkZ) -> {
+            WorldChunk chunk = world.getChunk(chunkX, chunkZ);
+            if (chunk == null || chunk instanceof EmptyChunk) return null;
+            return chunk.getSectionArray();
+        };
+    }
+
+    /**
+     * @return Whatever world the client is in right now, or null if it isn't in one. Same thread rules as {@link #of(World)}.
+     */
+    static ChunkSectionSource ofClient() {
+        ClientWorld world = MinecraftClient.getInstance().world;
+        return world != null ? of(world) : null;
+    }
+}
@@ -0,0 +1,79 @@
+package adris.altoclef.trackers.blocktracking;
+
+/**
+ * Picks the `capacity` worst scoring (packed) positions out of everything offered, without sorting everything.
+ *
+ * A min heap of what we've picked so far: Anything scoring higher than the best of the worst replaces it.
+ * Costs O(n log capacity) and no allocation past the two arrays.
+ */
+public class EvictionHeap {
+
+    private final double[] _scores;
+    private final long[] _positions;
+    private int _size = 0;
+
+    public EvictionHeap(int capacity) {
+        _scores = new double[Math.max(capacity, 0)];
+        _positions = new long[Math.max(capacity, 0)];
+    }
+
+    /**
+     * @param packedPos Position, see {@link net.minecraft.util.math.BlockPos#asLong()}
+     * @param score     Higher means more worth evicting.
+     */
+    public void offer(long packedPos, double score) {
+        if (_scores.length == 0) return;
+        if (_size < _scores.length) {
+            int i = _size++;
+            _scores[i] = score;
+            _positions[i] = packedPos;
+            siftUp(i);
+        } else if (score > _scores[0]) {
+            _scores[0] = score;
+            _positions[0] = packedPos;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * @return A picked position, in no particular order.
+     */
+    public long getPosition(int index) {
+        return _positions[index];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (_scores[parent] <= _scores[i]) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1,
+                    right = left + 1,
+                    smallest = i;
+            if (left < _size && _scores[left] < _scores[smallest]) smallest = left;
+            if (right < _size && _scores[right] < _scores[smallest]) smallest = right;
+            if (smallest == i) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = _scores[a];
+        _scores[a] = _scores[b];
+        _scores[b] = score;
+        long pos = _positions[a];
+        _positions[a] = _positions[b];
+        _positions[b] = pos;
+    }
+}
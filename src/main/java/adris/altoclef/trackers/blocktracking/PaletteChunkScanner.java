@@ -0,0 +1,112 @@
+package adris.altoclef.trackers.blocktracking;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+
+import java.util.function.Predicate;
+
+/**
+ * Scans chunks for specific block states without looking at every block.
+ *
+ * Each 16x16x16 chunk section has a palette of every state it contains.
+ * If none of those states are ones we want, the whole section is skipped without reading a single block.
+ * Palettes may hold states that were since removed, so a section that passes still has to be walked.
+ */
+public class PaletteChunkScanner {
+
+    /**
+     * Run for every block we're looking for.
+     */
+    @FunctionalInterface
+    public interface BlockVisitor {
+        /**
+         * @param pos   Reused between calls, use `pos.toImmutable()` to hold on to it.
+         * @param state The block state at `pos`
+         * @return true to stop scanning
+         */
+        boolean visit(BlockPos.Mutable pos, BlockState state);
+    }
+
+    /**
+     * Scans a chunk for blocks whose state matches `isTarget`.
+     *
+     * @param chunk           The chunk to scan
+     * @param isTarget        Which states we're looking for. Tested against section palettes first.
+     * @param onTargetBlock   Run for every matching block until it returns true, where it stops scanning.
+     * @return whether `onTargetBlock` returned true at any point.
+     */
+    public static boolean scanChunk(WorldChunk chunk, Predicate<BlockState> isTarget, BlockVisitor onTargetBlock) {
+        return scanSections(chunk.getSectionArray(), chunk.getPos().x, chunk.getPos().z, isTarget, onTargetBlock);
+    }
+
+    /**
+     * Same as {@link #scanChunk(WorldChunk, Predicate, BlockVisitor)}, for a chunk's sections from wherever they came from.
+     */
+    public static boolean scanSections(ChunkSection[] sections, int chunkX, int chunkZ, Predicate<BlockState> isTarget, BlockVisitor onTargetBlock) {
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        int startX = chunkX << 4,
+                startZ = chunkZ << 4;
+        for (ChunkSection section : sections) {
+            if (ChunkSection.isEmpty(section)) continue;
+            // The palette doesn't have anything we want, so no block in here could.
+            if (!section.hasAny(isTarget)) continue;
+            int startY = section.getYOffset();
+            for (int y = 0; y < 16; ++y) {
+                for (int z = 0; z < 16; ++z) {
+                    for (int x = 0; x < 16; ++x) {
+                        BlockState state = section.getBlockState(x, y, z);
+                        if (isTarget.test(state)) {
+                            pos.set(startX + x, startY + y, startZ + z);
+                            if (onTargetBlock.visit(pos, state)) return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scans an axis aligned box for blocks whose state matches `isTarget`. Chunks that aren't loaded are skipped.
+     *
+     * @param min           Lowest corner of the box (inclusive)
+     * @param max           Highest corner of the box (inclusive)
+     * @param isTarget      Which states we're looking for. Tested against section palettes first.
+     * @param onTargetBlock Run for every matching block until it returns true, where it stops scanning.
+     * @return whether `onTargetBlock` returned true at any point.
+     */
+    public static boolean scanBox(ChunkSectionSource world, BlockPos min, BlockPos max, Predicate<BlockState> isTarget, BlockVisitor onTargetBlock) {
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (int chunkX = min.getX() >> 4; chunkX <= max.getX() >> 4; ++chunkX) {
+            for (int chunkZ = min.getZ() >> 4; chunkZ <= max.getZ() >> 4; ++chunkZ) {
+                ChunkSection[] sections = world.getSections(chunkX, chunkZ);
+                if (sections == null) continue;
+                int startX = chunkX << 4,
+                        startZ = chunkZ << 4;
+                int fromX = Math.max(min.getX() - startX, 0), toX = Math.min(max.getX() - startX, 15),
+                        fromZ = Math.max(min.getZ() - startZ, 0), toZ = Math.min(max.getZ() - startZ, 15);
+                for (ChunkSection section : sections) {
+                    if (ChunkSection.isEmpty(section)) continue;
+                    int startY = section.getYOffset();
+                    if (startY > max.getY() || startY + 15 < min.getY()) continue;
+                    if (!section.hasAny(isTarget)) continue;
+                    int fromY = Math.max(min.getY() - startY, 0), toY = Math.min(max.getY() - startY, 15);
+                    for (int y = fromY; y <= toY; ++y) {
+                        for (int z = fromZ; z <= toZ; ++z) {
+                            for (int x = fromX; x <= toX; ++x) {
+                                BlockState state = section.getBlockState(x, y, z);
+                                if (isTarget.test(state)) {
+                                    pos.set(startX + x, startY + y, startZ + z);
+                                    if (onTargetBlock.visit(pos, state)) return true;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
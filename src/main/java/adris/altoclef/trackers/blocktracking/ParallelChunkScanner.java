@@ -0,0 +1,104 @@
+package adris.altoclef.trackers.blocktracking;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.block.Block;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scans a set of chunks for blocks, splitting the chunks across a bounded fork/join pool.
+ *
+ * Every worker fills its own result buffer, which get merged as the work joins back up,
+ * so nothing is shared between workers while they scan.
+ */
+public class ParallelChunkScanner {
+
+    // Don't bother splitting below this many chunks, the overhead isn't worth it.
+    private static final int CHUNKS_PER_TASK = 4;
+
+    private ForkJoinPool _pool;
+
+    /**
+     * Scans chunks for blocks.
+     *
+     * @param world       Where to read chunks from
+     * @param chunks      The chunks to scan. Unloaded chunks are skipped.
+     * @param blocks      What blocks to look for
+     * @param parallelism How many threads to scan with. 1 or less scans on the calling thread.
+     * @return Packed positions (see {@link net.minecraft.util.math.BlockPos#asLong()}) of every block found, by type.
+     */
+    public Map<Block, LongArrayList> scan(ChunkSectionSource world, List<ChunkPos> chunks, Set<Block> blocks, int parallelism) {
+        if (parallelism <= 1 || chunks.size() <= CHUNKS_PER_TASK) {
+            Map<Block, LongArrayList> result = new HashMap<>();
+            for (ChunkPos chunk : chunks) {
+                scanChunk(world, chunk, blocks, result);
+            }
+            return result;
+        }
+        return getPool(parallelism).invoke(new ScanTask(world, chunks, 0, chunks.size(), blocks));
+    }
+
+    private synchronized ForkJoinPool getPool(int parallelism) {
+        if (_pool == null || _pool.getParallelism() != parallelism) {
+            if (_pool != null) {
+                _pool.shutdown();
+            }
+            _pool = new ForkJoinPool(parallelism);
+        }
+        return _pool;
+    }
+
+    private static void scanChunk(ChunkSectionSource world, ChunkPos pos, Set<Block> blocks, Map<Block, LongArrayList> result) {
+        ChunkSection[] sections = world.getSections(pos.x, pos.z);
+        if (sections == null) return;
+        PaletteChunkScanner.scanSections(sections, pos.x, pos.z, state -> blocks.contains(state.getBlock()), (blockPos, state) -> {
+            result.computeIfAbsent(state.getBlock(), block -> new LongArrayList()).add(blockPos.asLong());
+            return false;
+        });
+    }
+
+    private static class ScanTask extends RecursiveTask<Map<Block, LongArrayList>> {
+        private final ChunkSectionSource _world;
+        private final List<ChunkPos> _chunks;
+        private final int _start, _end;
+        private final Set<Block> _blocks;
+
+        public ScanTask(ChunkSectionSource world, List<ChunkPos> chunks, int start, int end, Set<Block> blocks) {
+            _world = world;
+            _chunks = chunks;
+            _start = start;
+            _end = end;
+            _blocks = blocks;
+        }
+
+        @Override
+        protected Map<Block, LongArrayList> compute() {
+            if (_end - _start <= CHUNKS_PER_TASK) {
+                Map<Block, LongArrayList> result = new HashMap<>();
+                for (int i = _start; i < _end; ++i) {
+                    scanChunk(_world, _chunks.get(i), _blocks, result);
+                }
+                return result;
+            }
+            int middle = (_start + _end) / 2;
+            ScanTask left = new ScanTask(_world, _chunks, _start, middle, _blocks);
+            ScanTask right = new ScanTask(_world, _chunks, middle, _end, _blocks);
+            left.fork();
+            Map<Block, LongArrayList> result = right.compute();
+            // Merge into whichever one we got back, no need for a third buffer.
+            for (Map.Entry<Block, LongArrayList> found : left.join().entrySet()) {
+                LongArrayList existing = result.get(found.getKey());
+                if (existing == null) {
+                    result.put(found.getKey(), found.getValue());
+                } else {
+                    existing.addAll(found.getValue());
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package adris.altoclef.trackers.blocktracking;
+
+import adris.altoclef.Debug;
+import adris.altoclef.util.Dimension;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.*;
+import net.minecraft.block.Block;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.server.integrated.IntegratedServer;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.registry.Registry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Remembers block positions on disk, per server and per dimension, so we don't start from scratch every time we join.
+ *
+ * Positions are split into region files of 32x32 chunks (like vanilla's), which are only read once
+ * a chunk within them loads. Reading and writing happens on a background thread.
+ *
+ * Region file format (big endian):
+ * <pre>
+ *     int    magic ("ACBC")
+ *     int    version
+ *     int    block type count
+ *     for each block type:
+ *         short  id length, then the block id (ex. "minecraft:diamond_ore") as UTF-8
+ *         int    position count
+ *         int[]  positions, local to the region: 9 bits x, 9 bits z, 12 bits y + 2048
+ * </pre>
+ */
+public class RegionBlockStore {
+
+    private static final int MAGIC = 0x41434243;
+    private static final int VERSION = 1;
+
+    private static final String STORE_FOLDER = "altoclef/block_cache";
+
+    // One IO thread shared by every store, so a region is never read and written at the same time.
+    private static final ExecutorService IO_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "AltoClef Block Cache IO");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path _folder;
+
+    // Client thread only
+    private final LongOpenHashSet _requestedRegions = new LongOpenHashSet();
+    // Regions whose file contents have been handed over (or that had no file). Only these are safe to write over.
+    private final LongOpenHashSet _readRegions = new LongOpenHashSet();
+    // What we think is on disk for each region, so unchanged regions aren't rewritten and emptied ones get deleted.
+    private final Long2LongOpenHashMap _diskHashes = new Long2LongOpenHashMap();
+
+    // Handed from the IO thread to the client thread.
+    private final ConcurrentLinkedQueue<LoadedRegion> _loadedRegions = new ConcurrentLinkedQueue<>();
+    private final Set<Long> _failedWrites = ConcurrentHashMap.newKeySet();
+    // Warnings from the IO thread. Logging a warning writes to chat, which only the client thread may do.
+    private final ConcurrentLinkedQueue<String> _warnings = new ConcurrentLinkedQueue<>();
+
+    public RegionBlockStore(Path folder) {
+        _folder = folder;
+    }
+
+    /**
+     * @return A store for the server/world we're currently playing on
+     */
+    public static RegionBlockStore forCurrentWorld(Dimension dimension) {
+        return new RegionBlockStore(Paths.get(STORE_FOLDER, getCurrentWorldName(), dimension.name().toLowerCase()));
+    }
+
+    private static String getCurrentWorldName() {
+        String name = "unknown";
+        IntegratedServer singleplayer = MinecraftClient.getInstance().getServer();
+        ServerInfo server = MinecraftClient.getInstance().getCurrentServerEntry();
+        if (singleplayer != null) {
+            name = "singleplayer_" + singleplayer.getSaveProperties().getLevelName();
+        } else if (server != null) {
+            name = server.address;
+        }
+        return name.replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+
+    private static long getRegionKey(int chunkX, int chunkZ) {
+        return ChunkPos.toLong(chunkX >> 5, chunkZ >> 5);
+    }
+
+    private Path getRegionFile(long regionKey) {
+        return _folder.resolve("r." + ChunkPos.getPackedX(regionKey) + "." + ChunkPos.getPackedZ(regionKey) + ".bin");
+    }
+
+    /**
+     * Makes sure the region a chunk is in gets read from disk. Only reads once.
+     * Results show up in {@link #pollLoadedRegion()}.
+     */
+    public void requestRegion(ChunkPos chunk) {
+        long regionKey = getRegionKey(chunk.x, chunk.z);
+        if (!_requestedRegions.add(regionKey)) return;
+        IO_THREAD.execute(() -> _loadedRegions.add(readRegion(regionKey)));
+    }
+
+    /**
+     * Hands over a region that finished loading. Once handed over, a region is considered ours to write over,
+     * so make sure its contents get added to whatever is passed to {@link #flush(Map)}.
+     *
+     * @return Packed positions (see {@link BlockPos#asLong()}) by block type of a region that finished loading, or null if none are left.
+     */
+    public Map<Block, LongArrayList> pollLoadedRegion() {
+        logWarnings();
+        LoadedRegion loaded = _loadedRegions.poll();
+        if (loaded == null) return null;
+        _readRegions.add(loaded.regionKey);
+        if (!loaded.positions.isEmpty()) {
+            _diskHashes.put(loaded.regionKey, loaded.hash);
+        }
+        return loaded.positions;
+    }
+
+    /**
+     * Writes everything we know to disk in the background. Regions that haven't changed since the last write are skipped.
+     * Call this while nothing else is modifying `contents`, it's copied before returning.
+     */
+    public void flush(Map<Block, ChunkBucketIndex> contents) {
+        logWarnings();
+        for (Iterator<Long> it = _failedWrites.iterator(); it.hasNext(); ) {
+            // We don't know what's on disk anymore, so make sure it gets written again.
+            _diskHashes.put((long) it.next(), Long.MIN_VALUE);
+            it.remove();
+        }
+
+        // Split everything up by region
+        Long2ObjectOpenHashMap<Map<Block, IntArrayList>> regions = new Long2ObjectOpenHashMap<>();
+        for (Map.Entry<Block, ChunkBucketIndex> entry : contents.entrySet()) {
+            Block block = entry.getKey();
+            entry.getValue().forEachPacked(packed -> {
+                int x = BlockPos.unpackLongX(packed),
+                        y = BlockPos.unpackLongY(packed),
+                        z = BlockPos.unpackLongZ(packed);
+                long regionKey = getRegionKey(x >> 4, z >> 4);
+                if (!_readRegions.contains(regionKey)) {
+                    // Haven't loaded what's on disk yet, writing would throw it away.
+                    return;
+                }
+                regions.computeIfAbsent(regionKey, key -> new HashMap<>())
+                        .computeIfAbsent(block, b -> new IntArrayList())
+                        .add(packLocal(x, y, z));
+            });
+        }
+        // Regions on disk that are now empty need clearing too.
+        LongIterator written = _diskHashes.keySet().iterator();
+        while (written.hasNext()) {
+            long regionKey = written.nextLong();
+            if (!regions.containsKey(regionKey)) {
+                regions.put(regionKey, Collections.emptyMap());
+            }
+        }
+
+        for (Long2ObjectMap.Entry<Map<Block, IntArrayList>> region : regions.long2ObjectEntrySet()) {
+            long regionKey = region.getLongKey();
+            Map<Block, IntArrayList> regionContents = region.getValue();
+            long hash = hashRegion(regionContents);
+            if (_diskHashes.containsKey(regionKey) && _diskHashes.get(regionKey) == hash) continue;
+            if (regionContents.isEmpty()) {
+                _diskHashes.remove(regionKey);
+            } else {
+                _diskHashes.put(regionKey, hash);
+            }
+            IO_THREAD.execute(() -> writeRegion(regionKey, regionContents));
+        }
+    }
+
+    private static int packLocal(int x, int y, int z) {
+        return ((x & 511) << 21) | ((z & 511) << 12) | ((y + 2048) & 4095);
+    }
+
+    private static long unpackLocal(long regionKey, int local) {
+        int x = (ChunkPos.getPackedX(regionKey) << 9) + ((local >>> 21) & 511),
+                z = (ChunkPos.getPackedZ(regionKey) << 9) + ((local >>> 12) & 511),
+                y = (local & 4095) - 2048;
+        return BlockPos.asLong(x, y, z);
+    }
+
+    // Doesn't depend on the order things were stored in.
+    private static long hashRegion(Map<Block, IntArrayList> regionContents) {
+        long hash = 0;
+        for (Map.Entry<Block, IntArrayList> entry : regionContents.entrySet()) {
+            IntArrayList positions = entry.getValue();
+            for (int i = 0; i < positions.size(); ++i) {
+                hash += hashEntry(entry.getKey(), positions.getInt(i));
+            }
+        }
+        return hash;
+    }
+
+    private static long hashEntry(Block block, int localPos) {
+        return HashCommon.mix(((long) Registry.BLOCK.getRawId(block) << 32) | (localPos & 0xFFFFFFFFL));
+    }
+
+    // Client thread
+    private void logWarnings() {
+        String warning;
+        while ((warning = _warnings.poll()) != null) {
+            Debug.logWarning(warning);
+        }
+    }
+
+    // IO thread: Shows up once the client thread gets to `logWarnings`.
+    private void warn(String message) {
+        _warnings.add(message);
+    }
+
+    private LoadedRegion readRegion(long regionKey) {
+        LoadedRegion result = new LoadedRegion(regionKey);
+        Path file = getRegionFile(regionKey);
+        if (!Files.exists(file)) return result;
+        try {
+            // Read onto the heap, not mapped: A live mapping would stop us replacing or deleting the file on Windows.
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                warn("Block cache region file " + file + " is invalid or from an older version, ignoring it.");
+                return result;
+            }
+            int typeCount = buffer.getInt();
+            for (int i = 0; i < typeCount; ++i) {
+                byte[] idBytes = new byte[buffer.getShort()];
+                buffer.get(idBytes);
+                Identifier id = new Identifier(new String(idBytes, StandardCharsets.UTF_8));
+                int count = buffer.getInt();
+                if (!Registry.BLOCK.containsId(id)) {
+                    // Block doesn't exist anymore, skip it.
+                    buffer.position(buffer.position() + count * Integer.BYTES);
+                    continue;
+                }
+                Block block = Registry.BLOCK.get(id);
+                LongArrayList positions = new LongArrayList(count);
+                for (int j = 0; j < count; ++j) {
+                    int local = buffer.getInt();
+                    positions.add(unpackLocal(regionKey, local));
+                    result.hash += hashEntry(block, local);
+                }
+                result.positions.put(block, positions);
+            }
+        } catch (IOException | RuntimeException e) {
+            warn("Failed to read block cache region file " + file + ", ignoring it.");
+            e.printStackTrace();
+            result.positions.clear();
+        }
+        return result;
+    }
+
+    private void writeRegion(long regionKey, Map<Block, IntArrayList> regionContents) {
+        Path file = getRegionFile(regionKey);
+        try {
+            if (regionContents.isEmpty()) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            List<byte[]> ids = new ArrayList<>(regionContents.size());
+            int size = 3 * Integer.BYTES;
+            for (Map.Entry<Block, IntArrayList> entry : regionContents.entrySet()) {
+                byte[] id = Registry.BLOCK.getId(entry.getKey()).toString().getBytes(StandardCharsets.UTF_8);
+                ids.add(id);
+                size += Short.BYTES + id.length + Integer.BYTES + entry.getValue().size() * Integer.BYTES;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(regionContents.size());
+            int i = 0;
+            for (IntArrayList positions : regionContents.values()) {
+                byte[] id = ids.get(i++);
+                buffer.putShort((short) id.length);
+                buffer.put(id);
+                buffer.putInt(positions.size());
+                for (int j = 0; j < positions.size(); ++j) {
+                    buffer.putInt(positions.getInt(j));
+                }
+            }
+            buffer.flip();
+
+            Files.createDirectories(_folder);
+            // Write to the side and swap it in, so a crash mid write can't leave us with half a file.
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            warn("Failed to write block cache region file " + file + " (will try again next flush)");
+            e.printStackTrace();
+            _failedWrites.add(regionKey);
+        }
+    }
+
+    private static class LoadedRegion {
+        public final long regionKey;
+        public final Map<Block, LongArrayList> positions = new HashMap<>();
+        public long hash = 0;
+
+        public LoadedRegion(long regionKey) {
+            this.regionKey = regionKey;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package adris.altoclef.trackers.entitytracking;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+
+/**
+ * Which entities each player collided with last tick.
+ *
+ * Collisions come in at physics rate and pile up in one set, while queries read the other (last tick's) set.
+ * Every tick the two swap and the new accumulator gets cleared, which keeps its capacity, so nothing gets allocated once warmed up.
+ *
+ * (player id, entity id) pairs are packed into a long, so a lookup is a single primitive hash set check.
+ */
+public class CollisionRegistry {
+
+    private LongOpenHashSet _accumulating = new LongOpenHashSet();
+    private LongOpenHashSet _colliding = new LongOpenHashSet();
+
+    private static long pack(int playerId, int entityId) {
+        return ((long) playerId << 32) | (entityId & 0xFFFFFFFFL);
+    }
+
+    public void register(PlayerEntity player, Entity entity) {
+        _accumulating.add(pack(player.getId(), entity.getId()));
+    }
+
+    /**
+     * Whether these two collided during the last tick.
+     */
+    public boolean isColliding(PlayerEntity player, Entity entity) {
+        return _colliding.contains(pack(player.getId(), entity.getId()));
+    }
+
+    /**
+     * Publishes everything registered since the last flip, and starts accumulating again.
+     */
+    public void flip() {
+        LongOpenHashSet published = _accumulating;
+        _accumulating = _colliding;
+        _colliding = published;
+        _accumulating.clear();
+    }
+
+    public void clear() {
+        _accumulating.clear();
+        _colliding.clear();
+    }
+}
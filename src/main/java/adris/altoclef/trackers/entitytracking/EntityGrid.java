@@ -0,0 +1,243 @@
+package adris.altoclef.trackers.entitytracking;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.entity.Entity;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Uniform spatial hash of entities, bucketed into 8x8 block columns.
+ *
+ * Lets us answer "closest entity" and "entities within range" by looking at the few cells around a position
+ * instead of every entity in the world. Columns and not cubes, as entities are rarely spread out enough vertically
+ * for the extra cells to pay off.
+ *
+ * Entities move, so whoever owns the grid has to call {@link #update(Entity)} on them every tick.
+ */
+public class EntityGrid {
+
+    public static final int CELL_SIZE = 8;
+    private static final int CELL_SHIFT = 3;
+
+    private final Long2ObjectOpenHashMap<ArrayList<Entity>> _cells = new Long2ObjectOpenHashMap<>();
+    // Which cell each entity is currently filed under
+    private final Object2LongOpenHashMap<Entity> _cellOf = new Object2LongOpenHashMap<>();
+    // Goes up whenever an entity is added, removed or changes cells
+    private long _version = 0;
+
+    private static int toCell(double coordinate) {
+        return MathHelper.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    private static long getCellKey(Entity entity) {
+        return ChunkPos.toLong(toCell(entity.getX()), toCell(entity.getZ()));
+    }
+
+    public void add(Entity entity) {
+        if (_cellOf.containsKey(entity)) {
+            update(entity);
+            return;
+        }
+        long key = getCellKey(entity);
+        _cellOf.put(entity, key);
+        addToCell(key, entity);
+        _version++;
+    }
+
+    public void remove(Entity entity) {
+        if (!_cellOf.containsKey(entity)) return;
+        removeFromCell(_cellOf.removeLong(entity), entity);
+        _version++;
+    }
+
+    /**
+     * Re-files an entity if it moved into another cell.
+     */
+    public void update(Entity entity) {
+        if (!_cellOf.containsKey(entity)) return;
+        long previous = _cellOf.getLong(entity);
+        long key = getCellKey(entity);
+        if (key == previous) return;
+        removeFromCell(previous, entity);
+        addToCell(key, entity);
+        _cellOf.put(entity, key);
+        _version++;
+    }
+
+    public int size() {
+        return _cellOf.size();
+    }
+
+    public void clear() {
+        _cells.clear();
+        _cellOf.clear();
+        _version++;
+    }
+
+    /**
+     * @return A counter that changes whenever an entity is added, removed or moves into another cell.
+     */
+    public long getVersion() {
+        return _version;
+    }
+
+    private void addToCell(long key, Entity entity) {
+        ArrayList<Entity> cell = _cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>(4);
+            _cells.put(key, cell);
+        }
+        cell.add(entity);
+    }
+
+    private void removeFromCell(long key, Entity entity) {
+        ArrayList<Entity> cell = _cells.get(key);
+        if (cell == null) return;
+        cell.remove(entity);
+        if (cell.isEmpty()) {
+            _cells.remove(key);
+        }
+    }
+
+    /**
+     * Visits every entity strictly closer than `range` to `origin`.
+     * Same as checking {@link Entity#squaredDistanceTo(Vec3d)} against every entity, just without visiting all of them.
+     */
+    public void forEachWithinRange(Vec3d origin, double range, Consumer<Entity> onEntity) {
+        double rangeSq = range * range;
+        int minX = toCell(origin.x - range), maxX = toCell(origin.x + range),
+                minZ = toCell(origin.z - range), maxZ = toCell(origin.z + range);
+        for (int x = minX; x <= maxX; ++x) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                ArrayList<Entity> cell = _cells.get(ChunkPos.toLong(x, z));
+                if (cell == null) continue;
+                //noinspection ForLoopReplaceableByForEach
+                for (int i = 0; i < cell.size(); ++i) {
+                    Entity entity = cell.get(i);
+                    if (entity.squaredDistanceTo(origin) < rangeSq) {
+                        onEntity.accept(entity);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the lowest cost entity, searching outwards from `origin` one cell ring at a time.
+     *
+     * @param origin          Where to search from
+     * @param maxRange        Ignore entities further (horizontally) than this. Infinity for no limit.
+     * @param cost            Cost of an entity, lower is better.
+     * @param minCostAtRange  Given a horizontal block distance, returns the lowest cost an entity that far away could have.
+     *                        This is what lets us stop early, so it must never overestimate.
+     * @param accept          Filter. Entities that fail are skipped.
+     * @return The lowest cost accepted entity, or null if none.
+     */
+    public Entity getClosest(Vec3d origin, double maxRange, ToDoubleFunction<Entity> cost, DoubleUnaryOperator minCostAtRange, Predicate<Entity> accept) {
+        if (_cells.isEmpty()) return null;
+        int centerX = toCell(origin.x),
+                centerZ = toCell(origin.z);
+        double maxRangeSq = maxRange * maxRange;
+
+        ClosestSearch search = new ClosestSearch(origin, maxRangeSq, cost, accept);
+        int cellsVisited = 0;
+        int ring = 0;
+        for (; ; ++ring) {
+            double ringRange = getMinRangeOfRing(origin, centerX, centerZ, ring);
+            if (ringRange > maxRange || minCostAtRange.applyAsDouble(ringRange) >= search.bestCost) {
+                // Nothing further out can beat what we have.
+                return search.best;
+            }
+            // Sparse/far away entities: Walking empty rings costs more than just looking at every cell.
+            if (cellsVisited > _cells.size()) {
+                break;
+            }
+            if (ring == 0) {
+                search.visitCell(_cells.get(ChunkPos.toLong(centerX, centerZ)));
+                cellsVisited++;
+                continue;
+            }
+            for (int dx = -ring; dx <= ring; ++dx) {
+                search.visitCell(_cells.get(ChunkPos.toLong(centerX + dx, centerZ - ring)));
+                search.visitCell(_cells.get(ChunkPos.toLong(centerX + dx, centerZ + ring)));
+            }
+            for (int dz = -ring + 1; dz <= ring - 1; ++dz) {
+                search.visitCell(_cells.get(ChunkPos.toLong(centerX - ring, centerZ + dz)));
+                search.visitCell(_cells.get(ChunkPos.toLong(centerX + ring, centerZ + dz)));
+            }
+            cellsVisited += ring * 8;
+        }
+
+        // Fallback: Check every cell we haven't visited yet, skipping the ones that can't possibly win.
+        for (Long2ObjectMap.Entry<ArrayList<Entity>> entry : _cells.long2ObjectEntrySet()) {
+            int cellX = ChunkPos.getPackedX(entry.getLongKey()),
+                    cellZ = ChunkPos.getPackedZ(entry.getLongKey());
+            int cellRing = Math.max(Math.abs(cellX - centerX), Math.abs(cellZ - centerZ));
+            if (cellRing < ring) continue;
+            double cellRange = getMinRangeOfRing(origin, centerX, centerZ, cellRing);
+            if (cellRange > maxRange || minCostAtRange.applyAsDouble(cellRange) >= search.bestCost) continue;
+            search.visitCell(entry.getValue());
+        }
+        return search.best;
+    }
+
+    /**
+     * The closest horizontal distance anything within cell ring `ring` can be from `origin`.
+     */
+    private static double getMinRangeOfRing(Vec3d origin, int centerX, int centerZ, int ring) {
+        if (ring == 0) return 0;
+        // Everything INSIDE this ring spans these block coordinates.
+        int innerMinX = (centerX - ring + 1) << CELL_SHIFT,
+                innerMaxX = (centerX + ring) << CELL_SHIFT,
+                innerMinZ = (centerZ - ring + 1) << CELL_SHIFT,
+                innerMaxZ = (centerZ + ring) << CELL_SHIFT;
+        double toEdge = Math.min(
+                Math.min(origin.x - innerMinX, innerMaxX - origin.x),
+                Math.min(origin.z - innerMinZ, innerMaxZ - origin.z)
+        );
+        return Math.max(0, toEdge);
+    }
+
+    private static class ClosestSearch {
+        private final Vec3d _origin;
+        private final double _maxRangeSq;
+        private final ToDoubleFunction<Entity> _cost;
+        private final Predicate<Entity> _accept;
+        public Entity best = null;
+        public double bestCost = Double.POSITIVE_INFINITY;
+
+        public ClosestSearch(Vec3d origin, double maxRangeSq, ToDoubleFunction<Entity> cost, Predicate<Entity> accept) {
+            _origin = origin;
+            _maxRangeSq = maxRangeSq;
+            _cost = cost;
+            _accept = accept;
+        }
+
+        public void visitCell(ArrayList<Entity> cell) {
+            if (cell == null) return;
+            //noinspection ForLoopReplaceableByForEach
+            for (int i = 0; i < cell.size(); ++i) {
+                Entity entity = cell.get(i);
+                double dx = entity.getX() - _origin.x,
+                        dz = entity.getZ() - _origin.z;
+                if (dx * dx + dz * dz > _maxRangeSq) continue;
+                // Check the filter first, it's usually what rules out most entities (wrong type).
+                if (!_accept.test(entity)) continue;
+                double cost = _cost.applyAsDouble(entity);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = entity;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package adris.altoclef.trackers.entitytracking;
+
+import adris.altoclef.util.baritone.ProjectileDangerMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import net.minecraft.entity.Entity;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * What the entities in the world looked like as of one tick: where every entity is, and where projectiles are headed.
+ *
+ * Published by the entity tracker every tick and never modified afterwards, so pathing threads
+ * can read the latest one without locking or touching a single {@link Entity}.
+ */
+@SuppressWarnings("rawtypes")
+public class EntitySnapshot {
+
+    public static final EntitySnapshot EMPTY = new EntitySnapshot(List.of(), ProjectileDangerMap.EMPTY);
+
+    private final int[] _ids;
+    private final double[] _x, _y, _z;
+    private final Class[] _types;
+    private final Int2IntOpenHashMap _indexOf;
+    private final ProjectileDangerMap _projectileDangerMap;
+
+    /**
+     * Must be built on the client thread, as it reads from the entities.
+     */
+    public EntitySnapshot(Collection<Entity> entities, ProjectileDangerMap projectileDangerMap) {
+        int size = entities.size();
+        _ids = new int[size];
+        _x = new double[size];
+        _y = new double[size];
+        _z = new double[size];
+        _types = new Class[size];
+        _indexOf = new Int2IntOpenHashMap(size);
+        _indexOf.defaultReturnValue(-1);
+        int i = 0;
+        for (Entity entity : entities) {
+            _ids[i] = entity.getId();
+            _x[i] = entity.getX();
+            _y[i] = entity.getY();
+            _z[i] = entity.getZ();
+            _types[i] = entity.getClass();
+            _indexOf.put(_ids[i], i);
+            i++;
+        }
+        _projectileDangerMap = projectileDangerMap;
+    }
+
+    public int size() {
+        return _ids.length;
+    }
+
+    /**
+     * @return The index of the entity with this id, or -1 if it wasn't around for this snapshot.
+     */
+    public int indexOf(int entityId) {
+        return _indexOf.get(entityId);
+    }
+
+    public int getId(int index) {
+        return _ids[index];
+    }
+
+    public double getX(int index) {
+        return _x[index];
+    }
+
+    public double getY(int index) {
+        return _y[index];
+    }
+
+    public double getZ(int index) {
+        return _z[index];
+    }
+
+    /**
+     * @return The entity's exact class.
+     */
+    public Class getType(int index) {
+        return _types[index];
+    }
+
+    public double squaredDistanceTo(int index, double x, double y, double z) {
+        double dx = _x[index] - x, dy = _y[index] - y, dz = _z[index] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public ProjectileDangerMap getProjectileDangerMap() {
+        return _projectileDangerMap;
+    }
+}
@@ -0,0 +1,95 @@
+package adris.altoclef.trackers.entitytracking;
+
+import net.minecraft.entity.Entity;
+
+import java.util.*;
+
+/**
+ * Indexes entities under every class and interface they are, not just their exact class.
+ *
+ * So asking for {@link net.minecraft.entity.mob.HostileEntity} gets every zombie, skeleton, spider...
+ * and asking for {@link net.minecraft.entity.mob.Monster} gets those plus slimes, ghasts and the rest.
+ *
+ * What a class is gets worked out once per class and cached, so we never walk the class hierarchy
+ * (or call {@link Class#isAssignableFrom(Class)}) per entity.
+ */
+@SuppressWarnings("rawtypes")
+public class EntityTypeIndex {
+
+    // Entity and everything it is (Object, Nameable...) would just be another list of every entity.
+    private static final Set<Class> SKIPPED_TYPES = new HashSet<>();
+    static {
+        collectTypes(Entity.class, SKIPPED_TYPES);
+    }
+
+    private final HashMap<Class, Set<Class>> _typesOf = new HashMap<>();
+    private final HashMap<Class, List<Entity>> _byType = new HashMap<>();
+
+    private static void collectTypes(Class type, Set<Class> result) {
+        if (type == null || !result.add(type)) return;
+        collectTypes(type.getSuperclass(), result);
+        for (Class inter : type.getInterfaces()) {
+            collectTypes(inter, result);
+        }
+    }
+
+    /**
+     * @return Every class and interface (of interest) that an entity of this exact class is.
+     */
+    public Set<Class> getTypesOf(Class entityClass) {
+        Set<Class> types = _typesOf.get(entityClass);
+        if (types == null) {
+            types = new HashSet<>();
+            collectTypes(entityClass, types);
+            types.removeAll(SKIPPED_TYPES);
+            _typesOf.put(entityClass, types);
+        }
+        return types;
+    }
+
+    public boolean isOfType(Entity entity, Class type) {
+        return getTypesOf(entity.getClass()).contains(type);
+    }
+
+    public boolean isOfAnyType(Entity entity, Class[] types) {
+        Set<Class> entityTypes = getTypesOf(entity.getClass());
+        for (Class type : types) {
+            if (entityTypes.contains(type)) return true;
+        }
+        return false;
+    }
+
+    public void add(Entity entity) {
+        for (Class type : getTypesOf(entity.getClass())) {
+            _byType.computeIfAbsent(type, t -> new ArrayList<>()).add(entity);
+        }
+    }
+
+    public void remove(Entity entity) {
+        for (Class type : getTypesOf(entity.getClass())) {
+            List<Entity> ofType = _byType.get(type);
+            if (ofType == null) continue;
+            ofType.remove(entity);
+            if (ofType.isEmpty()) {
+                _byType.remove(type);
+            }
+        }
+    }
+
+    /**
+     * @return Every entity that is a `type`, subclasses included. Don't modify it.
+     */
+    public List<Entity> get(Class type) {
+        List<Entity> result = _byType.get(type);
+        return result != null ? result : Collections.emptyList();
+    }
+
+    public boolean contains(Class type) {
+        return _byType.containsKey(type);
+    }
+
+    public void clear() {
+        // Classes don't change, so the type cache stays.
+        _byType.clear();
+    }
+}
@@ -0,0 +1,130 @@
+package adris.altoclef.trackers.entitytracking;
+
+import net.minecraft.util.math.Vec3d;
+
+/**
+ * The last few positions something was seen at, along with when (in ticks).
+ *
+ * Fixed size ring of samples, so it never grows no matter how long we watch.
+ * Good for guessing where something is headed: velocity is fit over the most recent samples,
+ * so a single jittery sample (or a missed tick) doesn't throw it off.
+ */
+public class PositionHistory {
+
+    // Fit velocity over at most this many ticks worth of samples
+    private static final int VELOCITY_WINDOW_TICKS = 10;
+    // Last seen this long ago? Then we have no clue where it's headed anymore.
+    private static final int STALE_TICKS = 20;
+
+    private final long[] _ticks;
+    private final double[] _x, _y, _z;
+    // Where the next sample goes
+    private int _head = 0;
+    private int _size = 0;
+
+    public PositionHistory(int capacity) {
+        _ticks = new long[capacity];
+        _x = new double[capacity];
+        _y = new double[capacity];
+        _z = new double[capacity];
+    }
+
+    public void add(long tick, Vec3d pos) {
+        // Same tick? Just overwrite.
+        if (_size != 0 && _ticks[index(0)] == tick) {
+            _head = index(0);
+            _size--;
+        }
+        _ticks[_head] = tick;
+        _x[_head] = pos.x;
+        _y[_head] = pos.y;
+        _z[_head] = pos.z;
+        _head = (_head + 1) % _ticks.length;
+        if (_size < _ticks.length) _size++;
+    }
+
+    // Array index of the sample `age` samples back from the latest (0 = latest)
+    private int index(int age) {
+        return (_head - 1 - age + _ticks.length * 2) % _ticks.length;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public long getLatestTick() {
+        return _ticks[index(0)];
+    }
+
+    public Vec3d getLatest() {
+        int i = index(0);
+        return new Vec3d(_x[i], _y[i], _z[i]);
+    }
+
+    /**
+     * Estimates velocity (blocks per tick) by fitting a line through the recent samples.
+     *
+     * @param now The current tick. If our latest sample is too old, we assume it's standing still.
+     */
+    public Vec3d getVelocity(long now) {
+        if (now - getLatestTick() > STALE_TICKS) return Vec3d.ZERO;
+        return getLastKnownVelocity();
+    }
+
+    /**
+     * How it was moving (blocks per tick) when we last saw it, no matter how long ago that was.
+     */
+    public Vec3d getLastKnownVelocity() {
+        if (_size < 2) return Vec3d.ZERO;
+        long latest = getLatestTick();
+        // Least squares slope, with time relative to the latest sample so numbers stay small.
+        double sumT = 0, sumTT = 0, sumX = 0, sumY = 0, sumZ = 0, sumTX = 0, sumTY = 0, sumTZ = 0;
+        int count = 0;
+        for (int age = 0; age < _size; ++age) {
+            int i = index(age);
+            double t = _ticks[i] - latest;
+            if (-t > VELOCITY_WINDOW_TICKS) break;
+            sumT += t;
+            sumTT += t * t;
+            sumX += _x[i];
+            sumY += _y[i];
+            sumZ += _z[i];
+            sumTX += t * _x[i];
+            sumTY += t * _y[i];
+            sumTZ += t * _z[i];
+            count++;
+        }
+        double denominator = count * sumTT - sumT * sumT;
+        if (count < 2 || denominator < 0.000001) return Vec3d.ZERO;
+        return new Vec3d(
+                (count * sumTX - sumT * sumX) / denominator,
+                (count * sumTY - sumT * sumY) / denominator,
+                (count * sumTZ - sumT * sumZ) / denominator
+        );
+    }
+
+    /**
+     * @return Which way it was moving horizontally when we last saw it, as a yaw (same convention as entity yaw), or NaN if it wasn't.
+     */
+    public double getHeadingYaw() {
+        Vec3d velocity = getLastKnownVelocity();
+        if (velocity.x * velocity.x + velocity.z * velocity.z < 0.0001) return Double.NaN;
+        return Math.toDegrees(Math.atan2(-velocity.x, velocity.z));
+    }
+
+    /**
+     * Guesses where it'll be `ticksAhead` ticks from `now`, assuming it keeps moving the way it has been.
+     * Only extrapolates horizontally: Vertical movement is mostly jumping and falling, which doesn't keep going.
+     */
+    public Vec3d predict(long now, int ticksAhead) {
+        Vec3d latest = getLatest();
+        Vec3d velocity = getVelocity(now);
+        if (velocity == Vec3d.ZERO) return latest;
+        double ticks = ticksAhead + (now - getLatestTick());
+        return new Vec3d(latest.x + velocity.x * ticks, latest.y, latest.z + velocity.z * ticks);
+    }
+}
@@ -7,6 +7,7 @@ import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.font.TextRenderer;
 import net.minecraft.client.util.math.MatrixStack;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.time.Instant;
@@ -20,20 +21,45 @@ public class CommandStatusOverlay {
     private long _timeRunning;
     private long _lastTime = 0;
 
-    public void render(AltoClef mod, MatrixStack matrixstack) {
-        if (mod.getModSettings().shouldShowTaskChain()) {
-            List<Task> tasks = Collections.emptyList();
-            if (mod.getTaskRunner().getCurrentTaskChain() != null) {
-                tasks = mod.getTaskRunner().getCurrentTaskChain().getTasks();
+    // Task lines, built once per tick (see `update`) instead of every frame.
+    private final List<String> _lines = new ArrayList<>();
+
+    /**
+     * Rebuild the task chain's lines. Task names can take a while to build, so this is done on the tick (when there's time) and not every frame.
+     */
+    public void update(AltoClef mod) {
+        _lines.clear();
+        if (!mod.getModSettings().shouldShowTaskChain()) return;
+        List<Task> tasks = Collections.emptyList();
+        if (mod.getTaskRunner().getCurrentTaskChain() != null) {
+            tasks = mod.getTaskRunner().getCurrentTaskChain().getTasks();
+        }
+        int maxLines = 10;
+        if (tasks.size() > maxLines) {
+            for (int i = 0; i < tasks.size(); ++i) {
+                // Skip over the next tasks
+                if (i == 0 || i > tasks.size() - maxLines) {
+                    _lines.add(tasks.get(i).toString());
+                } else if (i == 1) {
+                    _lines.add(" ... ");
+                }
+            }
+        } else {
+            for (Task task : tasks) {
+                _lines.add(task.toString());
             }
+        }
+    }
 
+    public void render(AltoClef mod, MatrixStack matrixstack) {
+        if (mod.getModSettings().shouldShowTaskChain()) {
             int color = 0xFFFFFFFF;
-            drawTaskChain(MinecraftClient.getInstance().textRenderer, matrixstack, 0, 0, color, 10, tasks, mod);
+            drawTaskChain(MinecraftClient.getInstance().textRenderer, matrixstack, 0, 0, color, _lines, mod);
         }
     }
     private DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.from(ZoneOffset.of("+00:00"))); // The date formatter
-    private void drawTaskChain(TextRenderer renderer, MatrixStack stack, float dx, float dy, int color, int maxLines, List<Task> tasks, AltoClef mod) {
-        if (tasks.size() == 0) {
+    private void drawTaskChain(TextRenderer renderer, MatrixStack stack, float dx, float dy, int color, List<String> lines, AltoClef mod) {
+        if (lines.size() == 0) {
             renderer.draw(stack, " (no task running) ", dx, dy, color);
             if (_lastTime+10000 < Instant.now().toEpochMilli() && mod.getModSettings().shouldShowTimer()) {//if it doesn't run any task in 10 secs
                 _timeRunning = Instant.now().toEpochMilli();//reset the timer
@@ -47,27 +73,11 @@ public class CommandStatusOverlay {
                 dx += 8;//Do the same thing to list the tasks
                 dy += fontHeight + 2;
             }
-            if (tasks.size() > maxLines) {
-                for (int i = 0; i < tasks.size(); ++i) {
-                    // Skip over the next tasks
-                    if (i == 0 || i > tasks.size() - maxLines) {
-                        renderer.draw(stack, tasks.get(i).toString(), dx, dy, color);
-                    } else if (i == 1) {
-                        renderer.draw(stack, " ... ", dx, dy, color);
-                    } else {
-                        continue;
-                    }
-                    dx += 8;
-                    dy += fontHeight + 2;
-                }
-            } else {
-                for (Task task : tasks) {
-                    renderer.draw(stack, task.toString(), dx, dy, color);
-                    dx += 8;
-                    dy += fontHeight + 2;
-                }
+            for (String line : lines) {
+                renderer.draw(stack, line, dx, dy, color);
+                dx += 8;
+                dy += fontHeight + 2;
             }
-
         }
     }
 }
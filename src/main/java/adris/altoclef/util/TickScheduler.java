@@ -0,0 +1,205 @@
+package adris.altoclef.util;
+
+import adris.altoclef.Debug;
+import adris.altoclef.util.helpers.ConfigHelper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps client ticks within a time budget.
+ *
+ * Critical work (trackers and the task runner, which is where survival, MLG and defense happen) is run by the caller as usual.
+ * Everything that can wait a bit is a {@link Job}: at the end of the tick, queued jobs run highest priority first
+ * for as long as the budget allows, and whatever doesn't fit waits for the next tick.
+ * A job that has waited `maxDeferTicks` runs anyway, so nothing starves.
+ *
+ * Client thread only.
+ */
+public class TickScheduler {
+
+    private static TickSchedulerConfig _config = new TickSchedulerConfig();
+    static {
+        ConfigHelper.loadConfig("configs/tick_scheduler.json", TickSchedulerConfig::new, TickSchedulerConfig.class, newConfig -> _config = newConfig);
+    }
+
+    public enum Priority {
+        HIGH,
+        NORMAL,
+        LOW
+    }
+
+    // One queue per priority, in order of priority.
+    private final List<ArrayDeque<Job>> _queues = new ArrayList<>();
+
+    private long _ticks = 0;
+    private long _tickStartNanos;
+
+    // Stats
+    private long _lastTickNanos, _lastDeferredNanos, _maxTickNanos;
+    private int _lastJobsRun, _lastJobsWaiting;
+    private long _overrunTicks, _overrunNanos, _forcedRuns;
+
+    public TickScheduler() {
+        for (Priority ignored : Priority.values()) {
+            _queues.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Call before any of this tick's work.
+     */
+    public void startTick() {
+        _ticks++;
+        _tickStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Queue a job to run this tick if there's time, or a later one if there isn't.
+     * Queuing a job that's still waiting does nothing (it keeps its place).
+     */
+    public void schedule(Job job) {
+        if (job._queuedTick != -1) return;
+        job._queuedTick = _ticks;
+        _queues.get(job.priority.ordinal()).addLast(job);
+    }
+
+    /**
+     * Call after this tick's critical work: Runs queued jobs with whatever is left of our budget.
+     */
+    public void endTick() {
+        long budgetEnd = _tickStartNanos + (long) (_config.tickBudgetMilliseconds * 1_000_000);
+        long deferredStart = System.nanoTime();
+        int jobsRun = 0;
+
+        // Anything that waited long enough runs no matter what.
+        for (ArrayDeque<Job> queue : _queues) {
+            for (int i = queue.size(); i > 0; --i) {
+                Job job = queue.pollFirst();
+                if (_ticks - job._queuedTick >= _config.maxDeferTicks) {
+                    _forcedRuns++;
+                    runJob(job, queue);
+                    jobsRun++;
+                } else {
+                    queue.addLast(job);
+                }
+            }
+        }
+        // Then highest priority first, while we have time.
+        for (ArrayDeque<Job> queue : _queues) {
+            for (int i = queue.size(); i > 0 && System.nanoTime() < budgetEnd; --i) {
+                runJob(queue.pollFirst(), queue);
+                jobsRun++;
+            }
+        }
+
+        long now = System.nanoTime();
+        _lastDeferredNanos = now - deferredStart;
+        _lastTickNanos = now - _tickStartNanos;
+        _maxTickNanos = Math.max(_maxTickNanos, _lastTickNanos);
+        _lastJobsRun = jobsRun;
+        _lastJobsWaiting = 0;
+        for (ArrayDeque<Job> queue : _queues) {
+            _lastJobsWaiting += queue.size();
+        }
+        if (now > budgetEnd) {
+            _overrunTicks++;
+            _overrunNanos += now - budgetEnd;
+            if (_config.logOverruns) {
+                Debug.logInternal(String.format("Tick took %.2fms (budget %.2fms), %d jobs waiting", _lastTickNanos / 1_000_000.0, _config.tickBudgetMilliseconds, _lastJobsWaiting));
+            }
+        }
+    }
+
+    private void runJob(Job job, ArrayDeque<Job> queue) {
+        long start = System.nanoTime();
+        boolean done;
+        try {
+            done = job.work.getAsBoolean();
+        } catch (Exception e) {
+            Debug.logWarning("Scheduled job \"" + job.name + "\" failed: " + e.getMessage());
+            e.printStackTrace();
+            done = true;
+        }
+        job.totalNanos += System.nanoTime() - start;
+        job.runs++;
+        job.waitedTicks += _ticks - job._queuedTick;
+        if (done) {
+            job._queuedTick = -1;
+        } else {
+            // Resume next tick, behind everyone else that's waiting. It still counts as waiting since it was first queued.
+            queue.addLast(job);
+        }
+    }
+
+    public double getLastTickMilliseconds() {
+        return _lastTickNanos / 1_000_000.0;
+    }
+
+    public double getLastDeferredMilliseconds() {
+        return _lastDeferredNanos / 1_000_000.0;
+    }
+
+    public int getJobsWaiting() {
+        return _lastJobsWaiting;
+    }
+
+    public long getOverrunTicks() {
+        return _overrunTicks;
+    }
+
+    /**
+     * @return How our ticks have been going, for debugging.
+     */
+    public List<String> getStats(Job... jobs) {
+        List<String> result = new ArrayList<>();
+        result.add(String.format("Last tick %.2fms (%.2fms deferred work, %d jobs run, %d waiting), slowest %.2fms, budget %.2fms",
+                getLastTickMilliseconds(), getLastDeferredMilliseconds(), _lastJobsRun, _lastJobsWaiting, _maxTickNanos / 1_000_000.0, _config.tickBudgetMilliseconds));
+        result.add(String.format("%d/%d ticks over budget (by %.2fms on average), %d jobs ran late",
+                _overrunTicks, _ticks, _overrunTicks != 0 ? _overrunNanos / 1_000_000.0 / _overrunTicks : 0, _forcedRuns));
+        for (Job job : jobs) {
+            if (job.runs == 0) continue;
+            result.add(String.format("%s: %.3fms avg, waited %.2f ticks avg", job.name, job.totalNanos / 1_000_000.0 / job.runs, (double) job.waitedTicks / job.runs));
+        }
+        return result;
+    }
+
+    /**
+     * Work that can wait. Make one per kind of work and keep it around, then schedule it whenever it's needed.
+     */
+    public static class Job {
+        public final String name;
+        public final Priority priority;
+        // Returns true when done, false to be resumed next tick (for work that does a slice at a time).
+        private final BooleanSupplier work;
+
+        private long _queuedTick = -1;
+
+        // Stats
+        private long runs, totalNanos, waitedTicks;
+
+        public Job(String name, Priority priority, BooleanSupplier work) {
+            this.name = name;
+            this.priority = priority;
+            this.work = work;
+        }
+
+        public Job(String name, Priority priority, Runnable work) {
+            this(name, priority, () -> {
+                work.run();
+                return true;
+            });
+        }
+    }
+
+    static class TickSchedulerConfig {
+        // How long (in milliseconds) a tick may take before deferrable work waits for the next one. A whole tick is 50.
+        public double tickBudgetMilliseconds = 20;
+        // Deferred work that has waited this many ticks runs even if we're over budget.
+        public int maxDeferTicks = 20;
+        // If true, log every tick that goes over budget.
+        public boolean logOverruns = false;
+    }
+}
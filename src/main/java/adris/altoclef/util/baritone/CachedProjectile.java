@@ -1,31 +1,169 @@
 package adris.altoclef.util.baritone;
 
-import adris.altoclef.util.csharpisbetter.TimerGame;
 import net.minecraft.util.math.Vec3d;
 
 import java.lang.reflect.Type;
 
+/**
+ * A projectile we're keeping an eye on, tracked by entity id across ticks.
+ *
+ * Carries where it'll be every tick from now (its trajectory), simulated by a {@link ProjectileBatch}.
+ * As long as the projectile keeps following that path we keep the trajectory,
+ * and only re-simulate when it strays (hit something, server corrected it...)
+ */
 public class CachedProjectile {
+
+    // How many ticks ahead we simulate
+    public static final int TRAJECTORY_TICKS = 40;
+    // How far the projectile can stray from our trajectory before we re-simulate it
+    private static final double TRAJECTORY_TOLERANCE = 0.05;
+
+    public final int entityId;
     public Vec3d velocity;
     public Vec3d position;
     public double gravity;
+    // Velocity multiplier every tick, in air and in water
+    public double drag;
+    public double waterDrag;
     public Type projectileType;
 
-    private final TimerGame _lastCache = new TimerGame(2);
-    private Vec3d _cachedHit;
-    private boolean _cacheHeld = false;
+    // (x, y, z) of every tick, from _trajectoryStart up until _trajectoryEnd (where it hits something, or we stopped simulating).
+    private final double[] _trajectory = new double[(TRAJECTORY_TICKS + 1) * 3];
+    private int _trajectoryStart = 0;
+    private int _trajectoryEnd = 0;
+    private boolean _hitsBlock = false;
+    private boolean _hasTrajectory = false;
+
+    public CachedProjectile(int entityId) {
+        this.entityId = entityId;
+    }
+
+    /**
+     * Move to where the projectile is now, keeping our trajectory if it's still on it.
+     *
+     * @return false if the projectile strayed from its trajectory and needs to be simulated again.
+     */
+    public boolean update(Vec3d position, Vec3d velocity) {
+        this.position = position;
+        this.velocity = velocity;
+        if (_hasTrajectory) {
+            // Projectiles move one point per tick, but we may not have been updated every tick.
+            for (int i = _trajectoryStart; i < _trajectoryEnd; ++i) {
+                if (isOnTrajectory(i)) {
+                    _trajectoryStart = i;
+                    // Don't let how far ahead we can see run too low
+                    if (_hitsBlock || _trajectoryEnd - i >= TRAJECTORY_TICKS / 2) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        _hasTrajectory = false;
+        return false;
+    }
+
+    /**
+     * Add ourselves to a batch, to get simulated from where we are now.
+     *
+     * @return Our index in the batch
+     */
+    public int addTo(ProjectileBatch batch) {
+        return batch.add(position.x, position.y, position.z, velocity.x, velocity.y, velocity.z, gravity, drag, waterDrag);
+    }
+
+    /**
+     * Take our trajectory from a simulated batch.
+     */
+    public void setTrajectory(ProjectileBatch batch, int index) {
+        int ticks = Math.min(batch.getSimulatedTicks(index), TRAJECTORY_TICKS);
+        for (int t = 0; t <= ticks; ++t) {
+            _trajectory[t * 3] = batch.getX(index, t);
+            _trajectory[t * 3 + 1] = batch.getY(index, t);
+            _trajectory[t * 3 + 2] = batch.getZ(index, t);
+        }
+        _trajectoryStart = 0;
+        _trajectoryEnd = ticks;
+        _hitsBlock = batch.getImpactTick(index) != ProjectileBatch.NO_IMPACT && batch.getImpactTick(index) <= TRAJECTORY_TICKS;
+        _hasTrajectory = true;
+    }
+
+    public boolean needsTrajectory() {
+        return !_hasTrajectory;
+    }
+
+    /**
+     * @return How many ticks until we hit a block, or -1 if we don't any time soon.
+     */
+    public int getTicksUntilImpact() {
+        if (!_hasTrajectory || !_hitsBlock) return -1;
+        return _trajectoryEnd - _trajectoryStart;
+    }
+
+    private boolean isOnTrajectory(int index) {
+        int i = index * 3;
+        double vx = _trajectory[i + 3] - _trajectory[i],
+                vy = _trajectory[i + 4] - _trajectory[i + 1],
+                vz = _trajectory[i + 5] - _trajectory[i + 2];
+        return Math.abs(_trajectory[i] - position.x) < TRAJECTORY_TOLERANCE
+                && Math.abs(_trajectory[i + 1] - position.y) < TRAJECTORY_TOLERANCE
+                && Math.abs(_trajectory[i + 2] - position.z) < TRAJECTORY_TOLERANCE
+                && Math.abs(vx - velocity.x) < TRAJECTORY_TOLERANCE
+                && Math.abs(vy - velocity.y) < TRAJECTORY_TOLERANCE
+                && Math.abs(vz - velocity.z) < TRAJECTORY_TOLERANCE;
+    }
+
+    /**
+     * @return How many points are left on our trajectory. Point 0 is where the projectile is now.
+     */
+    public int getTrajectoryLength() {
+        return _hasTrajectory ? _trajectoryEnd + 1 - _trajectoryStart : 0;
+    }
+
+    public double getTrajectoryX(int point) {
+        return _trajectory[(_trajectoryStart + point) * 3];
+    }
+
+    public double getTrajectoryY(int point) {
+        return _trajectory[(_trajectoryStart + point) * 3 + 1];
+    }
 
-    public Vec3d getCachedHit() {
-        return _cachedHit;
+    public double getTrajectoryZ(int point) {
+        return _trajectory[(_trajectoryStart + point) * 3 + 2];
     }
 
-    public void setCacheHit(Vec3d cache) {
-        _cachedHit = cache;
-        _cacheHeld = true;
-        _lastCache.reset();
+    /**
+     * Where along our trajectory we come closest to `pos`, horizontally.
+     * The height is whatever height the projectile is at when it gets there.
+     */
+    public Vec3d getClosestApproach(Vec3d pos) {
+        int length = getTrajectoryLength();
+        if (length == 0) return position;
+        double bestX = getTrajectoryX(0), bestY = getTrajectoryY(0), bestZ = getTrajectoryZ(0);
+        double bestDistSq = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < length - 1; ++i) {
+            double ax = getTrajectoryX(i), ay = getTrajectoryY(i), az = getTrajectoryZ(i);
+            double dx = getTrajectoryX(i + 1) - ax, dy = getTrajectoryY(i + 1) - ay, dz = getTrajectoryZ(i + 1) - az;
+            double t = getClosestOnSegmentXZ(ax, az, dx, dz, pos.x, pos.z);
+            double cx = ax + dx * t, cz = az + dz * t;
+            double distSq = (pos.x - cx) * (pos.x - cx) + (pos.z - cz) * (pos.z - cz);
+            if (distSq < bestDistSq) {
+                bestDistSq = distSq;
+                bestX = cx;
+                bestY = ay + dy * t;
+                bestZ = cz;
+            }
+        }
+        return new Vec3d(bestX, bestY, bestZ);
     }
 
-    public boolean needsToRecache() {
-        return !_cacheHeld || _lastCache.elapsed();
+    /**
+     * @return How far (0 to 1) along the segment from (startX, startZ) by (deltaX, deltaZ) is closest to (x, z)
+     */
+    public static double getClosestOnSegmentXZ(double startX, double startZ, double deltaX, double deltaZ, double x, double z) {
+        double lengthSq = deltaX * deltaX + deltaZ * deltaZ;
+        if (lengthSq < 0.000001) return 0;
+        double t = ((x - startX) * deltaX + (z - startZ) * deltaZ) / lengthSq;
+        return Math.max(0, Math.min(1, t));
     }
 }
@@ -4,30 +4,42 @@ import baritone.api.pathing.goals.Goal;
 import baritone.api.pathing.goals.GoalBlock;
 import net.minecraft.entity.Entity;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.Vec3d;
 
+/**
+ * Get close to an entity.
+ *
+ * Pathing doesn't read the entity itself: whoever owns the goal hands us where to go every tick with {@link #setTarget(Vec3d)}.
+ * That can be where the entity is, or where it's headed.
+ */
 public class GoalFollowEntity implements Goal {
 
-    private final Entity _entity;
     private final double _closeEnoughDistance;
+    private volatile Vec3d _target;
 
     public GoalFollowEntity(Entity entity, double closeEnoughDistance) {
-        _entity = entity;
+        _target = entity.getPos();
         _closeEnoughDistance = closeEnoughDistance;
     }
 
+    public void setTarget(Vec3d target) {
+        _target = target;
+    }
+
     @Override
     public boolean isInGoal(int x, int y, int z) {
+        Vec3d target = _target;
         BlockPos p = new BlockPos(x, y, z);
-        return _entity.getBlockPos().equals(p) || p.isWithinDistance(_entity.getPos(), _closeEnoughDistance);
+        return new BlockPos(target).equals(p) || p.isWithinDistance(target, _closeEnoughDistance);
     }
 
     @Override
     public double heuristic(int x, int y, int z) {
-        //synchronized (BaritoneHelper.MINECRAFT_LOCK) {
-        double xDiff = x - _entity.getPos().getX();
-        int yDiff = y - _entity.getBlockPos().getY();
-        double zDiff = z - _entity.getPos().getZ();
+        Vec3d target = _target;
+        double xDiff = x - target.getX();
+        int yDiff = y - MathHelper.floor(target.getY());
+        double zDiff = z - target.getZ();
         return GoalBlock.calculate(xDiff, yDiff, zDiff);
-        //}
     }
 }
@@ -1,14 +1,22 @@
 package adris.altoclef.util.baritone;
 
 import adris.altoclef.AltoClef;
-import adris.altoclef.util.helpers.BaritoneHelper;
+import adris.altoclef.trackers.entitytracking.EntitySnapshot;
 import baritone.api.pathing.goals.Goal;
 import baritone.api.pathing.goals.GoalXZ;
 import baritone.api.pathing.goals.GoalYLevel;
 import net.minecraft.entity.Entity;
+import net.minecraft.util.math.MathHelper;
 
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Run away from a set of entities.
+ *
+ * Which entities gets picked on the client thread (see {@link #updateTargets(AltoClef)}),
+ * while pathing only ever reads where they are from the entity tracker's snapshot.
+ */
 public abstract class GoalRunAwayFromEntities implements Goal {
 
     private final AltoClef _mod;
@@ -21,6 +29,10 @@ public abstract class GoalRunAwayFromEntities implements Goal {
     // Too low: We will just run straight into the entity to go past it.
     private final double _penaltyFactor;
 
+    // The entities we're running from. Pathing looks up where they are in the entity snapshot.
+    private volatile Targets _targets = new Targets(new int[0], new double[0]);
+    private EntitySnapshot _targetsSnapshot = null;
+
     public GoalRunAwayFromEntities(AltoClef mod, double distance, boolean xzOnly, double penaltyFactor) {
         _mod = mod;
         _distance = distance;
@@ -28,20 +40,42 @@ public abstract class GoalRunAwayFromEntities implements Goal {
         _penaltyFactor = penaltyFactor;
     }
 
+    /**
+     * Picks out which entities to run from. Call this on the client thread before handing us to pathing,
+     * we only pick again once the entity tracker published a new snapshot.
+     */
+    public void updateTargets(AltoClef mod) {
+        EntitySnapshot snapshot = mod.getEntityTracker().getSnapshot();
+        if (snapshot == _targetsSnapshot) return;
+        List<Entity> entities = getEntities(mod);
+        int[] ids = new int[entities.size()];
+        double[] states = new double[entities.size()];
+        int count = 0;
+        for (Entity entity : entities) {
+            if (entity == null || !entity.isAlive()) continue;
+            ids[count] = entity.getId();
+            states[count] = getEntityState(entity);
+            count++;
+        }
+        _targets = new Targets(Arrays.copyOf(ids, count), Arrays.copyOf(states, count));
+        _targetsSnapshot = snapshot;
+    }
+
     @Override
     public boolean isInGoal(int x, int y, int z) {
-        List<Entity> entities = getEntities(_mod);
-        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
-            for (Entity entity : entities) {
-                if (entity == null || !entity.isAlive()) continue;
-                double sqDistance;
-                if (_xzOnly) {
-                    sqDistance = entity.getPos().subtract(x, y, z).multiply(1, 0, 1).lengthSquared();
-                } else {
-                    sqDistance = entity.squaredDistanceTo(x, y, z);
-                }
-                if (sqDistance < _distance * _distance) return false;
+        EntitySnapshot snapshot = _mod.getEntityTracker().getSnapshot();
+        for (int target : _targets.ids) {
+            int i = snapshot.indexOf(target);
+            // Gone
+            if (i == -1) continue;
+            double sqDistance;
+            if (_xzOnly) {
+                double dx = snapshot.getX(i) - x, dz = snapshot.getZ(i) - z;
+                sqDistance = dx * dx + dz * dz;
+            } else {
+                sqDistance = snapshot.squaredDistanceTo(i, x, y, z);
             }
+            if (sqDistance < _distance * _distance) return false;
         }
         return true;
     }
@@ -50,39 +84,56 @@ public abstract class GoalRunAwayFromEntities implements Goal {
     public double heuristic(int x, int y, int z) {
         // The lower the cost, the better.
         double costSum = 0;
-        List<Entity> entities = getEntities(_mod);
-        synchronized (BaritoneHelper.MINECRAFT_LOCK) {
-            int max = 10; // If we have 100 players, this will never calculate.
-            int counter = 0;
-            for (Entity entity : entities) {
-                counter++;
-                if (entity == null || !entity.isAlive()) continue;
-                double cost = getCostOfEntity(entity, x, y, z);
-                if (cost != 0) {
-                    // We want the CLOSER entities to have a bigger weight than the further ones.
-                    costSum += 1 / cost;
-                } else {
-                    // Bad >:(
-                    costSum += 1000;
-                }
-                if (counter >= max) break;
-            }
-            if (counter > 0) {
-                costSum /= counter;
+        EntitySnapshot snapshot = _mod.getEntityTracker().getSnapshot();
+        Targets targets = _targets;
+        int max = 10; // If we have 100 players, this will never calculate.
+        int counter = 0;
+        for (int t = 0; t < targets.ids.length; ++t) {
+            counter++;
+            int i = snapshot.indexOf(targets.ids[t]);
+            if (i == -1) continue;
+            double cost = getCostOfEntity(snapshot, i, targets.states[t], x, y, z);
+            if (cost != 0) {
+                // We want the CLOSER entities to have a bigger weight than the further ones.
+                costSum += 1 / cost;
+            } else {
+                // Bad >:(
+                costSum += 1000;
             }
-            return costSum * _penaltyFactor;
+            if (counter >= max) break;
+        }
+        if (counter > 0) {
+            costSum /= counter;
         }
+        return costSum * _penaltyFactor;
     }
 
+    // Runs on the client thread, see updateTargets.
     protected abstract List<Entity> getEntities(AltoClef mod);
 
-    // Virtual
-    protected double getCostOfEntity(Entity entity, int x, int y, int z) {
+    // Virtual. Anything (besides position) about an entity that getCostOfEntity needs, grabbed on the client thread.
+    protected double getEntityState(Entity entity) {
+        return 0;
+    }
+
+    // Virtual. Runs on the pathing thread, so only go off of the snapshot and the entity's state.
+    protected double getCostOfEntity(EntitySnapshot snapshot, int index, double state, int x, int y, int z) {
         double heuristic = 0;
         if (!_xzOnly) {
-            heuristic += GoalYLevel.calculate(entity.getBlockPos().getY(), y);
+            heuristic += GoalYLevel.calculate(MathHelper.floor(snapshot.getY(index)), y);
         }
-        heuristic += GoalXZ.calculate(entity.getBlockPos().getX() - x, entity.getBlockPos().getZ() - z);
+        heuristic += GoalXZ.calculate(MathHelper.floor(snapshot.getX(index)) - x, MathHelper.floor(snapshot.getZ(index)) - z);
         return heuristic; //entity.squaredDistanceTo(x, y, z);
     }
+
+    // Entity ids along with their getEntityState, swapped out as a whole so pathing never sees half of an update.
+    private static class Targets {
+        public final int[] ids;
+        public final double[] states;
+
+        public Targets(int[] ids, double[] states) {
+            this.ids = ids;
+            this.states = states;
+        }
+    }
 }
@@ -0,0 +1,287 @@
+package adris.altoclef.util.baritone;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.tag.FluidTags;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.BlockView;
+
+import java.util.Arrays;
+
+/**
+ * A batch of projectiles to simulate together, stored as parallel primitive arrays (one entry per projectile)
+ * so simulating every tracked projectile for a tick is one pass over flat arrays.
+ *
+ * Fill it with {@link #add}, run {@link #simulate(Terrain)}, then ask where each projectile went,
+ * when it hit something and when it came closest to a position.
+ *
+ * Steps vanilla's projectile physics exactly: move (stopping at the first solid block in the way),
+ * then multiply velocity by drag (different when in water), then apply gravity.
+ */
+public class ProjectileBatch {
+
+    private final int _ticks;
+    private int _capacity;
+    private int _size = 0;
+
+    // Inputs, then current state while simulating
+    private double[] _x, _y, _z, _vx, _vy, _vz;
+    private double[] _gravity, _drag, _waterDrag;
+
+    // Results. Position of projectile i at tick t is at [t * _capacity + i]
+    private double[] _pathX, _pathY, _pathZ;
+    // Tick a projectile hit a block at, or NO_IMPACT
+    private int[] _impactTick;
+
+    public static final int NO_IMPACT = -1;
+
+    /**
+     * @param capacity How many projectiles we expect. Grows if needed.
+     * @param ticks    How many ticks ahead to simulate.
+     */
+    public ProjectileBatch(int capacity, int ticks) {
+        _ticks = ticks;
+        allocate(Math.max(capacity, 1));
+    }
+
+    private void allocate(int capacity) {
+        _capacity = capacity;
+        _x = new double[capacity];
+        _y = new double[capacity];
+        _z = new double[capacity];
+        _vx = new double[capacity];
+        _vy = new double[capacity];
+        _vz = new double[capacity];
+        _gravity = new double[capacity];
+        _drag = new double[capacity];
+        _waterDrag = new double[capacity];
+        _impactTick = new int[capacity];
+        _pathX = new double[capacity * (_ticks + 1)];
+        _pathY = new double[capacity * (_ticks + 1)];
+        _pathZ = new double[capacity * (_ticks + 1)];
+    }
+
+    // Only while filling, results don't survive this.
+    private void grow() {
+        int oldCapacity = _capacity;
+        double[][] inputs = {_x, _y, _z, _vx, _vy, _vz, _gravity, _drag, _waterDrag};
+        allocate(oldCapacity * 2);
+        double[][] grown = {_x, _y, _z, _vx, _vy, _vz, _gravity, _drag, _waterDrag};
+        for (int i = 0; i < inputs.length; ++i) {
+            System.arraycopy(inputs[i], 0, grown[i], 0, oldCapacity);
+        }
+    }
+
+    /**
+     * @return The projectile's index in this batch.
+     */
+    public int add(double x, double y, double z, double vx, double vy, double vz, double gravity, double drag, double waterDrag) {
+        if (_size == _capacity) grow();
+        int i = _size++;
+        _x[i] = x;
+        _y[i] = y;
+        _z[i] = z;
+        _vx[i] = vx;
+        _vy[i] = vy;
+        _vz[i] = vz;
+        _gravity[i] = gravity;
+        _drag[i] = drag;
+        _waterDrag[i] = waterDrag;
+        return i;
+    }
+
+    public void clear() {
+        _size = 0;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public int getTicks() {
+        return _ticks;
+    }
+
+    /**
+     * Simulates every projectile in the batch, one tick at a time.
+     * Consumes the inputs: Run it once per fill.
+     */
+    public void simulate(Terrain terrain) {
+        Arrays.fill(_impactTick, 0, _size, NO_IMPACT);
+        System.arraycopy(_x, 0, _pathX, 0, _size);
+        System.arraycopy(_y, 0, _pathY, 0, _size);
+        System.arraycopy(_z, 0, _pathZ, 0, _size);
+        int active = _size;
+        for (int tick = 1; tick <= _ticks && active > 0; ++tick) {
+            int row = tick * _capacity;
+            for (int i = 0; i < _size; ++i) {
+                if (_impactTick[i] != NO_IMPACT) continue;
+                double px = _x[i], py = _y[i], pz = _z[i];
+                // Vanilla checks water before moving
+                boolean inWater = terrain.isWater(floor(px), floor(py), floor(pz));
+                double hit = raycast(terrain, px, py, pz, _vx[i], _vy[i], _vz[i]);
+                if (hit >= 0) {
+                    // Stops where it hits, and stays there.
+                    _impactTick[i] = tick;
+                    px += _vx[i] * hit;
+                    py += _vy[i] * hit;
+                    pz += _vz[i] * hit;
+                    active--;
+                } else {
+                    px += _vx[i];
+                    py += _vy[i];
+                    pz += _vz[i];
+                }
+                _x[i] = px;
+                _y[i] = py;
+                _z[i] = pz;
+                _pathX[row + i] = px;
+                _pathY[row + i] = py;
+                _pathZ[row + i] = pz;
+
+                double multiplier = inWater ? _waterDrag[i] : _drag[i];
+                _vx[i] *= multiplier;
+                _vy[i] = _vy[i] * multiplier - _gravity[i];
+                _vz[i] *= multiplier;
+            }
+        }
+    }
+
+    private static int floor(double value) {
+        int result = (int) value;
+        return value < result ? result - 1 : result;
+    }
+
+    /**
+     * Walks the blocks a segment passes through (in order), stopping at the first solid one.
+     *
+     * @return How far (0 to 1) along the segment we hit a solid block, or -1 if we don't.
+     */
+    private static double raycast(Terrain terrain, double startX, double startY, double startZ, double deltaX, double deltaY, double deltaZ) {
+        int bx = floor(startX), by = floor(startY), bz = floor(startZ);
+        if (terrain.isSolid(bx, by, bz)) return 0;
+        int stepX = deltaX > 0 ? 1 : -1,
+                stepY = deltaY > 0 ? 1 : -1,
+                stepZ = deltaZ > 0 ? 1 : -1;
+        // How far along the segment each axis crosses into its next block, and how far between crossings.
+        double crossX = deltaX == 0 ? Double.POSITIVE_INFINITY : ((stepX > 0 ? bx + 1 - startX : startX - bx) / Math.abs(deltaX)),
+                crossY = deltaY == 0 ? Double.POSITIVE_INFINITY : ((stepY > 0 ? by + 1 - startY : startY - by) / Math.abs(deltaY)),
+                crossZ = deltaZ == 0 ? Double.POSITIVE_INFINITY : ((stepZ > 0 ? bz + 1 - startZ : startZ - bz) / Math.abs(deltaZ));
+        double spanX = deltaX == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(deltaX),
+                spanY = deltaY == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(deltaY),
+                spanZ = deltaZ == 0 ? Double.POSITIVE_INFINITY : 1 / Math.abs(deltaZ);
+        while (true) {
+            double along;
+            if (crossX <= crossY && crossX <= crossZ) {
+                along = crossX;
+                bx += stepX;
+                crossX += spanX;
+            } else if (crossY <= crossZ) {
+                along = crossY;
+                by += stepY;
+                crossY += spanY;
+            } else {
+                along = crossZ;
+                bz += stepZ;
+                crossZ += spanZ;
+            }
+            if (along > 1) return -1;
+            if (terrain.isSolid(bx, by, bz)) return along;
+        }
+    }
+
+    /**
+     * @return Ticks worth of path simulated for a projectile: Up until it hit something, or all of them.
+     */
+    public int getSimulatedTicks(int i) {
+        return _impactTick[i] == NO_IMPACT ? _ticks : _impactTick[i];
+    }
+
+    /**
+     * @return The tick a projectile hits a block at, or {@link #NO_IMPACT} if it doesn't within our simulated ticks.
+     */
+    public int getImpactTick(int i) {
+        return _impactTick[i];
+    }
+
+    public double getX(int i, int tick) {
+        return _pathX[tick * _capacity + i];
+    }
+
+    public double getY(int i, int tick) {
+        return _pathY[tick * _capacity + i];
+    }
+
+    public double getZ(int i, int tick) {
+        return _pathZ[tick * _capacity + i];
+    }
+
+    /**
+     * @return The (fractional) tick a projectile comes closest to a position at.
+     */
+    public double getClosestApproachTime(int i, double px, double py, double pz) {
+        double bestTime = 0;
+        double bestDistSq = Double.POSITIVE_INFINITY;
+        int ticks = getSimulatedTicks(i);
+        for (int t = 0; t < ticks; ++t) {
+            double ax = getX(i, t), ay = getY(i, t), az = getZ(i, t);
+            double dx = getX(i, t + 1) - ax, dy = getY(i, t + 1) - ay, dz = getZ(i, t + 1) - az;
+            double lengthSq = dx * dx + dy * dy + dz * dz;
+            double f = lengthSq < 0.000001 ? 0 : ((px - ax) * dx + (py - ay) * dy + (pz - az) * dz) / lengthSq;
+            f = Math.max(0, Math.min(1, f));
+            double cx = ax + dx * f - px, cy = ay + dy * f - py, cz = az + dz * f - pz;
+            double distSq = cx * cx + cy * cy + cz * cz;
+            if (distSq < bestDistSq) {
+                bestDistSq = distSq;
+                bestTime = t + f;
+            }
+        }
+        return bestTime;
+    }
+
+    /**
+     * @return How close (squared) a projectile comes to a position.
+     */
+    public double getClosestApproachSq(int i, double px, double py, double pz) {
+        double time = getClosestApproachTime(i, px, py, pz);
+        int t = (int) Math.floor(time);
+        double f = time - t;
+        int next = Math.min(t + 1, getSimulatedTicks(i));
+        double cx = getX(i, t) + (getX(i, next) - getX(i, t)) * f - px,
+                cy = getY(i, t) + (getY(i, next) - getY(i, t)) * f - py,
+                cz = getZ(i, t) + (getZ(i, next) - getZ(i, t)) * f - pz;
+        return cx * cx + cy * cy + cz * cz;
+    }
+
+    /**
+     * What projectiles fly through.
+     */
+    public interface Terrain {
+        // Blocks projectiles, counted as a full block.
+        boolean isSolid(int x, int y, int z);
+
+        boolean isWater(int x, int y, int z);
+
+        /**
+         * Reads blocks straight from a world. Only use from whichever thread owns that world.
+         */
+        static Terrain of(BlockView world) {
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            return new Terrain() {
+                @Override
+                public boolean isSolid(int x, int y, int z) {
+                    pos.set(x, y, z);
+                    BlockState state = world.getBlockState(pos);
+                    return !state.isAir() && !state.getCollisionShape(world, pos).isEmpty();
+                }
+
+                @Override
+                public boolean isWater(int x, int y, int z) {
+                    pos.set(x, y, z);
+                    FluidState fluid = world.getFluidState(pos);
+                    return fluid.isIn(FluidTags.WATER);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package adris.altoclef.util.baritone;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Everywhere our tracked projectiles will sweep through, so pathing can ask "would standing here get me hit?"
+ * per node without re-solving any ballistics.
+ *
+ * Every trajectory is split into its per tick segments, and the segments are bucketed into the horizontal cells they cross.
+ * Asking about a position only looks at the segments in the cells around it.
+ *
+ * Immutable once built, so any thread can read it without locking.
+ */
+public class ProjectileDangerMap {
+
+    public static final ProjectileDangerMap EMPTY = new ProjectileDangerMap(List.of());
+
+    private static final int CELL_SHIFT = 2;
+
+    // Segment i goes from (x,y,z)[i*3] by (dx,dy,dz)[i*3], and belongs to projectile _segmentOwner[i]
+    private final double[] _starts;
+    private final double[] _deltas;
+    private final int[] _segmentOwner;
+    private final int _projectileCount;
+
+    private final Long2ObjectOpenHashMap<int[]> _cells = new Long2ObjectOpenHashMap<>();
+
+    public ProjectileDangerMap(List<CachedProjectile> projectiles) {
+        int segmentCount = 0;
+        for (CachedProjectile projectile : projectiles) {
+            segmentCount += Math.max(projectile.getTrajectoryLength() - 1, 0);
+        }
+        _starts = new double[segmentCount * 3];
+        _deltas = new double[segmentCount * 3];
+        _segmentOwner = new int[segmentCount];
+        _projectileCount = projectiles.size();
+
+        Long2ObjectOpenHashMap<IntArrayList> cells = new Long2ObjectOpenHashMap<>();
+        int segment = 0;
+        for (int owner = 0; owner < projectiles.size(); ++owner) {
+            CachedProjectile projectile = projectiles.get(owner);
+            for (int i = 0; i < projectile.getTrajectoryLength() - 1; ++i) {
+                double x = projectile.getTrajectoryX(i), y = projectile.getTrajectoryY(i), z = projectile.getTrajectoryZ(i);
+                double dx = projectile.getTrajectoryX(i + 1) - x,
+                        dy = projectile.getTrajectoryY(i + 1) - y,
+                        dz = projectile.getTrajectoryZ(i + 1) - z;
+                _starts[segment * 3] = x;
+                _starts[segment * 3 + 1] = y;
+                _starts[segment * 3 + 2] = z;
+                _deltas[segment * 3] = dx;
+                _deltas[segment * 3 + 1] = dy;
+                _deltas[segment * 3 + 2] = dz;
+                _segmentOwner[segment] = owner;
+                // File the segment under every cell its (horizontal) bounding box covers
+                int minX = toCell(Math.min(x, x + dx)), maxX = toCell(Math.max(x, x + dx)),
+                        minZ = toCell(Math.min(z, z + dz)), maxZ = toCell(Math.max(z, z + dz));
+                for (int cx = minX; cx <= maxX; ++cx) {
+                    for (int cz = minZ; cz <= maxZ; ++cz) {
+                        long key = ChunkPos.toLong(cx, cz);
+                        IntArrayList cell = cells.get(key);
+                        if (cell == null) {
+                            cell = new IntArrayList();
+                            cells.put(key, cell);
+                        }
+                        cell.add(segment);
+                    }
+                }
+                segment++;
+            }
+        }
+        for (Long2ObjectMap.Entry<IntArrayList> entry : cells.long2ObjectEntrySet()) {
+            _cells.put(entry.getLongKey(), entry.getValue().toIntArray());
+        }
+    }
+
+    private static int toCell(double coordinate) {
+        return MathHelper.floor(coordinate) >> CELL_SHIFT;
+    }
+
+    public boolean isEmpty() {
+        return _segmentOwner.length == 0;
+    }
+
+    /**
+     * Whether any projectile will pass within `horizontalRange` horizontally and `verticalRange` vertically of a position.
+     */
+    public boolean isInDanger(double x, double y, double z, double horizontalRange, double verticalRange) {
+        if (isEmpty()) return false;
+        double rangeSq = horizontalRange * horizontalRange;
+        int minX = toCell(x - horizontalRange), maxX = toCell(x + horizontalRange),
+                minZ = toCell(z - horizontalRange), maxZ = toCell(z + horizontalRange);
+        for (int cx = minX; cx <= maxX; ++cx) {
+            for (int cz = minZ; cz <= maxZ; ++cz) {
+                int[] segments = _cells.get(ChunkPos.toLong(cx, cz));
+                if (segments == null) continue;
+                for (int segment : segments) {
+                    if (getDistanceSqIfClose(segment, x, y, z, verticalRange) < rangeSq) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * For every projectile that passes within range of a position, adds up how far (squared, horizontally) it passes.
+     * Further is better: a position that's barely in the way of a projectile is easier to step out of.
+     */
+    public double getDangerScore(double x, double y, double z, double horizontalRange, double verticalRange) {
+        if (isEmpty()) return 0;
+        double rangeSq = horizontalRange * horizontalRange;
+        double[] closest = null;
+        int minX = toCell(x - horizontalRange), maxX = toCell(x + horizontalRange),
+                minZ = toCell(z - horizontalRange), maxZ = toCell(z + horizontalRange);
+        for (int cx = minX; cx <= maxX; ++cx) {
+            for (int cz = minZ; cz <= maxZ; ++cz) {
+                int[] segments = _cells.get(ChunkPos.toLong(cx, cz));
+                if (segments == null) continue;
+                for (int segment : segments) {
+                    double distanceSq = getDistanceSqIfClose(segment, x, y, z, verticalRange);
+                    if (distanceSq >= rangeSq) continue;
+                    if (closest == null) {
+                        closest = new double[_projectileCount];
+                        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+                    }
+                    int owner = _segmentOwner[segment];
+                    closest[owner] = Math.min(closest[owner], distanceSq);
+                }
+            }
+        }
+        if (closest == null) return 0;
+        double score = 0;
+        for (double distanceSq : closest) {
+            if (distanceSq != Double.POSITIVE_INFINITY) {
+                score += distanceSq;
+            }
+        }
+        return score;
+    }
+
+    // Horizontal squared distance from a segment's closest (horizontal) point, or infinity if it's too far vertically there.
+    private double getDistanceSqIfClose(int segment, double x, double y, double z, double verticalRange) {
+        int i = segment * 3;
+        double sx = _starts[i], sy = _starts[i + 1], sz = _starts[i + 2],
+                dx = _deltas[i], dy = _deltas[i + 1], dz = _deltas[i + 2];
+        double t = CachedProjectile.getClosestOnSegmentXZ(sx, sz, dx, dz, x, z);
+        if (Math.abs(y - (sy + dy * t)) >= verticalRange) return Double.POSITIVE_INFINITY;
+        double cx = sx + dx * t - x,
+                cz = sz + dz * t - z;
+        return cx * cx + cz * cz;
+    }
+}
@@ -7,6 +7,8 @@ public class BaritoneHelper {
 
     /**
      * Use whenever accessing Minecraft data (from ClientWorld or ClientPlayerEntity) in baritone
+     *
+     * Goals shouldn't need this: Read the entity tracker's snapshot instead, see {@link adris.altoclef.trackers.EntityTracker#getSnapshot()}
      */
     public static final Object MINECRAFT_LOCK = new Object();
 
@@ -5,7 +5,10 @@ import adris.altoclef.util.baritone.CachedProjectile;
 import net.minecraft.client.network.ClientPlayerEntity;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.projectile.ExplosiveProjectileEntity;
+import net.minecraft.entity.projectile.PersistentProjectileEntity;
 import net.minecraft.entity.projectile.ProjectileEntity;
+import net.minecraft.entity.projectile.TridentEntity;
+import net.minecraft.entity.projectile.thrown.ThrownEntity;
 import net.minecraft.util.math.Vec3d;
 
 /**
@@ -16,11 +19,44 @@ public class ProjectileHelper {
     public static final double ARROW_GRAVITY_ACCEL = 0.05000000074505806;
     public static final double THROWN_ENTITY_GRAVITY_ACCEL = 0.03;
 
+    // Velocity multipliers every tick
+    public static final double AIR_DRAG = 0.99;
+    public static final double EXPLOSIVE_DRAG = 0.95;
+    public static final double ARROW_WATER_DRAG = 0.6;
+    public static final double THROWN_WATER_DRAG = 0.8;
+    public static final double TRIDENT_WATER_DRAG = 0.99;
+
     public static boolean hasGravity(ProjectileEntity entity) {
         if (entity instanceof ExplosiveProjectileEntity) return false;
         return !entity.hasNoGravity();
     }
 
+    /**
+     * How much a projectile's vertical velocity drops every tick.
+     */
+    public static double getGravity(ProjectileEntity entity) {
+        if (!hasGravity(entity)) return 0;
+        if (entity instanceof ThrownEntity) return THROWN_ENTITY_GRAVITY_ACCEL;
+        return ARROW_GRAVITY_ACCEL;
+    }
+
+    /**
+     * What a projectile's velocity gets multiplied by every tick, in the air.
+     */
+    public static double getDrag(ProjectileEntity entity) {
+        if (entity instanceof ExplosiveProjectileEntity) return EXPLOSIVE_DRAG;
+        return AIR_DRAG;
+    }
+
+    /**
+     * What a projectile's velocity gets multiplied by every tick, in water.
+     */
+    public static double getWaterDrag(ProjectileEntity entity) {
+        if (entity instanceof TridentEntity) return TRIDENT_WATER_DRAG;
+        if (entity instanceof PersistentProjectileEntity) return ARROW_WATER_DRAG;
+        return THROWN_WATER_DRAG;
+    }
+
     // If we shoot on a 2d plane, what is the 2d point on that trajectory closest to our player pos?
     private static Vec3d getClosestPointOnFlatLine(double shootX, double shootZ, double velX, double velZ, double playerX, double playerZ) {
         double deltaX = playerX - shootX,
@@ -47,6 +83,9 @@ public class ProjectileHelper {
      * Calculates where we think an arrow will "hit" us, or at least where it will be at its closest.
      * Does so by figuring out the closest X-Z coordinate of the arrow's trajectory and then using the height
      * of the arrow when it reaches that point as the result's Y value.
+     *
+     * Flat approximation with no drag or collision. For tracked projectiles, their simulated trajectory is more accurate
+     * (see {@link #calculateArrowClosestApproach(CachedProjectile, Vec3d)} and {@link adris.altoclef.util.baritone.ProjectileBatch}).
      */
     public static Vec3d calculateArrowClosestApproach(Vec3d shootOrigin, Vec3d shootVelocity, double yGravity, Vec3d playerOrigin) {
         Vec3d flatEncounter = getClosestPointOnFlatLine(shootOrigin.x, shootOrigin.z, shootVelocity.x, shootVelocity.z, playerOrigin.x, playerOrigin.z);
@@ -62,7 +101,7 @@ public class ProjectileHelper {
     }
 
     public static Vec3d calculateArrowClosestApproach(CachedProjectile projectile, Vec3d pos) {
-        return calculateArrowClosestApproach(projectile.position, projectile.velocity, projectile.gravity, pos);
+        return projectile.getClosestApproach(pos);
     }
 
     public static Vec3d calculateArrowClosestApproach(CachedProjectile projectile, ClientPlayerEntity player) {